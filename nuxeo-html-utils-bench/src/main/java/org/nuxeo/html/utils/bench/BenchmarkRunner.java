@@ -0,0 +1,50 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler (allocation rate) and writes the results to <code>jmh-result.json</code>,
+ * so two runs (before/after a Jericho or Nuxeo upgrade for example) can be compared.
+ * <p>
+ * Accepts the usual JMH command line options, for example <code>java -jar target/benchmarks.jar getLinks -p
+ * size=HUGE</code>.
+ *
+ * @since 2023
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+
+        Options options = new OptionsBuilder().parent(new CommandLineOptions(args))
+                                              .addProfiler(GCProfiler.class)
+                                              .resultFormat(ResultFormatType.JSON)
+                                              .result("jmh-result.json")
+                                              .build();
+        new Runner(options).run();
+    }
+}
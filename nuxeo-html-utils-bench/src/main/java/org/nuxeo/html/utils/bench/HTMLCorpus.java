@@ -0,0 +1,139 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils.bench;
+
+import java.util.Random;
+
+/**
+ * Generates the html documents used by the benchmarks. The generation is deterministic (fixed seed), so two runs
+ * measure the same documents.
+ *
+ * @since 2023
+ */
+public class HTMLCorpus {
+
+    /**
+     * Approximate size of the document
+     */
+    public enum Size {
+        // ~10 KB, ~1 MB, ~20 MB
+        SMALL(20), MEDIUM(2_000), HUGE(40_000);
+
+        public final int paragraphs;
+
+        Size(int paragraphs) {
+            this.paragraphs = paragraphs;
+        }
+    }
+
+    /**
+     * Number of links per paragraph and of metas in the head
+     */
+    public enum Density {
+        LOW(0.2, 5), HIGH(4, 50);
+
+        public final double linksPerParagraph;
+
+        public final int metas;
+
+        Density(double linksPerParagraph, int metas) {
+            this.linksPerParagraph = linksPerParagraph;
+            this.metas = metas;
+        }
+    }
+
+    protected static final String[] WORDS = { "lorem", "ipsum", "dolor", "sit", "amet", "consectetur",
+            "adipisicing", "elit", "sed", "do", "eiusmod", "tempor", "incididunt", "ut", "labore", "et", "dolore",
+            "magna", "aliqua", "&amp;", "&eacute;t&eacute;", "caf&#233;" };
+
+    public static final String LAST_META_NAME = "meta-last";
+
+    private HTMLCorpus() {
+        // static only
+    }
+
+    public static String generate(Size size, Density density) {
+
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder(size.paragraphs * 512);
+
+        sb.append("<!DOCTYPE html>\n<html>\n<head>\n");
+        sb.append("<meta charset=\"UTF-8\" />\n");
+        sb.append("<title>Benchmark &amp; corpus ").append(size).append(' ').append(density).append("</title>\n");
+        for (int i = 0; i < density.metas; i++) {
+            sb.append("<meta name=\"meta-").append(i).append("\" content=\"Value of meta ").append(i).append("\" />\n");
+        }
+        sb.append("<meta name=\"").append(LAST_META_NAME).append("\" content=\"The last one\" />\n");
+        sb.append("<link rel=\"stylesheet\" href=\"/styles/main.css\">\n");
+        sb.append("<script src=\"/scripts/main.js\"></script>\n");
+        sb.append("<style>p { margin: 0; }</style>\n");
+        sb.append("</head>\n<body>\n");
+
+        double links = 0;
+        for (int p = 0; p < size.paragraphs; p++) {
+            if (p % 25 == 0) {
+                sb.append("<h2>Section ").append(p / 25).append("</h2>\n");
+            }
+            if (p % 50 == 10) {
+                sb.append("<!-- <a href=\"http://commented.out/").append(p).append("\">not a link</a> -->\n");
+            }
+            sb.append("<p>");
+            int words = 40 + random.nextInt(40);
+            links += density.linksPerParagraph;
+            for (int w = 0; w < words; w++) {
+                if (links >= 1 && random.nextInt(words) < 4) {
+                    links -= 1;
+                    appendLink(sb, random, p, w);
+                } else {
+                    sb.append(WORDS[random.nextInt(WORDS.length)]);
+                }
+                sb.append(w % 12 == 11 ? "\n" : " ");
+            }
+            while (links >= 1) {
+                links -= 1;
+                appendLink(sb, random, p, words);
+            }
+            sb.append("</p>\n");
+            if (p % 10 == 5) {
+                sb.append("<ul><li>First&nbsp;item</li><li>Second <b>item</b></li></ul>\n");
+            }
+        }
+
+        sb.append("</body>\n</html>\n");
+        return sb.toString();
+    }
+
+    protected static void appendLink(StringBuilder sb, Random random, int paragraph, int word) {
+
+        switch (random.nextInt(3)) {
+        case 0:
+            sb.append("<img src=\"/images/").append(paragraph).append('-').append(word).append(
+                    ".png\" alt=\"Image ").append(word).append("\">");
+            break;
+        case 1:
+            sb.append("<a href=\"https://www.example.com/").append(paragraph).append("/page-").append(word).append(
+                    ".html\">An <em>external</em> link</a>");
+            break;
+        default:
+            sb.append("<a href=\"../relative/").append(word).append(".html\">relative link ").append(word).append(
+                    "</a>");
+            break;
+        }
+    }
+}
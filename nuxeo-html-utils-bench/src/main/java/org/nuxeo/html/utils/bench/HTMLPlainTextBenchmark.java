@@ -0,0 +1,81 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.nuxeo.html.utils.HTMLParser;
+import org.nuxeo.html.utils.bench.HTMLCorpus.Density;
+import org.nuxeo.html.utils.bench.HTMLCorpus.Size;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of {@link HTMLParser#getPlainText(String, boolean, boolean, boolean)} with every combination of flags,
+ * over every size and density of {@link HTMLCorpus}.
+ *
+ * @since 2023
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HTMLPlainTextBenchmark {
+
+    @Param({ "SMALL", "MEDIUM", "HUGE" })
+    public Size size;
+
+    @Param({ "LOW", "HIGH" })
+    public Density density;
+
+    @Param({ "false", "true" })
+    public boolean includeHyperlinkURLs;
+
+    @Param({ "false", "true" })
+    public boolean includeAlternateText;
+
+    @Param({ "false", "true" })
+    public boolean convertNonBreakingSpaces;
+
+    protected String html;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        html = HTMLCorpus.generate(size, density);
+    }
+
+    @Benchmark
+    public String getPlainText() throws IOException {
+        return new HTMLParser(html).getPlainText("\n", includeHyperlinkURLs, includeAlternateText,
+                convertNonBreakingSpaces);
+    }
+}
@@ -0,0 +1,464 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import net.htmlparser.jericho.CharacterReference;
+import net.htmlparser.jericho.HTMLElementName;
+
+/**
+ * A minimal tokenizer finding the start tags of an html source and their attributes in a single walk over its
+ * characters, without building the tag caches and the element tree of a Jericho full sequential parse. It is used
+ * by {@link HTMLParser} (see {@link HTMLParser.Engine}) for the title, the metas, the images and the links without
+ * their text, which only need the start tags.
+ * <p>
+ * Comments, doctype, CDATA sections, processing instructions and server tags are skipped, and so is the content of
+ * <code>script</code> and <code>style</code> (available with {@link Tag#getContent()}). The content of a
+ * <code>title</code> is available the same way, but it is scanned as Jericho does: a tag in a title is found. An end
+ * tag is skipped too: there is no element, a tag is not matched with its end tag.
+ * <p>
+ * Only the attributes that are read are decoded (with Jericho's {@link CharacterReference}), and the same
+ * {@link Tag} is reused for every start tag: a handler must copy what it keeps.
+ * <p>
+ * The result of the last search of each delimiter (end of a comment, closing quote, end tag of a title, ...) is
+ * kept, and so are the closing quotes after which a start tag was found not to be closed: unclosed markup, searched
+ * up to the end of the source, does not make the following tags search the same tail again, so the scan stays
+ * linear.
+ *
+ * @since 2023
+ */
+public class FastTagScanner {
+
+    /**
+     * Receives the start tags, in the order of the document
+     */
+    @FunctionalInterface
+    public interface TagHandler {
+        /**
+         * @param tag the start tag, only valid during the call
+         * @return <code>false</code> to stop the scan
+         */
+        boolean handle(Tag tag);
+    }
+
+    // Elements whose content is returned by Tag#getContent, only the title is scanned for tags
+    protected static final String[] RAW_TEXT_ELEMENTS = { HTMLElementName.SCRIPT, HTMLElementName.STYLE,
+            HTMLElementName.TITLE };
+
+    /**
+     * A start tag found by the scanner
+     */
+    public static class Tag {
+
+        protected final CharSequence html;
+
+        protected String name;
+
+        protected int attributeCount;
+
+        protected String[] attributeNames = new String[8];
+
+        // Position of the raw values, -1 for an attribute without value
+        protected int[] valueBegins = new int[8];
+
+        protected int[] valueEnds = new int[8];
+
+        protected int contentBegin = -1;
+
+        protected int contentEnd = -1;
+
+        protected Tag(CharSequence html) {
+            this.html = html;
+        }
+
+        protected void reset(String name) {
+            this.name = name;
+            attributeCount = 0;
+            contentBegin = -1;
+            contentEnd = -1;
+        }
+
+        protected void addAttribute(String attributeName, int valueBegin, int valueEnd) {
+
+            if (attributeCount == attributeNames.length) {
+                attributeNames = Arrays.copyOf(attributeNames, attributeCount * 2);
+                valueBegins = Arrays.copyOf(valueBegins, attributeCount * 2);
+                valueEnds = Arrays.copyOf(valueEnds, attributeCount * 2);
+            }
+            attributeNames[attributeCount] = attributeName;
+            valueBegins[attributeCount] = valueBegin;
+            valueEnds[attributeCount] = valueEnd;
+            attributeCount++;
+        }
+
+        /**
+         * @return the name of the tag, in lower case
+         */
+        public String getName() {
+            return name;
+        }
+
+        public int getAttributeCount() {
+            return attributeCount;
+        }
+
+        /**
+         * @return the name of the attribute, in lower case
+         */
+        public String getAttributeName(int index) {
+            return attributeNames[index];
+        }
+
+        /**
+         * @return the decoded value of the attribute, <code>null</code> if it has no value
+         */
+        public String getAttributeValue(int index) {
+
+            if (valueBegins[index] < 0) {
+                return null;
+            }
+            return CharacterReference.decode(html.subSequence(valueBegins[index], valueEnds[index]), true);
+        }
+
+        /**
+         * Same as <code>StartTag.getAttributeValue(name)</code>: the value of the first attribute with this name
+         *
+         * @param attributeName the name of the attribute, case insensitive
+         * @return the decoded value, <code>null</code> if there is no such attribute or if it has no value
+         */
+        public String getAttributeValue(String attributeName) {
+
+            for (int i = 0; i < attributeCount; i++) {
+                if (attributeNames[i].equalsIgnoreCase(attributeName)) {
+                    return getAttributeValue(i);
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @return the raw content of a <code>script</code>, <code>style</code> or <code>title</code> element,
+         *         <code>null</code> for the other tags
+         */
+        public CharSequence getContent() {
+            return contentBegin < 0 ? null : html.subSequence(contentBegin, contentEnd);
+        }
+    }
+
+    /**
+     * The last search of a delimiter: it is not in <code>[from, at)</code>, and is at <code>at</code> (-1 if it is
+     * not after <code>from</code>)
+     */
+    protected static class Search {
+
+        protected int from = Integer.MAX_VALUE;
+
+        protected int at = -1;
+    }
+
+    protected final CharSequence html;
+
+    protected final int length;
+
+    protected final Map<String, Search> searches = new HashMap<String, Search>();
+
+    // Closing quotes of attribute values after which the tag is not closed: a tag reaching one is not closed either
+    protected final BitSet unclosedAfter = new BitSet();
+
+    public FastTagScanner(CharSequence html) {
+        this.html = html;
+        this.length = html.length();
+    }
+
+    /**
+     * Walks the source and sends every start tag to <code>handler</code>, until it returns <code>false</code>.
+     *
+     * @param handler
+     * @return the number of start tags found
+     */
+    public int scan(TagHandler handler) {
+
+        Tag tag = new Tag(html);
+        int count = 0;
+        int pos = 0;
+        while ((pos = indexOf('<', pos)) >= 0 && pos + 1 < length) {
+            char c = html.charAt(pos + 1);
+            int next;
+            if (c == '!') {
+                next = skipMarkupDeclaration(pos);
+            } else if (c == '?') {
+                next = skipTo("?>", pos + 2);
+            } else if (c == '%') {
+                next = skipTo("%>", pos + 2);
+            } else if (c == '/') {
+                next = isNameStart(pos + 2) ? skipTo(">", pos + 2) : -1;
+            } else if (isNameStart(pos + 1)) {
+                next = parseStartTag(pos + 1, tag);
+                if (next > 0) {
+                    count++;
+                    if (!handler.handle(tag)) {
+                        break;
+                    }
+                }
+            } else {
+                next = -1;
+            }
+            // Not markup, the '<' is text
+            pos = next < 0 ? pos + 1 : next;
+        }
+        return count;
+    }
+
+    /**
+     * @return the position after a comment, doctype or CDATA section, -1 if it is not closed
+     */
+    protected int skipMarkupDeclaration(int pos) {
+
+        if (regionMatches(pos, "<!--")) {
+            return skipTo("-->", pos + 4);
+        }
+        if (regionMatches(pos, "<![CDATA[")) {
+            return skipTo("]]>", pos + 9);
+        }
+        return skipTo(">", pos + 2);
+    }
+
+    /**
+     * Reads the name and the attributes of the tag starting at <code>pos</code> (after the '&lt;')
+     *
+     * @return the position after the tag (after the content of a raw text element), -1 if it is not a valid tag
+     */
+    protected int parseStartTag(int pos, Tag tag) {
+
+        int nameEnd = pos;
+        while (nameEnd < length && isNameChar(html.charAt(nameEnd))) {
+            nameEnd++;
+        }
+        if (indexOf(">", nameEnd) < 0) {
+            // Cannot be closed
+            return -1;
+        }
+        tag.reset(html.subSequence(pos, nameEnd).toString().toLowerCase(Locale.ROOT));
+
+        int i = nameEnd;
+        while (true) {
+            while (i < length && (Character.isWhitespace(html.charAt(i)) || html.charAt(i) == '/')) {
+                i++;
+            }
+            if (i >= length) {
+                return notClosed(tag);
+            }
+            if (html.charAt(i) == '>') {
+                i++;
+                break;
+            }
+
+            int attrBegin = i;
+            while (i < length && !isAttributeNameEnd(html.charAt(i))) {
+                i++;
+            }
+            if (i == attrBegin) {
+                // A '=' without name
+                i++;
+                continue;
+            }
+            String attrName = html.subSequence(attrBegin, i).toString().toLowerCase(Locale.ROOT);
+
+            int j = skipWhitespace(i);
+            if (j < length && html.charAt(j) == '=') {
+                j = skipWhitespace(j + 1);
+                if (j >= length) {
+                    return notClosed(tag);
+                }
+                char quote = html.charAt(j);
+                if (isQuote(quote)) {
+                    int valueEnd = indexOf(quote == '"' ? "\"" : "'", j + 1);
+                    if (valueEnd < 0 || unclosedAfter.get(valueEnd)) {
+                        return notClosed(tag);
+                    }
+                    tag.addAttribute(attrName, j + 1, valueEnd);
+                    i = valueEnd + 1;
+                } else {
+                    int valueEnd = j;
+                    while (valueEnd < length && !Character.isWhitespace(html.charAt(valueEnd))
+                            && html.charAt(valueEnd) != '>') {
+                        valueEnd++;
+                    }
+                    tag.addAttribute(attrName, j, valueEnd);
+                    i = valueEnd;
+                }
+            } else {
+                tag.addAttribute(attrName, -1, -1);
+            }
+        }
+
+        for (String rawTextElement : RAW_TEXT_ELEMENTS) {
+            if (rawTextElement.equals(tag.name)) {
+                int contentEnd = indexOfEndTag(rawTextElement, i);
+                if (contentEnd < 0) {
+                    // Not closed: a title is empty, a script or a style goes to the end
+                    contentEnd = HTMLElementName.TITLE.equals(rawTextElement) ? i : length;
+                }
+                tag.contentBegin = i;
+                tag.contentEnd = contentEnd;
+                return HTMLElementName.TITLE.equals(rawTextElement) ? i : contentEnd;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Remembers the closing quotes of the tag, which is not closed
+     *
+     * @return -1
+     */
+    protected int notClosed(Tag tag) {
+
+        for (int k = 0; k < tag.attributeCount; k++) {
+            int valueBegin = tag.valueBegins[k];
+            if (valueBegin > 0 && isQuote(html.charAt(valueBegin - 1))) {
+                unclosedAfter.set(tag.valueEnds[k]);
+            }
+        }
+        return -1;
+    }
+
+    protected static boolean isQuote(char c) {
+        return c == '"' || c == '\'';
+    }
+
+    protected boolean isNameStart(int pos) {
+
+        if (pos >= length) {
+            return false;
+        }
+        char c = html.charAt(pos);
+        return Character.isLetter(c) || c == '_' || c == ':';
+    }
+
+    protected static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == ':' || c == '-' || c == '.';
+    }
+
+    protected static boolean isAttributeNameEnd(char c) {
+        return Character.isWhitespace(c) || c == '=' || c == '>' || c == '/';
+    }
+
+    protected int skipWhitespace(int pos) {
+
+        int i = pos;
+        while (i < length && Character.isWhitespace(html.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @return the position after the next <code>end</code>, -1 if there is none
+     */
+    protected int skipTo(String end, int pos) {
+
+        int i = indexOf(end, pos);
+        return i < 0 ? -1 : i + end.length();
+    }
+
+    /**
+     * @return the position of the end tag of <code>name</code> (case insensitive), -1 if there is none
+     */
+    protected int indexOfEndTag(String name, int pos) {
+
+        String endTag = "</" + name;
+        int i = pos;
+        while ((i = indexOf(endTag, i)) >= 0) {
+            int nameEnd = i + endTag.length();
+            if (nameEnd == length || !isNameChar(html.charAt(nameEnd))) {
+                return i;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the position of the next <code>s</code> (case insensitive) from <code>pos</code>, -1 if there is none.
+     * The result of the last search of <code>s</code> is used to search only the characters that were not searched
+     * yet.
+     */
+    protected int indexOf(String s, int pos) {
+
+        Search last = searches.computeIfAbsent(s, k -> new Search());
+        if (pos >= last.from && (last.at < 0 || pos <= last.at)) {
+            return last.at;
+        }
+
+        // Not in [last.from, last.at) either
+        int limit = pos < last.from ? Math.min(last.from, length) : length;
+        int at = -1;
+        for (int i = pos; (i = indexOf(s.charAt(0), i, limit)) >= 0; i++) {
+            if (regionMatches(i, s)) {
+                at = i;
+                break;
+            }
+        }
+        if (at < 0 && limit < length) {
+            at = last.at;
+        }
+        last.from = pos;
+        last.at = at;
+        return at;
+    }
+
+    protected int indexOf(char c, int pos) {
+        return indexOf(c, pos, length);
+    }
+
+    /**
+     * @return the position of <code>c</code> in <code>[pos, limit)</code>, -1 if there is none
+     */
+    protected int indexOf(char c, int pos, int limit) {
+
+        for (int i = pos; i < limit; i++) {
+            if (html.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return <code>true</code> if the source has <code>s</code> (case insensitive) at <code>pos</code>
+     */
+    protected boolean regionMatches(int pos, String s) {
+
+        if (pos + s.length() > length) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (Character.toLowerCase(html.charAt(pos + i)) != Character.toLowerCase(s.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
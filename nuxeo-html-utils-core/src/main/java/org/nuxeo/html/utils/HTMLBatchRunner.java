@@ -0,0 +1,317 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.apache.commons.io.output.StringBuilderWriter;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.runtime.api.Framework;
+
+/**
+ * Runs the same parsing on a list of inputs using a bounded pool of threads.
+ * <p>
+ * Results are returned in the order of the inputs. A failure on one input does not stop the others: it is logged and
+ * its result is <code>null</code>.
+ * <p>
+ * The threads come from a single pool shared by all the batches, started and stopped with the
+ * {@link HTMLParserComponent}. Its size is the <code>nuxeo.html.utils.batch.maxThreads</code> configuration property
+ * (default: the number of processors), and the parallelism of a batch is clamped to it. The calling thread parses
+ * too, so a batch always progresses when the pool is busy with other batches. The inputs are parsed outside of the
+ * transaction of the caller: the functions must not access the repository (see
+ * {@link #getInputs(List, String, Function)}).
+ * <p>
+ * The default degree of parallelism is the number of processors, and can be changed with the
+ * <code>nuxeo.html.utils.batch.parallelism</code> configuration property.
+ *
+ * @since 2023
+ */
+public class HTMLBatchRunner {
+
+    private static final Logger log = LogManager.getLogger(HTMLBatchRunner.class);
+
+    public static final String PARALLELISM_PROPERTY = "nuxeo.html.utils.batch.parallelism";
+
+    public static final String MAX_THREADS_PROPERTY = "nuxeo.html.utils.batch.maxThreads";
+
+    protected static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    // Shared by all the batches, null when the component is not started (the inputs are then parsed sequentially)
+    protected static volatile ExecutorService executor;
+
+    protected static volatile int maxThreads = 1;
+
+    /**
+     * A parsing of one input
+     */
+    @FunctionalInterface
+    public interface ParseFunction<I, R> {
+        R apply(I input) throws Exception;
+    }
+
+    public static int getDefaultParallelism() {
+        return getIntProperty(PARALLELISM_PROPERTY, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @return the size of the shared pool, the max. parallelism of a batch
+     */
+    public static int getMaxThreads() {
+        return maxThreads;
+    }
+
+    protected static int getIntProperty(String name, int defaultValue) {
+
+        String value = Framework.getRuntime() == null ? null : Framework.getProperty(name);
+        if (StringUtils.isBlank(value)) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            log.warn("Invalid value for {}: {}, using {}", name, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Starts the pool shared by the batches, stopping the previous one if any. Called by
+     * {@link HTMLParserComponent#start(org.nuxeo.runtime.model.ComponentContext)}.
+     */
+    public static synchronized void startExecutor() {
+
+        shutdownExecutor();
+        int size = Math.max(1, getIntProperty(MAX_THREADS_PROPERTY, Runtime.getRuntime().availableProcessors()));
+        executor = Executors.newFixedThreadPool(size, r -> {
+            Thread thread = new Thread(r, "html-utils-batch-" + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        maxThreads = size;
+    }
+
+    public static synchronized void shutdownExecutor() {
+
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        maxThreads = 1;
+    }
+
+    /**
+     * Applies <code>function</code> to each input, using at most <code>parallelism</code> threads.
+     *
+     * @param inputs
+     * @param parallelism the max. number of threads, clamped to {@link #getMaxThreads()}. If 0 or less,
+     *            {@link #getDefaultParallelism()} is used
+     * @param function
+     * @return the results, in the order of the inputs. <code>null</code> for an input whose parsing failed
+     */
+    @SuppressWarnings("unchecked")
+    public static <I, R> List<R> map(List<I> inputs, int parallelism, ParseFunction<I, R> function) {
+
+        if (parallelism <= 0) {
+            parallelism = getDefaultParallelism();
+        }
+        ExecutorService pool = executor;
+        int threads = pool == null ? 1 : Math.max(1, Math.min(Math.min(parallelism, maxThreads), inputs.size()));
+
+        Object[] results = new Object[inputs.size()];
+        // Each thread, including the calling one, takes the next input until there is none
+        AtomicInteger next = new AtomicInteger();
+        Runnable worker = () -> {
+            int i;
+            while ((i = next.getAndIncrement()) < inputs.size()) {
+                results[i] = apply(function, inputs.get(i));
+            }
+        };
+
+        // A helper still in the queue of the pool when the calling thread is done is not needed anymore
+        List<AtomicBoolean> started = new ArrayList<AtomicBoolean>(threads - 1);
+        List<Future<?>> helpers = new ArrayList<Future<?>>(threads - 1);
+        try {
+            for (int i = 1; i < threads; i++) {
+                AtomicBoolean helperStarted = new AtomicBoolean();
+                started.add(helperStarted);
+                helpers.add(pool.submit(() -> {
+                    if (helperStarted.compareAndSet(false, true)) {
+                        worker.run();
+                    }
+                }));
+            }
+            worker.run();
+            for (int i = 0; i < helpers.size(); i++) {
+                if (started.get(i).compareAndSet(false, true)) {
+                    helpers.get(i).cancel(false);
+                } else {
+                    helpers.get(i).get();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            next.set(inputs.size());
+            throw new NuxeoException("Interrupted while parsing the html inputs", e);
+        } catch (ExecutionException e) {
+            throw new NuxeoException("Cannot parse the html inputs", e.getCause());
+        } catch (RejectedExecutionException e) {
+            next.set(inputs.size());
+            throw new NuxeoException("The html parsing pool is stopped", e);
+        }
+
+        List<R> list = new ArrayList<R>(results.length);
+        for (Object result : results) {
+            list.add((R) result);
+        }
+        return list;
+    }
+
+    protected static <I, R> R apply(ParseFunction<I, R> function, I input) {
+
+        try {
+            return function.apply(input);
+        } catch (Exception e) {
+            log.warn("Cannot parse input: {}", input, e);
+            return null;
+        }
+    }
+
+    /**
+     * The html of a document of a batch, read from the document in the calling thread (see
+     * {@link HTMLBatchRunner#getInputs(List, String, Function)}): the extraction stored in the document when it can be
+     * used, else the blob to parse
+     */
+    public static class DocumentInput {
+
+        protected final String docId;
+
+        protected final Blob blob;
+
+        protected final boolean noteHtml;
+
+        protected final HTMLExtraction stored;
+
+        protected DocumentInput(String docId, Blob blob, boolean noteHtml, HTMLExtraction stored) {
+            this.docId = docId;
+            this.blob = blob;
+            this.noteHtml = noteHtml;
+            this.stored = stored;
+        }
+
+        /**
+         * @return the extraction read from the {@link HTMLExtractedData} of the document, <code>null</code> if the
+         *         html must be parsed
+         */
+        public HTMLExtraction getStored() {
+            return stored;
+        }
+
+        public Blob getBlob() {
+            return blob;
+        }
+
+        /**
+         * Same as {@link HTMLParserService#newParser(DocumentModel, String, HTMLExtractionProfile)}, without accessing
+         * the document
+         */
+        public HTMLParser newParser(HTMLParserService service, HTMLExtractionProfile profile) throws IOException {
+
+            HTMLParser parser = service.newParser(blob, profile);
+            if (noteHtml) {
+                parser.setNoteDigest();
+            }
+            return parser;
+        }
+
+        @Override
+        public String toString() {
+            return "document " + docId;
+        }
+    }
+
+    /**
+     * Reads each document in the calling thread, so the documents are not accessed concurrently: the extraction of
+     * its {@link HTMLExtractedData} if it is fresh and <code>storedExtraction</code> returns one, else its blob (see
+     * {@link HTMLParser#getBlob(DocumentModel, String)}). A document without blob, or whose blob cannot be read, gets
+     * a <code>null</code> input.
+     *
+     * @param inDocs
+     * @param inXPath
+     * @param storedExtraction returns the extraction to use from the stored data, or <code>null</code> if it cannot
+     *            be used. If <code>null</code>, the stored data is not read
+     * @return the list of inputs
+     */
+    public static List<DocumentInput> getInputs(List<DocumentModel> inDocs, String inXPath,
+            Function<HTMLExtractedData, HTMLExtraction> storedExtraction) {
+
+        List<DocumentInput> inputs = new ArrayList<DocumentInput>(inDocs.size());
+        for (DocumentModel doc : inDocs) {
+            DocumentInput input = null;
+            try {
+                HTMLExtractedData data = storedExtraction == null ? null : HTMLExtractedData.getIfFresh(doc, inXPath);
+                HTMLExtraction stored = data == null ? null : storedExtraction.apply(data);
+                if (stored != null) {
+                    input = new DocumentInput(doc.getId(), null, false, stored);
+                } else {
+                    Blob blob = HTMLParser.getBlob(doc, inXPath);
+                    if (blob != null) {
+                        input = new DocumentInput(doc.getId(), blob, HTMLParser.isNoteHtml(doc, inXPath), null);
+                    }
+                }
+            } catch (Exception e) {
+                log.warn("Cannot get the html of document: {}", doc.getId(), e);
+            }
+            inputs.add(input);
+        }
+        return inputs;
+    }
+
+    /**
+     * Returns the JSON array of the results, each of them being already serialized as JSON (<code>null</code> for a
+     * failed input)
+     */
+    public static String toJsonArray(List<String> jsonResults) throws IOException {
+
+        try (HTMLMetrics.Timing timing = HTMLMetrics.time(HTMLMetrics.PHASE_SERIALIZE)) {
+            StringBuilderWriter writer = new StringBuilderWriter();
+            JSONStreamWriter json = new JSONStreamWriter(writer);
+            json.beginArray();
+            for (String result : jsonResults) {
+                json.rawValue(result);
+            }
+            json.endArray();
+            return writer.toString();
+        }
+    }
+}
@@ -0,0 +1,434 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.api.impl.blob.StringBlob;
+import org.nuxeo.html.utils.HTMLExtractor.Facet;
+import org.nuxeo.runtime.api.Framework;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Reads and writes the extraction stored on documents having the <code>HtmlExtracted</code> facet (schema
+ * <code>htmlextracted</code>, prefix <code>htmlx</code>): title, metas, links, digest of the plain text and digest
+ * of the source it was extracted from.
+ * <p>
+ * The data is filled by {@link org.nuxeo.html.utils.listeners.HTMLExtractedListener} and is used by the operations
+ * when their input is a document whose stored data is fresh (its source digest is the digest of the current html),
+ * so they do not read nor parse the html.
+ * <p>
+ * Only the default html of the document is stored (the Note, or <code>file:content</code>). The metas stored are the
+ * ones listed in the <code>nuxeo.html.utils.extracted.metas</code> configuration property (comma separated), or all
+ * the metas if it is empty (default). The list is stored with the data, and so are the link rules (see
+ * {@link LinkRules}): when the property or the rules change, the stored data is not fresh anymore.
+ * <p>
+ * The data is extracted by Jericho, without limit and with the text of the links, whatever the default profile of
+ * {@link HTMLParserService}, so it is never partial.
+ *
+ * @since 2023
+ */
+public class HTMLExtractedData {
+
+    public static final String FACET = "HtmlExtracted";
+
+    public static final String SCHEMA = "htmlextracted";
+
+    public static final String XPATH_TITLE = "htmlx:title";
+
+    public static final String XPATH_METAS = "htmlx:metas";
+
+    public static final String XPATH_LINKS = "htmlx:links";
+
+    public static final String XPATH_TEXT_DIGEST = "htmlx:textDigest";
+
+    public static final String XPATH_SOURCE_DIGEST = "htmlx:sourceDigest";
+
+    public static final String XPATH_META_NAMES = "htmlx:metaNames";
+
+    public static final String XPATH_LINK_RULES = "htmlx:linkRules";
+
+    public static final String METAS_PROPERTY = "nuxeo.html.utils.extracted.metas";
+
+    // MD5 of the html of the Notes. The keys are the String of the html, compared by identity (weak keys): getIfFresh,
+    // needsUpdate, update and the HTMLParser of a call get the same String from the document and hash it once
+    protected static final Cache<String, String> CONTENT_DIGESTS = CacheBuilder.newBuilder()
+                                                                           .weakKeys()
+                                                                           .maximumSize(1000)
+                                                                           .build();
+
+    protected DocumentModel doc;
+
+    // The html the data was extracted from
+    protected Blob blob;
+
+    private HTMLExtractedData(DocumentModel doc, Blob blob) {
+        this.doc = doc;
+        this.blob = blob;
+    }
+
+    /**
+     * Returns the stored data of the document if it is fresh for this xpath, <code>null</code> otherwise (no facet,
+     * not filled yet, html, list of metas to store or link rules modified since, or another blob than the default one
+     * is required)
+     *
+     * @param inDoc
+     * @param inXPath the xpath parameter of the operation
+     * @return the stored data, or <code>null</code>
+     */
+    public static HTMLExtractedData getIfFresh(DocumentModel inDoc, String inXPath) {
+
+        if (!inDoc.hasFacet(FACET) || !isDefaultXPath(inDoc, inXPath)) {
+            return null;
+        }
+
+        String stored = (String) inDoc.getPropertyValue(XPATH_SOURCE_DIGEST);
+        if (StringUtils.isBlank(stored) || !hasCurrentSettings(inDoc)) {
+            return null;
+        }
+
+        Blob blob = HTMLParser.getBlob(inDoc, null);
+        if (blob == null || !stored.equals(getSourceDigest(blob))) {
+            return null;
+        }
+
+        return new HTMLExtractedData(inDoc, blob);
+    }
+
+    protected static boolean isDefaultXPath(DocumentModel inDoc, String inXPath) {
+        return StringUtils.isBlank(inXPath) || (!inDoc.hasSchema("note") && "file:content".equals(inXPath));
+    }
+
+    /**
+     * Returns the digest of the html: the digest of the blob if it has one, else the MD5 of its content (typically,
+     * the html of a Note). The MD5 of a {@link StringBlob} is computed once for its String.
+     *
+     * @param blob
+     * @return the digest
+     */
+    public static String getSourceDigest(Blob blob) {
+
+        if (StringUtils.isNotBlank(blob.getDigest())) {
+            return blob.getDigest();
+        }
+
+        try {
+            if (blob instanceof StringBlob) {
+                return CONTENT_DIGESTS.get(blob.getString(), () -> md5Hex(blob));
+            }
+            return md5Hex(blob);
+        } catch (IOException | ExecutionException e) {
+            throw new NuxeoException("Cannot compute the digest of the html blob", e);
+        }
+    }
+
+    protected static String md5Hex(Blob blob) throws IOException {
+        try (InputStream in = blob.getStream()) {
+            return DigestUtils.md5Hex(in);
+        }
+    }
+
+    /**
+     * Tells if the data was stored with the current list of metas to store and the current link rules
+     */
+    protected static boolean hasCurrentSettings(DocumentModel inDoc) {
+        String metaNames = (String) inDoc.getPropertyValue(XPATH_META_NAMES);
+        String linkRules = (String) inDoc.getPropertyValue(XPATH_LINK_RULES);
+        return StringUtils.defaultString(metaNames).equals(String.join(",", getMetaNames()))
+                && LinkRules.get().toString().equals(linkRules);
+    }
+
+    /**
+     * Tells if the stored data of the document is not the extraction of its current html, or was stored with another
+     * list of metas or other link rules. Always <code>false</code> if the document does not have the facet.
+     *
+     * @param inDoc
+     * @return <code>true</code> if the document must be extracted again
+     */
+    public static boolean needsUpdate(DocumentModel inDoc) {
+
+        if (!inDoc.hasFacet(FACET)) {
+            return false;
+        }
+
+        Blob blob = HTMLParser.getBlob(inDoc, null);
+        String stored = (String) inDoc.getPropertyValue(XPATH_SOURCE_DIGEST);
+        if (blob == null) {
+            return StringUtils.isNotBlank(stored);
+        }
+        return !getSourceDigest(blob).equals(stored) || !hasCurrentSettings(inDoc);
+    }
+
+    /**
+     * Parses the html of the document and stores the result in the document (the document is not saved). If the
+     * document has no html, the stored data is cleared.
+     * <p>
+     * The parser has no limit, includes the text of the links and uses Jericho: the data stored is the full
+     * extraction, whatever the default profile. A partial extraction is never stored.
+     *
+     * @param inDoc
+     * @return <code>false</code> if the extraction was partial and nothing was stored
+     * @throws IOException
+     */
+    public static boolean update(DocumentModel inDoc) throws IOException {
+
+        Blob blob = HTMLParser.getBlob(inDoc, null);
+        if (blob == null) {
+            inDoc.setPropertyValue(XPATH_TITLE, null);
+            inDoc.setPropertyValue(XPATH_METAS, null);
+            inDoc.setPropertyValue(XPATH_LINKS, null);
+            inDoc.setPropertyValue(XPATH_TEXT_DIGEST, null);
+            inDoc.setPropertyValue(XPATH_SOURCE_DIGEST, null);
+            inDoc.setPropertyValue(XPATH_META_NAMES, null);
+            inDoc.setPropertyValue(XPATH_LINK_RULES, null);
+            return true;
+        }
+
+        HTMLParser hp = new HTMLParser(blob).setBudget(new HTMLParseBudget())
+                                            .setLinkTextOptions(true, 0)
+                                            .setEngine(HTMLParser.Engine.JERICHO);
+
+        Set<String> metaNames = getMetaNames();
+        ArrayList<Map<String, Serializable>> metas = new ArrayList<>();
+        for (Map.Entry<String, String> entry : hp.getMetas().entrySet()) {
+            if (metaNames.isEmpty() || metaNames.contains(entry.getKey())) {
+                HashMap<String, Serializable> meta = new HashMap<>();
+                meta.put("name", entry.getKey());
+                meta.put("value", entry.getValue());
+                metas.add(meta);
+            }
+        }
+
+        ArrayList<Map<String, Serializable>> links = new ArrayList<>();
+        for (LinkInfo li : hp.getLinks()) {
+            HashMap<String, Serializable> link = new HashMap<>();
+            link.put("tag", li.getTag());
+            link.put("attribute", li.getAttribute());
+            link.put("text", li.getText());
+            link.put("link", li.getLink());
+            links.add(link);
+        }
+
+        String title = hp.getTitle();
+        String textDigest = DigestUtils.md5Hex(hp.getPlainText(null, false, false, false));
+        if (hp.isTruncated()) {
+            return false;
+        }
+
+        inDoc.setPropertyValue(XPATH_TITLE, title);
+        inDoc.setPropertyValue(XPATH_METAS, metas);
+        inDoc.setPropertyValue(XPATH_LINKS, links);
+        inDoc.setPropertyValue(XPATH_TEXT_DIGEST, textDigest);
+        inDoc.setPropertyValue(XPATH_SOURCE_DIGEST, getSourceDigest(blob));
+        inDoc.setPropertyValue(XPATH_META_NAMES, String.join(",", metaNames));
+        inDoc.setPropertyValue(XPATH_LINK_RULES, hp.getLinkRules().toString());
+        return true;
+    }
+
+    /**
+     * Returns the (lower case) names of the metas to store, empty for all of them
+     */
+    public static Set<String> getMetaNames() {
+
+        Set<String> names = new TreeSet<>();
+        String value = Framework.getRuntime() == null ? null : Framework.getProperty(METAS_PROPERTY);
+        if (StringUtils.isNotBlank(value)) {
+            for (String name : value.split(",")) {
+                if (StringUtils.isNotBlank(name)) {
+                    names.add(name.trim().toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Tells if the value of every meta of the list is stored, so {@link #getMetaValue(String)} returns the same value
+     * as {@link HTMLParser#getMetaValue(String)}
+     */
+    public static boolean hasMetas(List<String> names) {
+
+        Set<String> stored = getMetaNames();
+        if (stored.isEmpty()) {
+            return true;
+        }
+        for (String name : names) {
+            if (!stored.contains(name.toLowerCase(Locale.ROOT))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String getTitle() {
+        String title = (String) doc.getPropertyValue(XPATH_TITLE);
+        return title == null ? "" : title;
+    }
+
+    /**
+     * Same as {@link HTMLParser#getMetas()}, limited to the metas stored
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, String> getMetas() {
+
+        Map<String, String> result = new LinkedHashMap<>();
+        List<Map<String, Serializable>> metas = (List<Map<String, Serializable>>) doc.getPropertyValue(XPATH_METAS);
+        if (metas != null) {
+            for (Map<String, Serializable> meta : metas) {
+                result.put(getString(meta, "name"), getString(meta, "value"));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Same as {@link HTMLParser#getMetaValue(String)}
+     */
+    public String getMetaValue(String key) {
+        String value = getMetas().get(key.toLowerCase(Locale.ROOT));
+        return value == null ? "" : value;
+    }
+
+    /**
+     * Same as {@link HTMLParser#getLinks()} for a parser without limit, including the text of the links
+     */
+    @SuppressWarnings("unchecked")
+    public ArrayList<LinkInfo> getLinks() {
+
+        ArrayList<LinkInfo> result = new ArrayList<LinkInfo>();
+        List<Map<String, Serializable>> links = (List<Map<String, Serializable>>) doc.getPropertyValue(XPATH_LINKS);
+        if (links != null) {
+            for (Map<String, Serializable> link : links) {
+                // The text is always extracted, a link without value is null
+                result.add(new LinkInfo(getString(link, "tag"), getString(link, "attribute"), getString(link, "text"),
+                        (String) link.get("link")));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Same as {@link HTMLExtractor#extract()} for a parser with <code>profile</code>. Returns <code>null</code> when
+     * the stored data cannot give the same result, and the html must be parsed:
+     * <ul>
+     * <li>a facet or a meta is not stored (images and text are never stored)</li>
+     * <li>the engine of the profile is {@link HTMLParser.Engine#FAST} (the data is extracted by Jericho)</li>
+     * <li>the <code>maxInputBytes</code> of the profile is below the size of the html</li>
+     * <li>the metas are requested and the profile has a <code>maxElements</code> (the number of <code>meta</code>
+     * tags read is not stored)</li>
+     * </ul>
+     * The text of the links follows the options of the profile, and the links are limited to its
+     * <code>maxElements</code>, the extraction being truncated when they are.
+     *
+     * @param facets the facets to return
+     * @param metaNames the metas to return
+     * @param filter the links to return, can be <code>null</code>
+     * @param profile
+     * @return the extraction, or <code>null</code>
+     */
+    public HTMLExtraction getExtraction(Set<Facet> facets, List<String> metaNames, LinkFilter filter,
+            HTMLExtractionProfile profile) {
+
+        if (facets.contains(Facet.IMAGES) || facets.contains(Facet.TEXT)
+                || (facets.contains(Facet.METAS) && (!hasMetas(metaNames) || profile.getMaxElements() > 0))
+                || profile.getEngine() == HTMLParser.Engine.FAST || isInputTooLarge(profile)) {
+            return null;
+        }
+
+        HTMLExtraction result = new HTMLExtraction(facets);
+        if (result.has(Facet.TITLE)) {
+            result.title = getTitle();
+        }
+        if (result.has(Facet.METAS)) {
+            Map<String, String> metas = getMetas();
+            for (String name : metaNames) {
+                String value = metas.get(name.toLowerCase(Locale.ROOT));
+                result.metas.put(name, value == null ? "" : value);
+            }
+        }
+        if (result.has(Facet.LINKS)) {
+            List<LinkInfo> links = filter == null ? getLinks() : filter.filter(getLinks());
+            long max = profile.getMaxElements();
+            if (max > 0 && links.size() > max) {
+                links = links.subList(0, (int) max);
+                result.truncated = true;
+            }
+            for (LinkInfo li : links) {
+                result.links.add(applyTextOptions(li, profile));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Same as {@link #getExtraction(Set, List, LinkFilter, HTMLExtractionProfile)}, for all the links
+     */
+    public HTMLExtraction getExtraction(Set<Facet> facets, List<String> metaNames, HTMLExtractionProfile profile) {
+        return getExtraction(facets, metaNames, null, profile);
+    }
+
+    // A blob of unknown length may be too large
+    protected boolean isInputTooLarge(HTMLExtractionProfile profile) {
+        long max = profile.getMaxInputBytes();
+        return max > 0 && (blob.getLength() < 0 || blob.getLength() > max);
+    }
+
+    /**
+     * Returns the link with its text as {@link HTMLParser#getLinkText} extracts it with the options of the profile
+     */
+    protected static LinkInfo applyTextOptions(LinkInfo li, HTMLExtractionProfile profile) {
+
+        if (!profile.isIncludeLinkText()) {
+            return new LinkInfo(li.getTag(), li.getAttribute(), null, li.getLink());
+        }
+        if (profile.getMaxLinkTextLength() > 0) {
+            String text = StringUtils.stripEnd(StringUtils.left(li.getText(), profile.getMaxLinkTextLength()), null);
+            return new LinkInfo(li.getTag(), li.getAttribute(), text, li.getLink());
+        }
+        return li;
+    }
+
+    // Empty strings may be stored as null
+    protected static String getString(Map<String, Serializable> map, String key) {
+        String value = (String) map.get(key);
+        return value == null ? "" : value;
+    }
+
+    public String getTextDigest() {
+        return (String) doc.getPropertyValue(XPATH_TEXT_DIGEST);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.nuxeo.html.utils.HTMLExtractor.Facet;
+
+/**
+ * The result of an {@link HTMLExtractor} run. Only the facets that were requested are filled, the others stay
+ * <code>null</code>.
+ *
+ * @since 2023
+ */
+public class HTMLExtraction {
+
+    protected Set<Facet> facets;
+
+    protected String title;
+
+    protected Map<String, String> metas;
+
+    protected List<LinkInfo> links;
+
+    protected List<String> imgSrc;
+
+    protected String plainText;
+
+    protected boolean truncated;
+
+    public HTMLExtraction(Set<Facet> facets) {
+        this.facets = facets.isEmpty() ? EnumSet.noneOf(Facet.class) : EnumSet.copyOf(facets);
+        if (has(Facet.METAS)) {
+            metas = new LinkedHashMap<String, String>();
+        }
+        if (has(Facet.LINKS)) {
+            links = new ArrayList<LinkInfo>();
+        }
+        if (has(Facet.IMAGES)) {
+            imgSrc = new ArrayList<String>();
+        }
+    }
+
+    public boolean has(Facet facet) {
+        return facets.contains(facet);
+    }
+
+    public Set<Facet> getFacets() {
+        return facets;
+    }
+
+    /**
+     * @return the title, "" if there is no title, <code>null</code> if the title was not requested
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * @return the requested metas, in the order they were requested. A meta not found in the HTML has a "" value
+     */
+    public Map<String, String> getMetas() {
+        return metas;
+    }
+
+    public List<LinkInfo> getLinks() {
+        return links;
+    }
+
+    public List<String> getImgSrc() {
+        return imgSrc;
+    }
+
+    public String getPlainText() {
+        return plainText;
+    }
+
+    /**
+     * @return <code>true</code> if a limit of the {@link HTMLParseBudget} was reached: the values are partial
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * @return a copy whose metas, links and images cannot be modified, to be shared (see {@link HTMLParserCache})
+     * @since 2023
+     */
+    public HTMLExtraction toUnmodifiable() {
+
+        HTMLExtraction result = new HTMLExtraction(facets);
+        result.title = title;
+        result.metas = metas == null ? null : Collections.unmodifiableMap(metas);
+        result.links = links == null ? null : Collections.unmodifiableList(links);
+        result.imgSrc = imgSrc == null ? null : Collections.unmodifiableList(imgSrc);
+        result.plainText = plainText;
+        result.truncated = truncated;
+        return result;
+    }
+
+}
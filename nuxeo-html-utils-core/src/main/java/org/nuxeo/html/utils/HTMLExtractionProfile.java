@@ -0,0 +1,196 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * The settings of an extraction: budget (see {@link HTMLParseBudget}), text of the links, rendering of the plain
+ * text and engine (see {@link HTMLParser.Engine}). Profiles are contributed to {@link HTMLParserService} and applied
+ * to the parsers it creates.
+ * <p>
+ * A profile is immutable, so it can be shared by every thread: the <code>with*</code> methods return a copy with some
+ * values overridden, typically by the parameters of an operation.
+ *
+ * @since 2023
+ */
+public class HTMLExtractionProfile {
+
+    public static final String DEFAULT_LINE_SEPARATOR = "\n";
+
+    protected final String name;
+
+    protected final long maxInputBytes;
+
+    protected final long maxElements;
+
+    protected final long maxOutputChars;
+
+    protected final long timeout;
+
+    protected final boolean includeLinkText;
+
+    protected final int maxLinkTextLength;
+
+    protected final String lineSeparator;
+
+    protected final boolean includeHyperlinkURLs;
+
+    protected final boolean includeAlternateText;
+
+    protected final boolean convertNonBreakingSpaces;
+
+    protected final HTMLParser.Engine engine;
+
+    public HTMLExtractionProfile(String name, long maxInputBytes, long maxElements, long maxOutputChars, long timeout,
+            boolean includeLinkText, int maxLinkTextLength, String lineSeparator, boolean includeHyperlinkURLs,
+            boolean includeAlternateText, boolean convertNonBreakingSpaces, HTMLParser.Engine engine) {
+        this.name = name;
+        this.maxInputBytes = maxInputBytes;
+        this.maxElements = maxElements;
+        this.maxOutputChars = maxOutputChars;
+        this.timeout = timeout;
+        this.includeLinkText = includeLinkText;
+        this.maxLinkTextLength = maxLinkTextLength;
+        this.lineSeparator = StringUtils.isEmpty(lineSeparator) ? DEFAULT_LINE_SEPARATOR : lineSeparator;
+        this.includeHyperlinkURLs = includeHyperlinkURLs;
+        this.includeAlternateText = includeAlternateText;
+        this.convertNonBreakingSpaces = convertNonBreakingSpaces;
+        this.engine = engine == null ? HTMLParser.Engine.AUTO : engine;
+    }
+
+    /**
+     * @return the profile used when none is contributed: the budget of the <code>nuxeo.html.utils.budget.*</code>
+     *         configuration properties, the text of the links, the default rendering and engine
+     */
+    public static HTMLExtractionProfile getDefault() {
+
+        HTMLParseBudget budget = HTMLParseBudget.getDefault();
+        return new HTMLExtractionProfile(HTMLParserService.DEFAULT_PROFILE, budget.getMaxInputBytes(),
+                budget.getMaxElements(), budget.getMaxOutputChars(), budget.getTimeout(), true, 0,
+                DEFAULT_LINE_SEPARATOR, false, false, false, HTMLParser.Engine.AUTO);
+    }
+
+    /**
+     * @return a new budget with the limits of the profile, its timeout started
+     */
+    public HTMLParseBudget newBudget() {
+        return new HTMLParseBudget().setMaxInputBytes(maxInputBytes)
+                                    .setMaxElements(maxElements)
+                                    .setMaxOutputChars(maxOutputChars)
+                                    .setTimeout(timeout);
+    }
+
+    /**
+     * Returns a copy of the profile, each value &gt; 0 replacing the one of the profile
+     */
+    public HTMLExtractionProfile withBudget(long maxInputBytes, long maxElements, long maxOutputChars, long timeout) {
+        return new HTMLExtractionProfile(name, maxInputBytes > 0 ? maxInputBytes : this.maxInputBytes,
+                maxElements > 0 ? maxElements : this.maxElements,
+                maxOutputChars > 0 ? maxOutputChars : this.maxOutputChars, timeout > 0 ? timeout : this.timeout,
+                includeLinkText, maxLinkTextLength, lineSeparator, includeHyperlinkURLs, includeAlternateText,
+                convertNonBreakingSpaces, engine);
+    }
+
+    /**
+     * Returns a copy of the profile, each value not <code>null</code> replacing the one of the profile
+     */
+    public HTMLExtractionProfile withLinkText(Boolean includeLinkText, Integer maxLinkTextLength) {
+        return new HTMLExtractionProfile(name, maxInputBytes, maxElements, maxOutputChars, timeout,
+                includeLinkText != null ? includeLinkText : this.includeLinkText,
+                maxLinkTextLength != null ? maxLinkTextLength : this.maxLinkTextLength, lineSeparator,
+                includeHyperlinkURLs, includeAlternateText, convertNonBreakingSpaces, engine);
+    }
+
+    /**
+     * Returns a copy of the profile, each value not <code>null</code> (not empty for the line separator) replacing the
+     * one of the profile
+     */
+    public HTMLExtractionProfile withPlainTextOptions(String lineSeparator, Boolean includeHyperlinkURLs,
+            Boolean includeAlternateText, Boolean convertNonBreakingSpaces) {
+        return new HTMLExtractionProfile(name, maxInputBytes, maxElements, maxOutputChars, timeout, includeLinkText,
+                maxLinkTextLength, StringUtils.isEmpty(lineSeparator) ? this.lineSeparator : lineSeparator,
+                includeHyperlinkURLs != null ? includeHyperlinkURLs : this.includeHyperlinkURLs,
+                includeAlternateText != null ? includeAlternateText : this.includeAlternateText,
+                convertNonBreakingSpaces != null ? convertNonBreakingSpaces : this.convertNonBreakingSpaces, engine);
+    }
+
+    /**
+     * Returns a copy of the profile, using <code>engine</code> if it is not blank
+     *
+     * @param engine the name of a {@link HTMLParser.Engine}
+     */
+    public HTMLExtractionProfile withEngine(String engine) {
+
+        if (StringUtils.isBlank(engine)) {
+            return this;
+        }
+        return new HTMLExtractionProfile(name, maxInputBytes, maxElements, maxOutputChars, timeout, includeLinkText,
+                maxLinkTextLength, lineSeparator, includeHyperlinkURLs, includeAlternateText, convertNonBreakingSpaces,
+                HTMLParser.Engine.parse(engine));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getMaxInputBytes() {
+        return maxInputBytes;
+    }
+
+    public long getMaxElements() {
+        return maxElements;
+    }
+
+    public long getMaxOutputChars() {
+        return maxOutputChars;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    public boolean isIncludeLinkText() {
+        return includeLinkText;
+    }
+
+    public int getMaxLinkTextLength() {
+        return maxLinkTextLength;
+    }
+
+    public String getLineSeparator() {
+        return lineSeparator;
+    }
+
+    public boolean isIncludeHyperlinkURLs() {
+        return includeHyperlinkURLs;
+    }
+
+    public boolean isIncludeAlternateText() {
+        return includeAlternateText;
+    }
+
+    public boolean isConvertNonBreakingSpaces() {
+        return convertNonBreakingSpaces;
+    }
+
+    public HTMLParser.Engine getEngine() {
+        return engine;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils;
+
+import org.nuxeo.common.xmap.annotation.XNode;
+import org.nuxeo.common.xmap.annotation.XObject;
+import org.nuxeo.runtime.model.Descriptor;
+
+/**
+ * An extraction profile contributed to the <code>profiles</code> extension point of {@link HTMLParserComponent}. The
+ * values not set are the ones of the default profile (see {@link HTMLExtractionProfile#getDefault()}).
+ *
+ * <pre>
+ * &lt;profile name="crawler"&gt;
+ *   &lt;maxInputBytes&gt;10000000&lt;/maxInputBytes&gt;
+ *   &lt;timeout&gt;2000&lt;/timeout&gt;
+ *   &lt;includeLinkText&gt;false&lt;/includeLinkText&gt;
+ * &lt;/profile&gt;
+ * </pre>
+ *
+ * @since 2023
+ */
+@XObject("profile")
+public class HTMLExtractionProfileDescriptor implements Descriptor {
+
+    @XNode("@name")
+    protected String name;
+
+    @XNode("maxInputBytes")
+    protected Long maxInputBytes;
+
+    @XNode("maxElements")
+    protected Long maxElements;
+
+    @XNode("maxOutputChars")
+    protected Long maxOutputChars;
+
+    @XNode("timeout")
+    protected Long timeout;
+
+    @XNode("includeLinkText")
+    protected Boolean includeLinkText;
+
+    @XNode("maxLinkTextLength")
+    protected Integer maxLinkTextLength;
+
+    @XNode("lineSeparator")
+    protected String lineSeparator;
+
+    @XNode("includeHyperlinkURLs")
+    protected Boolean includeHyperlinkURLs;
+
+    @XNode("includeAlternateText")
+    protected Boolean includeAlternateText;
+
+    @XNode("convertNonBreakingSpaces")
+    protected Boolean convertNonBreakingSpaces;
+
+    @XNode("engine")
+    protected String engine;
+
+    @Override
+    public String getId() {
+        return name;
+    }
+
+    /**
+     * @param defaults the values used when they are not set in the descriptor
+     * @return the immutable profile
+     */
+    public HTMLExtractionProfile toProfile(HTMLExtractionProfile defaults) {
+        return new HTMLExtractionProfile(name,
+                maxInputBytes == null ? defaults.getMaxInputBytes() : maxInputBytes.longValue(),
+                maxElements == null ? defaults.getMaxElements() : maxElements.longValue(),
+                maxOutputChars == null ? defaults.getMaxOutputChars() : maxOutputChars.longValue(),
+                timeout == null ? defaults.getTimeout() : timeout.longValue(),
+                includeLinkText == null ? defaults.isIncludeLinkText() : includeLinkText.booleanValue(),
+                maxLinkTextLength == null ? defaults.getMaxLinkTextLength() : maxLinkTextLength.intValue(),
+                lineSeparator == null ? defaults.getLineSeparator() : lineSeparator,
+                includeHyperlinkURLs == null ? defaults.isIncludeHyperlinkURLs() : includeHyperlinkURLs.booleanValue(),
+                includeAlternateText == null ? defaults.isIncludeAlternateText() : includeAlternateText.booleanValue(),
+                convertNonBreakingSpaces == null ? defaults.isConvertNonBreakingSpaces()
+                        : convertNonBreakingSpaces.booleanValue(),
+                engine == null ? defaults.getEngine() : HTMLParser.Engine.parse(engine));
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.io.output.StringBuilderWriter;
+import org.apache.commons.lang3.StringUtils;
+
+import net.htmlparser.jericho.Attributes;
+import net.htmlparser.jericho.CharacterReference;
+import net.htmlparser.jericho.Element;
+import net.htmlparser.jericho.HTMLElementName;
+import net.htmlparser.jericho.Renderer;
+import net.htmlparser.jericho.StartTag;
+
+/**
+ * Collects several kinds of information (title, metas, links, images, plain text) from the same html source with
+ * a single parse and a single walk over the start tags, instead of one scan per {@link HTMLParser} getter.
+ * <p>
+ * The results are the same as the ones returned by the corresponding {@link HTMLParser} methods, and are cached the
+ * same way in the {@link HTMLParserCache}. A cached {@link HTMLExtraction} is shared and must not be modified.
+ *
+ * @since 2023
+ */
+public class HTMLExtractor {
+
+    /**
+     * The kinds of information an extraction can return
+     */
+    public enum Facet {
+        TITLE, METAS, LINKS, IMAGES, TEXT;
+
+        /**
+         * Parses a comma-separated list of facet names (case insensitive). A blank list means all the facets.
+         *
+         * @param inList
+         * @return the set of facets
+         * @throws IllegalArgumentException if a name is not a facet
+         */
+        public static Set<Facet> parse(String inList) {
+
+            if (StringUtils.isBlank(inList)) {
+                return EnumSet.allOf(Facet.class);
+            }
+
+            Set<Facet> facets = EnumSet.noneOf(Facet.class);
+            for (String name : inList.split(",")) {
+                name = name.trim();
+                if (!name.isEmpty()) {
+                    facets.add(Facet.valueOf(name.toUpperCase()));
+                }
+            }
+            return facets;
+        }
+    }
+
+    protected HTMLParser parser;
+
+    protected Set<Facet> facets = EnumSet.allOf(Facet.class);
+
+    protected List<String> metaNames = Collections.emptyList();
+
+    protected String lineSeparator = "\n";
+
+    protected boolean includeHyperlinkURLs = false;
+
+    protected boolean includeAlternateText = false;
+
+    protected boolean convertNonBreakingSpaces = false;
+
+    // Set when a limit of the budget was reached by the last walk/render of this extractor. Not the flag of the
+    // parser, which may come from another call on the same parser
+    protected boolean truncated = false;
+
+    public HTMLExtractor(HTMLParser parser) {
+        this.parser = parser;
+    }
+
+    public HTMLExtractor setFacets(Set<Facet> facets) {
+        this.facets = facets;
+        return this;
+    }
+
+    /**
+     * @param metaNames the names of the <code>meta</code> tags whose content must be returned with
+     *            {@link Facet#METAS}
+     */
+    public HTMLExtractor setMetaNames(List<String> metaNames) {
+        this.metaNames = metaNames == null ? Collections.emptyList() : metaNames;
+        return this;
+    }
+
+    /**
+     * Same parameters as {@link HTMLParser#getPlainText(String, boolean, boolean, boolean)}, used with
+     * {@link Facet#TEXT}
+     */
+    public HTMLExtractor setPlainTextOptions(String lineSeparator, boolean includeHyperlinkURLs,
+            boolean includeAlternateText, boolean convertNonBreakingSpaces) {
+        this.lineSeparator = StringUtils.isBlank(lineSeparator) ? "\n" : lineSeparator;
+        this.includeHyperlinkURLs = includeHyperlinkURLs;
+        this.includeAlternateText = includeAlternateText;
+        this.convertNonBreakingSpaces = convertNonBreakingSpaces;
+        return this;
+    }
+
+    public HTMLExtraction extract() {
+
+        String key = parser.getTagsCacheKey("extract", facets, metaNames, lineSeparator, includeHyperlinkURLs,
+                includeAlternateText, convertNonBreakingSpaces, parser.getLinkRules(), parser.includeLinkText,
+                parser.maxLinkTextLength);
+        return limit(HTMLParserCache.getInstance().get(key, this::doExtract, () -> !truncated));
+    }
+
+    /**
+     * Returns the extraction within the limits of the budget of the parser (a cached extraction may come from a parser
+     * without limit)
+     */
+    protected HTMLExtraction limit(HTMLExtraction extraction) {
+
+        HTMLParseBudget budget = parser.getBudget();
+        long maxChars = budget.getMaxOutputChars();
+        boolean overLinks = extraction.links != null && budget.isOverElements(extraction.links.size());
+        boolean overImages = extraction.imgSrc != null && budget.isOverElements(extraction.imgSrc.size());
+        boolean overText = extraction.plainText != null && maxChars > 0 && extraction.plainText.length() > maxChars;
+        if (!overLinks && !overImages && !overText) {
+            return extraction;
+        }
+
+        // Do not modify the cached extraction
+        HTMLExtraction result = new HTMLExtraction(extraction.facets);
+        result.title = extraction.title;
+        if (extraction.metas != null) {
+            result.metas.putAll(extraction.metas);
+        }
+        if (extraction.links != null) {
+            result.links = parser.limitElements(extraction.links);
+        }
+        if (extraction.imgSrc != null) {
+            result.imgSrc = parser.limitElements(extraction.imgSrc);
+        }
+        if (extraction.plainText != null) {
+            result.plainText = parser.limitOutput(extraction.plainText);
+        }
+        result.truncated = true;
+        return result;
+    }
+
+    protected HTMLExtraction doExtract() {
+
+        HTMLExtraction result = new HTMLExtraction(facets);
+        HTMLParseBudget budget = parser.getBudget();
+        truncated = false;
+
+        if (result.has(Facet.METAS)) {
+            for (String name : metaNames) {
+                result.metas.put(name, "");
+            }
+        }
+
+        boolean wantTitle = result.has(Facet.TITLE);
+        boolean wantMetas = result.has(Facet.METAS) && !metaNames.isEmpty();
+        boolean wantLinks = result.has(Facet.LINKS);
+        boolean wantImages = result.has(Facet.IMAGES);
+
+        if (wantTitle || wantMetas || wantLinks || wantImages) {
+            // One list per rule so links are returned in the same order as HTMLParser#getLinks
+            LinkRules linkRules = parser.getLinkRules();
+            List<List<LinkInfo>> linksByRule = new ArrayList<List<LinkInfo>>();
+            for (int i = 0; i < linkRules.size(); i++) {
+                linksByRule.add(new ArrayList<LinkInfo>());
+            }
+            Map<String, String> metaIndex = new HashMap<String, String>();
+            int[] metaCount = { 0 };
+            int[] linkCount = { 0 };
+
+            boolean needsText = result.has(Facet.TEXT) || (wantLinks && parser.includeLinkText);
+            if (!needsText && parser.useFastScanner()) {
+                parser.scanTags(tag -> {
+                    if (budget.isExpired()) {
+                        setTruncated();
+                        return false;
+                    }
+                    String name = tag.getName();
+
+                    if (wantTitle && result.title == null && HTMLElementName.TITLE.equals(name)) {
+                        result.title = CharacterReference.decodeCollapseWhiteSpace(tag.getContent());
+                    }
+
+                    if (wantMetas && HTMLElementName.META.equals(name) && isMetaInBudget(metaCount)) {
+                        HTMLParser.indexMeta(tag::getAttributeValue, metaIndex);
+                    }
+
+                    if (wantLinks) {
+                        linkRules.forEachLink(tag, null, (rule, attr, link) -> {
+                            if (budget.isOverElements(linkCount[0] + 1)) {
+                                setTruncated();
+                                return;
+                            }
+                            linkCount[0]++;
+                            linksByRule.get(rule).add(new LinkInfo(name, attr, null, link));
+                        });
+                    }
+
+                    if (wantImages && HTMLElementName.IMG.equals(name)) {
+                        addImage(result, tag.getAttributeValue("src"));
+                    }
+                    return true;
+                });
+            } else {
+                List<StartTag> startTags = parser.getParsedSource().getAllStartTags();
+                HTMLMetrics.countElements(startTags.size());
+                for (StartTag startTag : startTags) {
+                    if (budget.isExpired()) {
+                        setTruncated();
+                        break;
+                    }
+                    Attributes attributes = startTag.getAttributes();
+                    if (attributes == null) {
+                        // Comments, doctype, ...
+                        continue;
+                    }
+                    String name = startTag.getName();
+
+                    if (wantTitle && result.title == null && HTMLElementName.TITLE.equals(name)) {
+                        // TITLE element never contains other tags so just decode it collapsing whitespace:
+                        result.title = CharacterReference.decodeCollapseWhiteSpace(startTag.getElement().getContent());
+                    }
+
+                    if (wantMetas && HTMLElementName.META.equals(name) && isMetaInBudget(metaCount)) {
+                        HTMLParser.indexMeta(startTag, metaIndex);
+                    }
+
+                    if (wantLinks) {
+                        linkRules.forEachLink(startTag, (rule, attr, link) -> {
+                            if (budget.isOverElements(linkCount[0] + 1)) {
+                                setTruncated();
+                                return;
+                            }
+                            linkCount[0]++;
+                            String text = parser.getLinkText(startTag.getElement());
+                            linksByRule.get(rule).add(new LinkInfo(name, attr, text, link));
+                        });
+                    }
+
+                    if (wantImages && HTMLElementName.IMG.equals(name)) {
+                        addImage(result, startTag.getAttributeValue("src"));
+                    }
+                }
+            }
+
+            if (wantMetas) {
+                for (String key : metaNames) {
+                    String value = metaIndex.get(key.toLowerCase(Locale.ROOT));
+                    result.metas.put(key, value == null ? "" : value);
+                }
+            }
+
+            if (wantLinks) {
+                for (List<LinkInfo> links : linksByRule) {
+                    result.links.addAll(links);
+                }
+                HTMLMetrics.countLinks(result.links.size());
+            }
+        }
+
+        if (wantTitle && result.title == null) {
+            result.title = "";
+        }
+
+        if (result.has(Facet.TEXT)) {
+            Renderer renderer = parser.getParsedSource().getRenderer();
+
+            renderer.setIncludeHyperlinkURLs(includeHyperlinkURLs);
+            renderer.setIncludeAlternateText(includeAlternateText);
+            renderer.setConvertNonBreakingSpaces(convertNonBreakingSpaces);
+
+            renderer.setDecorateFontStyles(false);
+            renderer.setMaxLineLength(Integer.MAX_VALUE);
+
+            renderer.setNewLine(lineSeparator);
+
+            StringBuilderWriter writer = new StringBuilderWriter();
+            if (!parser.renderTo(renderer, writer)) {
+                setTruncated();
+            }
+            result.plainText = writer.toString();
+        }
+
+        // A source cut to maxInputBytes, read now or by a previous call, is partial for this extraction too
+        if (parser.inputTruncated) {
+            truncated = true;
+        }
+        result.truncated = truncated;
+        return result;
+    }
+
+    protected void setTruncated() {
+        truncated = true;
+        parser.truncated = true;
+    }
+
+    // Same limit as HTMLParser#getMetas
+    protected boolean isMetaInBudget(int[] metaCount) {
+
+        if (parser.getBudget().isOverElements(++metaCount[0])) {
+            setTruncated();
+            return false;
+        }
+        return true;
+    }
+
+    protected void addImage(HTMLExtraction result, String src) {
+
+        if (StringUtils.isNotBlank(src)) {
+            if (parser.getBudget().isOverElements(result.imgSrc.size() + 1)) {
+                setTruncated();
+            } else {
+                result.imgSrc.add(src);
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils;
+
+import org.nuxeo.runtime.api.Framework;
+
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+import io.dropwizard.metrics5.Timer;
+
+/**
+ * Timers, counters and histograms of the html parsing, registered in the Nuxeo metric registry, so they are reported
+ * with the other Nuxeo metrics:
+ * <ul>
+ * <li><code>nuxeo.html.operation</code> (timer, tag <code>operation</code>): total duration of each operation</li>
+ * <li><code>nuxeo.html.phase</code> (timer, tag <code>phase</code>): duration of each phase, see the
+ * <code>PHASE_*</code> constants</li>
+ * <li><code>nuxeo.html.input.chars</code> (counter): number of characters read and parsed</li>
+ * <li><code>nuxeo.html.elements</code> (counter): number of elements visited</li>
+ * <li><code>nuxeo.html.links</code> (counter): number of links returned</li>
+ * <li><code>nuxeo.html.output.size</code> (histogram, tag <code>operation</code>): number of characters returned by
+ * each operation</li>
+ * </ul>
+ * Setting the <code>nuxeo.html.utils.metrics.enabled</code> configuration property to <code>false</code> disables
+ * them: every method then returns immediately. The property and the registry are read when the
+ * {@link HTMLParserComponent} starts (so again after a reload of the configuration); nothing is recorded before.
+ *
+ * @since 2023
+ */
+public class HTMLMetrics {
+
+    public static final String ENABLED_PROPERTY = "nuxeo.html.utils.metrics.enabled";
+
+    // Name of the registry of org.nuxeo.runtime.metrics.MetricsService
+    public static final String REGISTRY_NAME = "org.nuxeo.runtime.metrics.MetricsService";
+
+    public static final String PHASE_READ = "read";
+
+    public static final String PHASE_PARSE = "parse";
+
+    public static final String PHASE_LINKS = "links";
+
+    public static final String PHASE_RENDER = "render";
+
+    public static final String PHASE_SERIALIZE = "serialize";
+
+    protected static final MetricName OPERATION_TIMER = MetricName.build("nuxeo.html.operation");
+
+    protected static final MetricName PHASE_TIMER = MetricName.build("nuxeo.html.phase");
+
+    protected static final MetricName INPUT_CHARS = MetricName.build("nuxeo.html.input.chars");
+
+    protected static final MetricName ELEMENTS = MetricName.build("nuxeo.html.elements");
+
+    protected static final MetricName LINKS = MetricName.build("nuxeo.html.links");
+
+    protected static final MetricName OUTPUT_SIZE = MetricName.build("nuxeo.html.output.size");
+
+    protected static final Timing NO_TIMING = new Timing(null);
+
+    // null when the metrics are disabled
+    protected static volatile MetricRegistry registry;
+
+    /**
+     * A running timer, to use in a try-with-resources
+     */
+    public static class Timing implements AutoCloseable {
+
+        protected final Timer.Context context;
+
+        protected Timing(Timer.Context context) {
+            this.context = context;
+        }
+
+        @Override
+        public void close() {
+            if (context != null) {
+                context.stop();
+            }
+        }
+    }
+
+    private HTMLMetrics() {
+        // static only
+    }
+
+    /**
+     * Reads the configuration and resolves the registry, called when the {@link HTMLParserComponent} starts
+     */
+    public static void start() {
+        boolean enabled = Framework.getRuntime() != null && !Framework.isBooleanPropertyFalse(ENABLED_PROPERTY);
+        registry = enabled ? SharedMetricRegistries.getOrCreate(REGISTRY_NAME) : null;
+    }
+
+    /**
+     * Stops recording, called when the {@link HTMLParserComponent} stops
+     */
+    public static void stop() {
+        registry = null;
+    }
+
+    public static boolean isEnabled() {
+        return registry != null;
+    }
+
+    /**
+     * Starts timing a phase (see the <code>PHASE_*</code> constants)
+     */
+    public static Timing time(String phase) {
+        MetricRegistry current = registry;
+        if (current == null) {
+            return NO_TIMING;
+        }
+        return new Timing(current.timer(PHASE_TIMER.tagged("phase", phase)).time());
+    }
+
+    /**
+     * Starts timing an operation
+     */
+    public static Timing timeOperation(String operationId) {
+        MetricRegistry current = registry;
+        if (current == null) {
+            return NO_TIMING;
+        }
+        return new Timing(current.timer(OPERATION_TIMER.tagged("operation", operationId)).time());
+    }
+
+    public static void countInputChars(long count) {
+        MetricRegistry current = registry;
+        if (current != null) {
+            current.counter(INPUT_CHARS).inc(count);
+        }
+    }
+
+    public static void countElements(long count) {
+        MetricRegistry current = registry;
+        if (current != null) {
+            current.counter(ELEMENTS).inc(count);
+        }
+    }
+
+    public static void countLinks(long count) {
+        MetricRegistry current = registry;
+        if (current != null) {
+            current.counter(LINKS).inc(count);
+        }
+    }
+
+    /**
+     * Records the size of the output of an operation and returns it, for convenience
+     */
+    public static String recordOutput(String operationId, String output) {
+        MetricRegistry current = registry;
+        if (current != null && output != null) {
+            current.histogram(OUTPUT_SIZE.tagged("operation", operationId)).update(output.length());
+        }
+        return output;
+    }
+
+    /**
+     * Records the size of the output of an operation returning a blob (in bytes)
+     */
+    public static void recordOutput(String operationId, long length) {
+        MetricRegistry current = registry;
+        if (current != null) {
+            current.histogram(OUTPUT_SIZE.tagged("operation", operationId)).update(length);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.runtime.api.Framework;
+
+/**
+ * Limits of the work done by an {@link HTMLParser}, so a pathological html cannot hold a thread for minutes:
+ * <ul>
+ * <li><code>maxInputBytes</code>: only the beginning of the input is read (characters for a String input)</li>
+ * <li><code>maxElements</code>: maximum number of elements (links, images, tags) collected</li>
+ * <li><code>maxOutputChars</code>: maximum number of characters of the plain text</li>
+ * <li><code>timeout</code>: milliseconds after which the extraction stops. It is started when the budget is given to
+ * the parser, and checked between elements and while rendering the text (the parsing of the input itself cannot be
+ * interrupted, limit its size with <code>maxInputBytes</code>).</li>
+ * </ul>
+ * When a limit is reached, the extraction stops and returns what it got so far, and the parser is marked as
+ * truncated (see {@link HTMLParser#isTruncated()}). 0 means no limit. The default values are read from the
+ * <code>nuxeo.html.utils.budget.*</code> configuration properties when the {@link HTMLParserComponent} starts (no
+ * limit by default).
+ *
+ * @since 2023
+ */
+public class HTMLParseBudget {
+
+    private static final Logger log = LogManager.getLogger(HTMLParseBudget.class);
+
+    public static final String MAX_INPUT_BYTES_PROPERTY = "nuxeo.html.utils.budget.maxInputBytes";
+
+    public static final String MAX_ELEMENTS_PROPERTY = "nuxeo.html.utils.budget.maxElements";
+
+    public static final String MAX_OUTPUT_CHARS_PROPERTY = "nuxeo.html.utils.budget.maxOutputChars";
+
+    public static final String TIMEOUT_PROPERTY = "nuxeo.html.utils.budget.timeout";
+
+    /**
+     * The operation context variable set to <code>true</code> by the operations when the result is truncated
+     */
+    public static final String TRUNCATED_CONTEXT_VARIABLE = "htmlTruncated";
+
+    // maxInputBytes, maxElements, maxOutputChars and timeout of getDefault(), replaced as a whole
+    protected static volatile long[] defaults = new long[4];
+
+    protected long maxInputBytes;
+
+    protected long maxElements;
+
+    protected long maxOutputChars;
+
+    protected long timeout;
+
+    // System.nanoTime() value, 0 if no timeout
+    protected long deadline;
+
+    /**
+     * Thrown by the writers and handlers of the parser when a limit is reached, to stop the extraction
+     */
+    public static class ExceededException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        public ExceededException() {
+            super("Parse budget exceeded");
+        }
+    }
+
+    public HTMLParseBudget() {
+        // no limit
+    }
+
+    /**
+     * Reads the configured limits, used by {@link #getDefault()}. Called by
+     * {@link HTMLParserComponent#start(org.nuxeo.runtime.model.ComponentContext)}: a property modified after is not
+     * used. An invalid value is logged and ignored.
+     */
+    public static void readDefaults() {
+        defaults = new long[] { getLongProperty(MAX_INPUT_BYTES_PROPERTY, 0), getLongProperty(MAX_ELEMENTS_PROPERTY, 0),
+                getLongProperty(MAX_OUTPUT_CHARS_PROPERTY, 0), getLongProperty(TIMEOUT_PROPERTY, 0) };
+    }
+
+    /**
+     * Resets the configured limits (no limit), when the component stops
+     */
+    public static void resetDefaults() {
+        defaults = new long[4];
+    }
+
+    /**
+     * @return a budget with the configured limits, see {@link #readDefaults()}
+     */
+    public static HTMLParseBudget getDefault() {
+        long[] values = defaults;
+        return new HTMLParseBudget().setMaxInputBytes(values[0])
+                                    .setMaxElements(values[1])
+                                    .setMaxOutputChars(values[2])
+                                    .setTimeout(values[3]);
+    }
+
+    /**
+     * Returns the configured budget, each value &gt; 0 replacing the configured one. Used by the operations.
+     */
+    public static HTMLParseBudget of(long maxInputBytes, long maxElements, long maxOutputChars, long timeout) {
+
+        HTMLParseBudget budget = getDefault();
+        if (maxInputBytes > 0) {
+            budget.setMaxInputBytes(maxInputBytes);
+        }
+        if (maxElements > 0) {
+            budget.setMaxElements(maxElements);
+        }
+        if (maxOutputChars > 0) {
+            budget.setMaxOutputChars(maxOutputChars);
+        }
+        if (timeout > 0) {
+            budget.setTimeout(timeout);
+        }
+        return budget;
+    }
+
+    protected static long getLongProperty(String name, long defaultValue) {
+
+        String value = Framework.getRuntime() == null ? null : Framework.getProperty(name);
+        if (StringUtils.isBlank(value)) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            log.warn("Invalid value for {}: {}, using {}", name, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public HTMLParseBudget setMaxInputBytes(long maxInputBytes) {
+        this.maxInputBytes = maxInputBytes;
+        return this;
+    }
+
+    public HTMLParseBudget setMaxElements(long maxElements) {
+        this.maxElements = maxElements;
+        return this;
+    }
+
+    public HTMLParseBudget setMaxOutputChars(long maxOutputChars) {
+        this.maxOutputChars = maxOutputChars;
+        return this;
+    }
+
+    /**
+     * Sets the timeout in milliseconds, and starts it
+     */
+    public HTMLParseBudget setTimeout(long timeout) {
+        this.timeout = timeout;
+        start();
+        return this;
+    }
+
+    /**
+     * (Re)starts the timeout
+     */
+    public HTMLParseBudget start() {
+        deadline = timeout > 0 ? System.nanoTime() + timeout * 1_000_000 : 0;
+        return this;
+    }
+
+    public long getMaxInputBytes() {
+        return maxInputBytes;
+    }
+
+    public long getMaxElements() {
+        return maxElements;
+    }
+
+    public long getMaxOutputChars() {
+        return maxOutputChars;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    public boolean isInputTooLarge(long length) {
+        return maxInputBytes > 0 && length > maxInputBytes;
+    }
+
+    /**
+     * @return <code>true</code> if <code>count</code> elements is over the limit
+     */
+    public boolean isOverElements(long count) {
+        return maxElements > 0 && count > maxElements;
+    }
+
+    public boolean isExpired() {
+        return deadline != 0 && System.nanoTime() - deadline > 0;
+    }
+
+    /**
+     * Returns a writer throwing an {@link ExceededException} when more than <code>maxOutputChars</code> are written
+     * or when the timeout expired. What was written before is kept.
+     */
+    public Writer limit(Writer writer) {
+
+        if (maxOutputChars <= 0 && deadline == 0) {
+            return writer;
+        }
+
+        return new Writer() {
+
+            protected long written = 0;
+
+            @Override
+            public void write(char[] cbuf, int off, int len) throws IOException {
+                if (isExpired()) {
+                    throw new ExceededException();
+                }
+                if (maxOutputChars > 0 && written + len > maxOutputChars) {
+                    int remaining = (int) (maxOutputChars - written);
+                    writer.write(cbuf, off, remaining);
+                    written = maxOutputChars;
+                    throw new ExceededException();
+                }
+                writer.write(cbuf, off, len);
+                written += len;
+            }
+
+            @Override
+            public void flush() throws IOException {
+                writer.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                writer.close();
+            }
+        };
+    }
+}
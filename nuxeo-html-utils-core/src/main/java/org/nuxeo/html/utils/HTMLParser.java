@@ -18,15 +18,37 @@
  */
 package org.nuxeo.html.utils;
 
+import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.io.output.StringBuilderWriter;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.Blobs;
 import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.api.blobholder.BlobHolder;
 import org.nuxeo.ecm.core.api.blobholder.BlobHolderAdapterService;
+import org.nuxeo.ecm.core.api.impl.blob.StringBlob;
 import org.nuxeo.runtime.api.Framework;
 
 import net.htmlparser.jericho.CharacterReference;
@@ -35,6 +57,8 @@ import net.htmlparser.jericho.HTMLElementName;
 import net.htmlparser.jericho.Renderer;
 import net.htmlparser.jericho.Source;
 import net.htmlparser.jericho.StartTag;
+import net.htmlparser.jericho.StreamedSource;
+import net.htmlparser.jericho.TextExtractor;
 
 /**
  * Wrapper around Jericho HTML Parser.
@@ -42,25 +66,130 @@ import net.htmlparser.jericho.StartTag;
  * This class extracts links, plain text, etc. from an html source, Blob, String or Document
  * <p>
  * Thanks to http://jericho.htmlparser.net and their example code.
+ * <p>
+ * The input is read and parsed only when needed. When it is a Blob with a digest (or the html of a Note, whose content
+ * is hashed), results are looked up in the {@link HTMLParserCache} first, and the blob is read and parsed only on a
+ * cache miss.
  * 
  * @since 8.1
  */
 public class HTMLParser {
 
+    private static final Logger log = LogManager.getLogger(HTMLParser.class);
+
+    // Above (or when the length of the blob is unknown), the html is read in a buffer that grows as needed
+    protected static final long MAX_BUFFER_SIZE = 512L * 1024 * 1024;
+
+    /**
+     * The configuration property setting the size (in bytes) from which the file of a blob is read through a memory
+     * mapping, see {@link MappedFileReader}. 0 to never map the files.
+     *
+     * @since 2023
+     */
+    public static final String MAPPED_FILE_THRESHOLD_PROPERTY = "nuxeo.html.utils.mappedFile.threshold";
+
+    public static final long DEFAULT_MAPPED_FILE_THRESHOLD = 16L * 1024 * 1024;
+
+    // Read when the component starts, see readDefaults
+    protected static volatile long defaultMappedFileThreshold = DEFAULT_MAPPED_FILE_THRESHOLD;
+
+    // Bytes read to detect the encoding of a mapped file when it is not declared
+    protected static final int ENCODING_PREVIEW_LENGTH = 8192;
+
+    // Scratch buffer used to read the blobs, one per thread
+    protected static final ThreadLocal<char[]> READ_BUFFER = ThreadLocal.withInitial(() -> new char[8192]);
+
+    /**
+     * @deprecated since 2023, the attributes are contributed to {@link HTMLParserComponent}, see {@link LinkRules}
+     */
+    @Deprecated
     public static final String[] HANDLED_LINKS_ATTRIBUTES = { "href", "src" };
 
+    /**
+     * The attributes of a <code>meta</code> tag used as keys by {@link #getMetaValue(String)}
+     *
+     * @since 2023
+     */
+    public static final String[] META_KEY_ATTRIBUTES = { "name", "property", "http-equiv" };
+
+    /**
+     * How the start tags are found for the title, the metas, the images, the <code>base</code> and the links without
+     * their text. The text of the links and the plain text are always extracted with Jericho.
+     *
+     * @since 2023
+     */
+    public enum Engine {
+        /**
+         * {@link #FAST} if the source was not parsed yet by Jericho, else {@link #JERICHO}
+         */
+        AUTO,
+        /**
+         * Jericho full sequential parse, the reference
+         */
+        JERICHO,
+        /**
+         * A single walk over the characters with the {@link FastTagScanner}, nothing is built
+         */
+        FAST;
+
+        /**
+         * @param name the name of the engine, case insensitive
+         * @return the engine, {@link #AUTO} if <code>name</code> is blank
+         * @throws IllegalArgumentException if there is no such engine
+         */
+        public static Engine parse(String name) {
+            return StringUtils.isBlank(name) ? AUTO : valueOf(name.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
     Source source;
 
+    protected boolean parsed = false;
+
+    protected Blob blob;
+
+    protected String html;
+
+    // Set only when the results can be cached
+    protected String digest;
+
     protected ArrayList<LinkInfo> links;
 
     protected ArrayList<String> imgSrc;
 
+    protected Map<String, String> metas;
+
+    protected HTMLParseBudget budget = HTMLParseBudget.getDefault();
+
+    protected LinkRules linkRules = LinkRules.get();
+
+    // Set when the parser is created by the HTMLParserService
+    protected HTMLExtractionProfile profile;
+
+    // See setLinkTextOptions
+    protected boolean includeLinkText = true;
+
+    protected int maxLinkTextLength = 0;
+
+    // Set when a limit of the budget was reached
+    protected boolean truncated = false;
+
+    // Set when the input was cut to maxInputBytes: every result is partial
+    protected boolean inputTruncated = false;
+
+    protected long mappedFileThreshold = defaultMappedFileThreshold;
+
+    protected Engine engine = Engine.AUTO;
+
+    // See setHeadOnly
+    protected boolean headOnly = false;
+
     public HTMLParser(Blob inBlob) throws IOException {
-        source = new Source(inBlob.getStream());
+        init(inBlob);
     }
 
     public HTMLParser(String inHTML) throws IOException {
-        source = new Source(inHTML);
+        html = inHTML;
     }
 
     public HTMLParser(DocumentModel inDoc) throws IOException {
@@ -76,6 +205,42 @@ public class HTMLParser {
      * @throws IOException
      */
     public HTMLParser(DocumentModel inDoc, String inXPath) throws IOException {
+        init(getBlob(inDoc, inXPath));
+        if (isNoteHtml(inDoc, inXPath)) {
+            setNoteDigest();
+        }
+    }
+
+    /**
+     * @return <code>true</code> if {@link #getBlob(DocumentModel, String)} returns the html of a Note
+     * @since 2023
+     */
+    public static boolean isNoteHtml(DocumentModel inDoc, String inXPath) {
+        return StringUtils.isBlank(inXPath) && inDoc.hasSchema("note");
+    }
+
+    /**
+     * The html of a Note has no digest. Hashing it costs much less than parsing it again when the document is saved
+     * without changing its content
+     *
+     * @since 2023
+     */
+    protected void setNoteDigest() {
+        if (digest == null && blob != null && HTMLParserCache.getInstance().isEnabled()) {
+            digest = HTMLExtractedData.getSourceDigest(blob);
+        }
+    }
+
+    /**
+     * Returns the blob parsed by {@link #HTMLParser(DocumentModel, String)}: the blob at <code>inXPath</code> or, if
+     * it is empty, the blob of the Note or of <code>file:content</code>.
+     *
+     * @param inDoc
+     * @param inXPath
+     * @return the blob, <code>null</code> if there is no blob
+     * @since 2023
+     */
+    public static Blob getBlob(DocumentModel inDoc, String inXPath) {
 
         Blob blob = null;
 
@@ -91,11 +256,564 @@ public class HTMLParser {
             blob = (Blob) inDoc.getPropertyValue(inXPath);
         }
 
-        source = new Source(blob.getStream());
+        return blob;
+    }
+
+    protected void init(Blob inBlob) {
+
+        blob = inBlob;
+        if (HTMLParserCache.getInstance().isEnabled()) {
+            digest = inBlob.getDigest();
+        }
     }
 
     /**
-     * Returns every links of type <code>HANDLED_LINKS_ATTRIBUTES</code>
+     * Returns the Jericho source, reading the input if it was not read yet.
+     *
+     * @return the source
+     * @since 2023
+     */
+    public Source getSource() {
+
+        if (source == null) {
+            try (HTMLMetrics.Timing timing = HTMLMetrics.time(HTMLMetrics.PHASE_READ)) {
+                if (html != null) {
+                    source = new Source(limitInput(html));
+                } else {
+                    try {
+                        source = readSource();
+                    } catch (IOException e) {
+                        throw new NuxeoException("Cannot read the html blob", e);
+                    }
+                }
+            }
+            HTMLMetrics.countInputChars(source.length());
+        }
+        return source;
+    }
+
+    /**
+     * Reads the blob. When its encoding is declared, its bytes are read at once and decoded with it into the String
+     * of the source, so there is no intermediate buffer of characters. Else, Jericho detects the encoding. The stream
+     * is always closed.
+     * <p>
+     * A file larger than the <code>mappedFileThreshold</code> is memory-mapped and decoded at once from the mapping
+     * (see {@link MappedFileReader#decode(File, Charset, long)}), without copying its bytes, into a
+     * <code>CharBuffer</code> given as is to the <code>Source</code>. Jericho keeps the text of a <code>Source</code>
+     * as a String, so it still copies these characters once: there is no public way to build a String from a
+     * <code>ByteBuffer</code> without such an intermediate buffer. The mapping keeps the file open until it is
+     * garbage collected.
+     *
+     * @return the source
+     * @throws IOException
+     * @since 2023
+     */
+    protected Source readSource() throws IOException {
+
+        if (blob instanceof StringBlob) {
+            return new Source(limitInput(blob.getString()));
+        }
+
+        Charset charset = getDeclaredCharset();
+        if (isMappedFile()) {
+            Charset fileCharset = charset != null ? charset : detectCharset();
+            if (fileCharset != null) {
+                return new Source(MappedFileReader.decode(blob.getFile(), fileCharset, getInputLimit()));
+            }
+        }
+        if (charset == null) {
+            try (InputStream in = openInputStream()) {
+                return new Source(in);
+            }
+        }
+
+        long length = getInputLimit();
+        if (length >= 0 && length <= MAX_BUFFER_SIZE) {
+            try (InputStream in = openInputStream()) {
+                // Malformed input is replaced, as an InputStreamReader does
+                return new Source(new String(in.readNBytes((int) length), charset));
+            }
+        }
+        try (Reader reader = openReader(charset)) {
+            return new Source(readFully(reader, length, charset));
+        }
+    }
+
+    /**
+     * Reads all the characters of the reader. The buffer is sized for <code>maxBytes</code> bytes decoded with the
+     * charset (using its average number of characters per byte), it grows as needed when the size is unknown or
+     * larger than {@link #MAX_BUFFER_SIZE}.
+     *
+     * @since 2023
+     */
+    protected static StringBuilder readFully(Reader reader, long maxBytes, Charset charset) throws IOException {
+
+        long expected = (long) Math.ceil(maxBytes * (double) charset.newDecoder().averageCharsPerByte());
+        StringBuilder sb = new StringBuilder(expected > 0 && expected < MAX_BUFFER_SIZE ? (int) expected : 8192);
+        char[] buffer = READ_BUFFER.get();
+        int count;
+        while ((count = reader.read(buffer)) != -1) {
+            sb.append(buffer, 0, count);
+        }
+        return sb;
+    }
+
+    /**
+     * Tells if the blob is read through a memory mapping of its file: it has a file, of at least
+     * <code>mappedFileThreshold</code> bytes
+     *
+     * @since 2023
+     */
+    protected boolean isMappedFile() {
+
+        if (blob == null || blob.getFile() == null || mappedFileThreshold <= 0) {
+            return false;
+        }
+        // Not getInputLimit(), which marks the result as truncated
+        long length = blob.getLength();
+        long limit = budget.isInputTooLarge(length) ? budget.getMaxInputBytes() : length;
+        return length >= mappedFileThreshold && limit <= Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return the number of bytes of the blob to read, its length or the <code>maxInputBytes</code> of the budget
+     * @since 2023
+     */
+    protected long getInputLimit() {
+
+        if (budget.isInputTooLarge(blob.getLength())) {
+            truncated = inputTruncated = true;
+            return budget.getMaxInputBytes();
+        }
+        return blob.getLength();
+    }
+
+    /**
+     * Detects the encoding of the file of the blob as Jericho does (byte order mark, <code>meta</code> declaration,
+     * ...), reading only its beginning. Returns <code>null</code> if it is not supported.
+     *
+     * @since 2023
+     */
+    protected Charset detectCharset() throws IOException {
+
+        try (InputStream in = new BoundedInputStream(Files.newInputStream(blob.getFile().toPath()),
+                ENCODING_PREVIEW_LENGTH)) {
+            return Charset.forName(new Source(in).getEncoding());
+        } catch (IllegalArgumentException e) {
+            log.debug("Unsupported encoding, letting the parser detect it", e);
+            return null;
+        }
+    }
+
+    /**
+     * Sets the size (in bytes) from which the file of a blob is read through a memory mapping (see
+     * {@link MappedFileReader}), 0 to never map it. Default is the {@link #MAPPED_FILE_THRESHOLD_PROPERTY}
+     * configuration property, or 16 MB.
+     *
+     * @param mappedFileThreshold
+     * @return this parser
+     * @since 2023
+     */
+    public HTMLParser setMappedFileThreshold(long mappedFileThreshold) {
+        this.mappedFileThreshold = mappedFileThreshold;
+        return this;
+    }
+
+    /**
+     * Reads the {@link #MAPPED_FILE_THRESHOLD_PROPERTY} configuration property. Called by
+     * {@link HTMLParserComponent#start(org.nuxeo.runtime.model.ComponentContext)}, an invalid value is logged and
+     * ignored.
+     *
+     * @since 2023
+     */
+    public static void readDefaults() {
+        defaultMappedFileThreshold = HTMLParseBudget.getLongProperty(MAPPED_FILE_THRESHOLD_PROPERTY,
+                DEFAULT_MAPPED_FILE_THRESHOLD);
+    }
+
+    /**
+     * Resets the value read by {@link #readDefaults()}, when the component stops
+     *
+     * @since 2023
+     */
+    public static void resetDefaults() {
+        defaultMappedFileThreshold = DEFAULT_MAPPED_FILE_THRESHOLD;
+    }
+
+    /**
+     * Returns the charset of the encoding of the blob, <code>null</code> if it is not set or not supported.
+     *
+     * @since 2023
+     */
+    protected Charset getDeclaredCharset() {
+
+        String encoding = blob.getEncoding();
+        if (StringUtils.isBlank(encoding)) {
+            return null;
+        }
+        try {
+            return Charset.forName(encoding.trim());
+        } catch (IllegalArgumentException e) {
+            log.debug("Unsupported encoding: {}, letting the parser detect it", encoding);
+            return null;
+        }
+    }
+
+    /**
+     * Opens a reader on the blob, decoding it with the charset (from its file when it has one)
+     *
+     * @since 2023
+     */
+    protected Reader openReader(Charset charset) throws IOException {
+
+        if (blob.getFile() != null && !budget.isInputTooLarge(blob.getLength())) {
+            return Files.newBufferedReader(blob.getFile().toPath(), charset);
+        }
+        return new BufferedReader(new InputStreamReader(openInputStream(), charset));
+    }
+
+    /**
+     * Opens the stream of the blob (of its file when it has one), limited to the <code>maxInputBytes</code> of the
+     * budget
+     *
+     * @since 2023
+     */
+    protected InputStream openInputStream() throws IOException {
+
+        File file = blob.getFile();
+        InputStream in = file != null ? Files.newInputStream(file.toPath()) : blob.getStream();
+        if (budget.isInputTooLarge(blob.getLength())) {
+            truncated = inputTruncated = true;
+            return new BoundedInputStream(in, budget.getMaxInputBytes());
+        }
+        return in;
+    }
+
+    protected String limitInput(String input) {
+
+        if (budget.isInputTooLarge(input.length())) {
+            truncated = inputTruncated = true;
+            return input.substring(0, (int) budget.getMaxInputBytes());
+        }
+        return input;
+    }
+
+    /**
+     * Sets the limits of the extraction, and starts its timeout. The default budget is
+     * {@link HTMLParseBudget#getDefault()}.
+     *
+     * @param budget
+     * @return this parser
+     * @since 2023
+     */
+    public HTMLParser setBudget(HTMLParseBudget budget) {
+        this.budget = budget == null ? new HTMLParseBudget() : budget;
+        this.budget.start();
+        return this;
+    }
+
+    /**
+     * @since 2023
+     */
+    public HTMLParseBudget getBudget() {
+        return budget;
+    }
+
+    /**
+     * Applies the budget, the options of the text of the links and the rendering options of <code>profile</code>.
+     * Done by {@link HTMLParserService} for the parsers it creates.
+     *
+     * @param profile
+     * @return this parser
+     * @since 2023
+     */
+    public HTMLParser setProfile(HTMLExtractionProfile profile) {
+        this.profile = profile;
+        setBudget(profile.newBudget());
+        setLinkTextOptions(profile.isIncludeLinkText(), profile.getMaxLinkTextLength());
+        setEngine(profile.getEngine());
+        return this;
+    }
+
+    /**
+     * @return the profile of the parser, {@link HTMLExtractionProfile#getDefault()} if none was set
+     * @since 2023
+     */
+    public HTMLExtractionProfile getProfile() {
+        if (profile == null) {
+            profile = HTMLExtractionProfile.getDefault();
+        }
+        return profile;
+    }
+
+    /**
+     * Sets the tag/attribute pairs returned as links. The default rules are the ones of
+     * {@link HTMLParserService#getLinkRules()}, contributed to {@link HTMLParserComponent}.
+     *
+     * @param linkRules
+     * @return this parser
+     * @since 2023
+     */
+    public HTMLParser setLinkRules(LinkRules linkRules) {
+        this.linkRules = linkRules;
+        return this;
+    }
+
+    /**
+     * @since 2023
+     */
+    public LinkRules getLinkRules() {
+        return linkRules;
+    }
+
+    /**
+     * Sets how the text of the links is extracted. Extracting the text of every linked element is the most expensive
+     * part of {@link #getLinks()}: when it is not used, set <code>includeText</code> to <code>false</code>, the text
+     * of the links is then <code>null</code>.
+     *
+     * @param includeText default <code>true</code>
+     * @param maxTextLength if &gt; 0, the extraction of the text of a link stops after this number of characters
+     * @return this parser
+     * @since 2023
+     */
+    public HTMLParser setLinkTextOptions(boolean includeText, int maxTextLength) {
+        if (includeText != includeLinkText || maxTextLength != maxLinkTextLength) {
+            includeLinkText = includeText;
+            maxLinkTextLength = maxTextLength;
+            links = null;
+        }
+        return this;
+    }
+
+    /**
+     * Returns the text of a linked element, following the options set by {@link #setLinkTextOptions(boolean, int)}
+     *
+     * @param element
+     * @return the text, <code>null</code> if the text is not included
+     * @since 2023
+     */
+    protected String getLinkText(Element element) {
+
+        if (!includeLinkText) {
+            return null;
+        }
+        TextExtractor textExtractor = element.getContent().getTextExtractor();
+        if (maxLinkTextLength <= 0) {
+            return textExtractor.toString();
+        }
+
+        StringBuilderWriter writer = new StringBuilderWriter();
+        try {
+            textExtractor.writeTo(new HTMLParseBudget().setMaxOutputChars(maxLinkTextLength).limit(writer));
+        } catch (HTMLParseBudget.ExceededException e) {
+            // Expected, the text is cut
+        } catch (IOException e) {
+            throw new NuxeoException("Cannot extract the text of a link", e);
+        }
+        return StringUtils.stripEnd(writer.toString(), null);
+    }
+
+    /**
+     * Sets the engine finding the start tags. Both engines return the same results, {@link Engine#FAST} allocating
+     * much less.
+     *
+     * @param engine default {@link Engine#AUTO}
+     * @return this parser
+     * @since 2023
+     */
+    public HTMLParser setEngine(Engine engine) {
+        this.engine = engine == null ? Engine.AUTO : engine;
+        return this;
+    }
+
+    /**
+     * @since 2023
+     */
+    public Engine getEngine() {
+        return engine;
+    }
+
+    /**
+     * When <code>headOnly</code> is <code>true</code>, {@link #getTitle()} and {@link #getMetaValue(String)} read the
+     * input sequentially and stop at the end of its <code>head</code>, without reading the body (see
+     * {@link StreamedHeadReader}). A title or a meta in the body is then ignored, unless the html has no head.
+     *
+     * @param headOnly default <code>false</code>
+     * @return this parser
+     * @since 2023
+     */
+    public HTMLParser setHeadOnly(boolean headOnly) {
+        if (headOnly != this.headOnly) {
+            this.headOnly = headOnly;
+            metas = null;
+        }
+        return this;
+    }
+
+    /**
+     * @since 2023
+     */
+    public boolean isHeadOnly() {
+        return headOnly;
+    }
+
+    /**
+     * Returns the title and the metas of the head, see {@link #setHeadOnly(boolean)}
+     *
+     * @since 2023
+     */
+    protected HTMLExtraction getHead() {
+
+        return getCached(getCacheKey("head"), () -> {
+            try (HTMLMetrics.Timing timing = HTMLMetrics.time(HTMLMetrics.PHASE_PARSE);
+                    StreamedSource streamedSource = openStreamedSource()) {
+                HTMLExtraction head = new StreamedHeadReader().read(streamedSource, budget);
+                if (head.isTruncated()) {
+                    truncated = true;
+                }
+                return head;
+            } catch (IOException e) {
+                throw new NuxeoException("Cannot read the html", e);
+            }
+        });
+    }
+
+    /**
+     * @return <code>true</code> if the start tags are found with the {@link FastTagScanner}, see {@link Engine}
+     * @since 2023
+     */
+    protected boolean useFastScanner() {
+        return engine == Engine.FAST || (engine == Engine.AUTO && !parsed);
+    }
+
+    /**
+     * Walks the source with a {@link FastTagScanner}
+     *
+     * @since 2023
+     */
+    protected void scanTags(FastTagScanner.TagHandler handler) {
+
+        CharSequence text = getSource();
+        try (HTMLMetrics.Timing timing = HTMLMetrics.time(HTMLMetrics.PHASE_PARSE)) {
+            HTMLMetrics.countElements(new FastTagScanner(text).scan(handler));
+        }
+    }
+
+    /**
+     * Tells if a limit of the budget was reached: the results returned are partial.
+     *
+     * @since 2023
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Same as {@link HTMLParserCache#get(String, Supplier)}, but a partial result is not cached
+     *
+     * @since 2023
+     */
+    protected <T> T getCached(String key, Supplier<T> loader) {
+        return HTMLParserCache.getInstance().get(key, loader, () -> !truncated);
+    }
+
+    /**
+     * Returns the list limited to <code>maxElements</code> (a cached list may come from a parser without limit)
+     */
+    protected <T> ArrayList<T> limitElements(List<T> list) {
+
+        if (budget.isOverElements(list.size())) {
+            truncated = true;
+            return new ArrayList<T>(list.subList(0, (int) budget.getMaxElements()));
+        }
+        return new ArrayList<T>(list);
+    }
+
+    /**
+     * Returns the Jericho source after a full sequential parse (done only once).
+     *
+     * @return the parsed source
+     * @since 2023
+     */
+    public Source getParsedSource() {
+
+        Source source = getSource();
+        if (!parsed) {
+            try (HTMLMetrics.Timing timing = HTMLMetrics.time(HTMLMetrics.PHASE_PARSE)) {
+                source.fullSequentialParse();
+            }
+            parsed = true;
+        }
+        return source;
+    }
+
+    /**
+     * Returns a new {@link StreamedSource} on the input, to read it sequentially without loading it in memory. Must be
+     * closed by the caller.
+     *
+     * @return the streamed source
+     * @throws IOException
+     * @since 2023
+     */
+    public StreamedSource openStreamedSource() throws IOException {
+
+        if (source != null) {
+            return new StreamedSource(source);
+        }
+        if (html != null) {
+            return new StreamedSource(limitInput(html));
+        }
+        Charset charset = getDeclaredCharset();
+        if (isMappedFile()) {
+            Charset fileCharset = charset != null ? charset : detectCharset();
+            if (fileCharset != null) {
+                return new StreamedSource(new MappedFileReader(blob.getFile(), fileCharset, getInputLimit()));
+            }
+        }
+        if (charset == null) {
+            return new StreamedSource(openInputStream());
+        }
+        return new StreamedSource(openReader(charset));
+    }
+
+    /**
+     * Returns the key to use in the {@link HTMLParserCache} for the result of an extraction, <code>null</code> if the
+     * input cannot be cached.
+     *
+     * @since 2023
+     */
+    protected String getCacheKey(String kind, Object... params) {
+        return HTMLParserCache.buildKey(digest, kind, params);
+    }
+
+    /**
+     * Same as {@link #getCacheKey(String, Object...)} for a result found in the start tags, the engine of the parser
+     * being part of the key: the engines may differ on malformed html, so a result of {@link Engine#FAST} is never
+     * returned for {@link Engine#JERICHO} and vice versa. The results of {@link Engine#AUTO}, which uses one or the
+     * other depending on what was already parsed, are cached on their own.
+     *
+     * @since 2023
+     */
+    protected String getTagsCacheKey(String kind, Object... params) {
+
+        Object[] withEngine = Arrays.copyOf(params, params.length + 1);
+        withEngine[params.length] = engine;
+        return getCacheKey(kind, withEngine);
+    }
+
+    /**
+     * Returns an extractor working on the same source, to get several kinds of information in a single pass.
+     *
+     * @return a new {@link HTMLExtractor}
+     * @since 2023
+     */
+    public HTMLExtractor getExtractor() {
+        return new HTMLExtractor(this);
+    }
+
+    /**
+     * Returns every links declared in the {@link LinkRules} of the parser, grouped by rule in the order of the rules.
+     * The start tags are scanned once, whatever the number of rules.
      * <p>
      * Excludes comments, of course.
      * 
@@ -105,22 +823,183 @@ public class HTMLParser {
     public ArrayList<LinkInfo> getLinks() {
 
         if (links == null) {
+            List<LinkInfo> cached = getCached(getTagsCacheKey("links", linkRules, includeLinkText, maxLinkTextLength),
+                    () -> collectLinks(null));
+            // The cached list is shared
+            links = limitElements(cached);
+        }
 
-            String text, link;
-            List<Element> linkElements;
-            links = new ArrayList<LinkInfo>();
-            for (String attr : HANDLED_LINKS_ATTRIBUTES) {
-                linkElements = source.getAllElements(attr, null);
-                for (Element linkElement : linkElements) {
-                    link = linkElement.getAttributeValue(attr);
-                    text = linkElement.getContent().getTextExtractor().toString();
-                    links.add(new LinkInfo(linkElement.getName(), attr, text, link));
+        return links;
+
+    }
+
+    /**
+     * Returns the links accepted by <code>filter</code>. The filter is evaluated while scanning, before the text of a
+     * link is extracted, so it is faster than filtering the result of {@link #getLinks()}.
+     *
+     * @param filter can be <code>null</code>, all the links are returned
+     * @return the links
+     * @since 2023
+     */
+    public ArrayList<LinkInfo> getLinks(LinkFilter filter) {
+
+        if (filter == null || filter.isEmpty()) {
+            return getLinks();
+        }
+        if (links != null) {
+            return filter.filter(links);
+        }
+        List<LinkInfo> cached = getCached(
+                getTagsCacheKey("links", linkRules, includeLinkText, maxLinkTextLength, filter),
+                () -> collectLinks(filter));
+        // The cached list is shared
+        return limitElements(cached);
+    }
+
+    protected ArrayList<LinkInfo> collectLinks(LinkFilter filter) {
+
+        // One list per rule
+        List<List<LinkInfo>> linksByRule = new ArrayList<List<LinkInfo>>();
+        for (int i = 0; i < linkRules.size(); i++) {
+            linksByRule.add(new ArrayList<LinkInfo>());
+        }
+        int[] count = { 0 };
+        if (!includeLinkText && useFastScanner()) {
+            scanTags(tag -> {
+                if (budget.isOverElements(count[0] + 1) || budget.isExpired()) {
+                    truncated = true;
+                    return false;
                 }
+                linkRules.forEachLink(tag, filter, (rule, attr, link) -> {
+                    if (budget.isOverElements(++count[0])) {
+                        truncated = true;
+                        return;
+                    }
+                    linksByRule.get(rule).add(new LinkInfo(tag.getName(), attr, null, link));
+                });
+                return true;
+            });
+            return flattenLinks(linksByRule);
+        }
+
+        Source source = getParsedSource();
+        try (HTMLMetrics.Timing timing = HTMLMetrics.time(HTMLMetrics.PHASE_LINKS)) {
+            List<StartTag> startTags = source.getAllStartTags();
+            HTMLMetrics.countElements(startTags.size());
+            for (StartTag startTag : startTags) {
+                if (budget.isOverElements(count[0] + 1) || budget.isExpired()) {
+                    truncated = true;
+                    break;
+                }
+                linkRules.forEachLink(startTag, filter, (rule, attr, link) -> {
+                    if (budget.isOverElements(++count[0])) {
+                        truncated = true;
+                        return;
+                    }
+                    String text = getLinkText(startTag.getElement());
+                    linksByRule.get(rule).add(new LinkInfo(startTag.getName(), attr, text, link));
+                });
             }
         }
+        return flattenLinks(linksByRule);
+    }
 
-        return links;
+    protected ArrayList<LinkInfo> flattenLinks(List<List<LinkInfo>> linksByRule) {
+
+        ArrayList<LinkInfo> result = new ArrayList<LinkInfo>();
+        for (List<LinkInfo> ruleLinks : linksByRule) {
+            result.addAll(ruleLinks);
+        }
+        HTMLMetrics.countLinks(result.size());
+        return result;
+    }
+
+    /**
+     * Returns the links of {@link #getLinks()}, resolved and normalized if <code>resolve</code> is <code>true</code>,
+     * and de-duplicated if <code>deduplicate</code> is <code>true</code> (see {@link LinkResolver}).
+     * <p>
+     * The links are resolved against the <code>&lt;base href&gt;</code> of the html (itself resolved against
+     * <code>baseUrl</code>) or, if there is none, against <code>baseUrl</code>.
+     *
+     * @param baseUrl the url of the page, can be <code>null</code>
+     * @param resolve
+     * @param deduplicate
+     * @return the links
+     * @since 2023
+     */
+    public ArrayList<LinkInfo> getLinks(String baseUrl, boolean resolve, boolean deduplicate) {
+        return getLinks(null, baseUrl, resolve, deduplicate);
+    }
 
+    /**
+     * Same as {@link #getLinks(String, boolean, boolean)} for the links accepted by <code>filter</code> (see
+     * {@link #getLinks(LinkFilter)}). The filter applies to the links as they are in the html, before they are
+     * resolved.
+     *
+     * @since 2023
+     */
+    public ArrayList<LinkInfo> getLinks(LinkFilter filter, String baseUrl, boolean resolve, boolean deduplicate) {
+
+        String base = resolve ? LinkResolver.getBase(baseUrl, getBaseHref()) : null;
+        return LinkResolver.process(getLinks(filter), base, resolve, deduplicate);
+    }
+
+    /**
+     * @return the <code>href</code> of the first <code>base</code> element, <code>null</code> if there is none
+     * @since 2023
+     */
+    public String getBaseHref() {
+
+        String baseHref = getCached(getTagsCacheKey("baseHref"), () -> {
+            if (useFastScanner()) {
+                String[] href = { "" };
+                scanTags(tag -> {
+                    if (HTMLElementName.BASE.equals(tag.getName())) {
+                        String value = tag.getAttributeValue("href");
+                        if (StringUtils.isNotBlank(value)) {
+                            href[0] = value.trim();
+                            return false;
+                        }
+                    }
+                    return true;
+                });
+                return href[0];
+            }
+            for (Element element : getParsedSource().getAllElements(HTMLElementName.BASE)) {
+                String href = element.getAttributeValue("href");
+                if (StringUtils.isNotBlank(href)) {
+                    return href.trim();
+                }
+            }
+            return "";
+        });
+        return baseHref.isEmpty() ? null : baseHref;
+    }
+
+    /**
+     * Finds the same links as {@link #getLinks()}, but reads the input sequentially and passes each link to
+     * <code>handler</code> as soon as it is found, without holding the document nor the list of links in memory. Use
+     * it for very large html.
+     * <p>
+     * See {@link StreamedLinkScanner} for the differences with {@link #getLinks()}.
+     *
+     * @param handler
+     * @throws IOException
+     * @since 2023
+     */
+    public void scanLinks(StreamedLinkScanner.LinkHandler handler) throws IOException {
+
+        int[] count = { 0 };
+        try (StreamedSource streamedSource = openStreamedSource()) {
+            new StreamedLinkScanner(linkRules).setMaxTextLength(maxLinkTextLength).scan(streamedSource, li -> {
+                if (budget.isOverElements(++count[0]) || budget.isExpired()) {
+                    throw new HTMLParseBudget.ExceededException();
+                }
+                handler.handle(li);
+            });
+        } catch (HTMLParseBudget.ExceededException e) {
+            truncated = true;
+        }
     }
 
     /**
@@ -136,22 +1015,50 @@ public class HTMLParser {
     public List<String> getImgSrc() {
 
         if (imgSrc == null) {
-            imgSrc = new ArrayList<String>();
-            String src;
-            List<Element> linkElements = source.getAllElements(HTMLElementName.IMG);
-            for (Element linkElement : linkElements) {
-                src = linkElement.getAttributeValue("src");
-                if (StringUtils.isNotBlank(src)) {
-                    imgSrc.add(src);
+            List<String> cached = getCached(getTagsCacheKey("imgSrc"), () -> {
+                List<String> result = new ArrayList<String>();
+                if (useFastScanner()) {
+                    scanTags(tag -> {
+                        if (!HTMLElementName.IMG.equals(tag.getName())) {
+                            return true;
+                        }
+                        if (budget.isOverElements(result.size() + 1) || budget.isExpired()) {
+                            truncated = true;
+                            return false;
+                        }
+                        String src = tag.getAttributeValue("src");
+                        if (StringUtils.isNotBlank(src)) {
+                            result.add(src);
+                        }
+                        return true;
+                    });
+                    return result;
                 }
-            }
+                String src;
+                List<Element> linkElements = getParsedSource().getAllElements(HTMLElementName.IMG);
+                HTMLMetrics.countElements(linkElements.size());
+                for (Element linkElement : linkElements) {
+                    if (budget.isOverElements(result.size() + 1) || budget.isExpired()) {
+                        truncated = true;
+                        break;
+                    }
+                    src = linkElement.getAttributeValue("src");
+                    if (StringUtils.isNotBlank(src)) {
+                        result.add(src);
+                    }
+                }
+                return result;
+            });
+            // The cached list is shared
+            imgSrc = limitElements(cached);
         }
 
         return imgSrc;
     }
 
     /**
-     * Returns the plain text of the html using:
+     * Returns the plain text of the html using the rendering options of the profile of the parser (see
+     * {@link #setProfile(HTMLExtractionProfile)}). By default:
      * <ul>
      * <li>\n as line separator</li>
      * <li><code>includeHyperlinkURLs</code>: <code>false</code></li>
@@ -165,7 +1072,9 @@ public class HTMLParser {
      * @since 8.1
      */
     public String getPlainText() {
-        return getPlainText("\n", false, false, false);
+        HTMLExtractionProfile p = getProfile();
+        return getPlainText(p.getLineSeparator(), p.isIncludeHyperlinkURLs(), p.isIncludeAlternateText(),
+                p.isConvertNonBreakingSpaces());
     }
 
     /**
@@ -185,8 +1094,33 @@ public class HTMLParser {
             lineSeparator = "\n";
         }
 
-        source.fullSequentialParse();
-        Renderer renderer = source.getRenderer();
+        String key = getCacheKey("text", lineSeparator, includeHyperlinkURLs, includeAlternateText,
+                convertNonBreakingSpaces);
+        final String separator = lineSeparator;
+        String text = getCached(key, () -> renderPlainText(separator, includeHyperlinkURLs, includeAlternateText,
+                convertNonBreakingSpaces));
+        return limitOutput(text);
+    }
+
+    /**
+     * Returns the text limited to <code>maxOutputChars</code> (a cached text may come from a parser without limit)
+     *
+     * @since 2023
+     */
+    protected String limitOutput(String text) {
+
+        long max = budget.getMaxOutputChars();
+        if (max > 0 && text.length() > max) {
+            truncated = true;
+            return text.substring(0, (int) max);
+        }
+        return text;
+    }
+
+    protected String renderPlainText(String lineSeparator, boolean includeHyperlinkURLs, boolean includeAlternateText,
+            boolean convertNonBreakingSpaces) {
+
+        Renderer renderer = getParsedSource().getRenderer();
 
         renderer.setIncludeHyperlinkURLs(includeHyperlinkURLs);
         renderer.setIncludeAlternateText(includeAlternateText);
@@ -197,8 +1131,222 @@ public class HTMLParser {
 
         renderer.setNewLine(lineSeparator);
 
-        return renderer.toString();
+        return render(renderer);
+    }
+
+    /**
+     * Renders the text within the <code>maxOutputChars</code> and the timeout of the budget
+     *
+     * @since 2023
+     */
+    protected String render(Renderer renderer) {
+
+        StringBuilderWriter writer = new StringBuilderWriter();
+        renderTo(renderer, writer);
+        return writer.toString();
+
+    }
+
+    /**
+     * Same as {@link #render(Renderer)}, writing to <code>writer</code>
+     *
+     * @return <code>false</code> if a limit of the budget was reached (the text written is partial)
+     * @since 2023
+     */
+    protected boolean renderTo(Renderer renderer, StringBuilderWriter writer) {
+
+        try (HTMLMetrics.Timing timing = HTMLMetrics.time(HTMLMetrics.PHASE_RENDER)) {
+            renderer.writeTo(budget.limit(writer));
+            return true;
+        } catch (HTMLParseBudget.ExceededException e) {
+            truncated = true;
+            return false;
+        } catch (IOException e) {
+            // Not thrown by a StringBuilderWriter
+            throw new NuxeoException(e);
+        }
+    }
+
+    /**
+     * Same as {@link #getPlainTextAsBlob(String, boolean, boolean, boolean)}, with the rendering options of the profile
+     * of the parser
+     *
+     * @since 2023
+     */
+    public Blob getPlainTextAsBlob() throws IOException {
+        HTMLExtractionProfile p = getProfile();
+        return getPlainTextAsBlob(p.getLineSeparator(), p.isIncludeHyperlinkURLs(), p.isIncludeAlternateText(),
+                p.isConvertNonBreakingSpaces());
+    }
+
+    /**
+     * Same as {@link #getPlainText(String, boolean, boolean, boolean)}, but the input is read sequentially and the text
+     * is written to a temporary file as it is rendered, so the memory used does not depend on the size of the html.
+     * <p>
+     * See {@link StreamedTextRenderer} for the differences of layout with the String version.
+     *
+     * @param lineSeparator
+     * @param includeHyperlinkURLs
+     * @param includeAlternateText
+     * @param convertNonBreakingSpaces
+     * @return a text/plain, UTF-8 blob
+     * @throws IOException
+     * @since 2023
+     */
+    public Blob getPlainTextAsBlob(String lineSeparator, boolean includeHyperlinkURLs, boolean includeAlternateText,
+            boolean convertNonBreakingSpaces) throws IOException {
+
+        StreamedTextRenderer renderer = new StreamedTextRenderer(lineSeparator, includeHyperlinkURLs,
+                includeAlternateText, convertNonBreakingSpaces);
+
+        Blob result = Blobs.createBlobWithExtension(".txt");
+        try (StreamedSource streamedSource = openStreamedSource();
+                Writer writer = Files.newBufferedWriter(result.getFile().toPath(), StandardCharsets.UTF_8)) {
+            renderer.render(streamedSource, budget.limit(writer));
+        } catch (HTMLParseBudget.ExceededException e) {
+            truncated = true;
+        }
+        result.setMimeType("text/plain");
+        result.setEncoding("UTF-8");
+
+        return result;
+    }
+
+    /**
+     * Splits the plain text of the html in chunks of at most <code>maxChunkSize</code> characters, aligned to the
+     * blocks and headings, and passes each of them to <code>handler</code> as soon as it is complete. The input is
+     * read sequentially and the full text is never built. The text is rendered with the options of the profile of the
+     * parser.
+     * <p>
+     * The <code>maxOutputChars</code> of the budget limits the total length of the text, <code>maxElements</code> the
+     * number of chunks. See {@link StreamedTextChunker}.
+     *
+     * @param maxChunkSize the maximum length of a chunk, {@link StreamedTextChunker#DEFAULT_MAX_CHUNK_SIZE} if &lt;= 0
+     * @param handler
+     * @throws IOException
+     * @since 2023
+     */
+    public void chunkPlainText(int maxChunkSize, StreamedTextChunker.ChunkHandler handler) throws IOException {
 
+        HTMLExtractionProfile p = getProfile();
+        StreamedTextChunker chunker = new StreamedTextChunker(maxChunkSize, p.getLineSeparator(),
+                p.isIncludeHyperlinkURLs(), p.isIncludeAlternateText(), p.isConvertNonBreakingSpaces());
+
+        int[] count = { 0 };
+        try (StreamedSource streamedSource = openStreamedSource()) {
+            chunker.chunk(streamedSource, budget, chunk -> {
+                if (budget.isOverElements(++count[0]) || budget.isExpired()) {
+                    throw new HTMLParseBudget.ExceededException();
+                }
+                handler.handle(chunk);
+            });
+        } catch (HTMLParseBudget.ExceededException e) {
+            truncated = true;
+        }
+    }
+
+    /**
+     * Same as {@link #chunkPlainText(int, StreamedTextChunker.ChunkHandler)}, returning the list of chunks
+     *
+     * @since 2023
+     */
+    public List<TextChunk> getTextChunks(int maxChunkSize) throws IOException {
+
+        List<TextChunk> chunks = new ArrayList<TextChunk>();
+        chunkPlainText(maxChunkSize, chunks::add);
+        return chunks;
+    }
+
+    /**
+     * Returns the Open Graph and Twitter Cards metas and the JSON-LD blocks of the document, found in a single walk
+     * over its start tags. See {@link StructuredData}.
+     * <p>
+     * The <code>maxElements</code> of the budget limits the number of JSON-LD blocks.
+     * <p>
+     * The result is shared (see {@link HTMLParserCache}) and must not be modified.
+     *
+     * @return the structured metadata
+     * @since 2023
+     */
+    public StructuredData getStructuredData() {
+
+        return getCached(getTagsCacheKey("structuredData"), () -> {
+            StructuredData result = new StructuredData();
+            int[] count = { 0 };
+            if (useFastScanner()) {
+                scanTags(tag -> {
+                    if (budget.isExpired()) {
+                        truncated = true;
+                        return false;
+                    }
+                    String name = tag.getName();
+                    if (HTMLElementName.META.equals(name)) {
+                        result.addMeta(tag::getAttributeValue);
+                    } else if (HTMLElementName.SCRIPT.equals(name)
+                            && StructuredData.isJsonLd(tag.getAttributeValue("type"))) {
+                        if (budget.isOverElements(++count[0])) {
+                            truncated = true;
+                            return false;
+                        }
+                        result.addJsonLd(tag.getContent());
+                    }
+                    return true;
+                });
+                return result;
+            }
+            List<StartTag> startTags = getParsedSource().getAllStartTags();
+            HTMLMetrics.countElements(startTags.size());
+            for (StartTag startTag : startTags) {
+                if (budget.isExpired()) {
+                    truncated = true;
+                    break;
+                }
+                if (startTag.getAttributes() == null) {
+                    continue;
+                }
+                String name = startTag.getName();
+                if (HTMLElementName.META.equals(name)) {
+                    result.addMeta(startTag::getAttributeValue);
+                } else if (HTMLElementName.SCRIPT.equals(name)
+                        && StructuredData.isJsonLd(startTag.getAttributeValue("type"))) {
+                    if (budget.isOverElements(++count[0])) {
+                        truncated = true;
+                        break;
+                    }
+                    result.addJsonLd(startTag.getElement().getContent());
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Finds the same structured metadata as {@link #getStructuredData()}, but reads the input sequentially and
+     * passes each JSON-LD block to <code>handler</code> as soon as it is found, without holding the document in
+     * memory. See {@link StreamedStructuredDataScanner}.
+     * <p>
+     * The <code>maxElements</code> of the budget limits the number of JSON-LD blocks.
+     *
+     * @param handler
+     * @return the Open Graph and Twitter Cards metas, the JSON-LD blocks being sent to <code>handler</code> only
+     * @throws IOException
+     * @since 2023
+     */
+    public StructuredData scanStructuredData(StructuredData.JsonLdHandler handler) throws IOException {
+
+        StreamedStructuredDataScanner scanner = new StreamedStructuredDataScanner();
+        int[] count = { 0 };
+        try (StreamedSource streamedSource = openStreamedSource()) {
+            return scanner.scan(streamedSource, json -> {
+                if (budget.isOverElements(++count[0]) || budget.isExpired()) {
+                    throw new HTMLParseBudget.ExceededException();
+                }
+                handler.handle(json);
+            });
+        } catch (HTMLParseBudget.ExceededException e) {
+            truncated = true;
+        }
+        return scanner.getResult();
     }
 
     /**
@@ -208,10 +1356,29 @@ public class HTMLParser {
      * @since 8.1
      */
     public String getTitle() {
+        if (headOnly) {
+            return getHead().getTitle();
+        }
+        return getCached(getTagsCacheKey("title"), this::parseTitle);
+    }
+
+    protected String parseTitle() {
 
         String title = null;
 
-        source.fullSequentialParse();
+        if (useFastScanner()) {
+            String[] found = { "" };
+            scanTags(tag -> {
+                if (HTMLElementName.TITLE.equals(tag.getName())) {
+                    found[0] = CharacterReference.decodeCollapseWhiteSpace(tag.getContent());
+                    return false;
+                }
+                return true;
+            });
+            return found[0];
+        }
+
+        Source source = getParsedSource();
         Element titleElement = source.getFirstElement(HTMLElementName.TITLE);
         if (titleElement != null) {
 
@@ -227,6 +1394,10 @@ public class HTMLParser {
      * <p>
      * For example, to get the keywords, call <code>getMetaValue("keywords")</code>. For the description:
      * <code>getMetaValue("description")</code>.
+     * <p>
+     * The key is compared (case insensitive) to the <code>name</code>, <code>property</code> and
+     * <code>http-equiv</code> attributes of the <code>meta</code> tags. All the metas are indexed the first time this
+     * method is called, so getting several metas costs a single scan of the document.
      * 
      * @param key
      * @return the value of the meta. "" if not found
@@ -234,22 +1405,92 @@ public class HTMLParser {
      */
     public String getMetaValue(String key) {
 
-        String value = null;
+        String value = getMetas().get(key.toLowerCase(Locale.ROOT));
+        return value == null ? "" : value;
+    }
 
-        source.fullSequentialParse();
-        int max = source.length();
-        for (int pos = 0; pos < max;) {
-            StartTag startTag = source.getNextStartTag(pos, "name", key, false);
-            if (startTag == null) {
-                return "";
-            }
-            if (startTag.getName() == HTMLElementName.META) {
-                value = startTag.getAttributeValue("content"); // Attribute values are automatically decoded
-                break;
-            }
-            pos = startTag.getEnd();
+    /**
+     * Returns the content of every <code>meta</code> tag, keyed by the lower-cased value of their <code>name</code>,
+     * <code>property</code> and <code>http-equiv</code> attributes. If a key is found several times, the first
+     * <code>meta</code> wins. Only the metas of the head are returned when {@link #setHeadOnly(boolean)} is set.
+     * <p>
+     * The <code>maxElements</code> of the budget limits the number of <code>meta</code> tags read.
+     * <p>
+     * The map is shared (see {@link HTMLParserCache}) and must not be modified.
+     *
+     * @return the metas
+     * @since 2023
+     */
+    public Map<String, String> getMetas() {
+
+        if (metas == null && headOnly) {
+            metas = getHead().getMetas();
+        }
+        if (metas == null) {
+            metas = getCached(getTagsCacheKey("metas"), () -> {
+                Map<String, String> result = new HashMap<String, String>();
+                int[] count = { 0 };
+                if (useFastScanner()) {
+                    scanTags(tag -> {
+                        if (budget.isExpired()) {
+                            truncated = true;
+                            return false;
+                        }
+                        if (HTMLElementName.META.equals(tag.getName())) {
+                            if (budget.isOverElements(++count[0])) {
+                                truncated = true;
+                                return false;
+                            }
+                            indexMeta(tag::getAttributeValue, result);
+                        }
+                        return true;
+                    });
+                    return result;
+                }
+                List<StartTag> metaTags = getParsedSource().getAllStartTags(HTMLElementName.META);
+                HTMLMetrics.countElements(metaTags.size());
+                for (StartTag startTag : metaTags) {
+                    if (budget.isOverElements(++count[0]) || budget.isExpired()) {
+                        truncated = true;
+                        break;
+                    }
+                    indexMeta(startTag, result);
+                }
+                return result;
+            });
         }
+        return metas;
+    }
 
-        return value == null ? "" : value;
+    /**
+     * Adds the content of the <code>meta</code> tag to the index, see {@link #getMetas()}
+     *
+     * @since 2023
+     */
+    protected static void indexMeta(StartTag metaTag, Map<String, String> index) {
+        indexMeta(metaTag::getAttributeValue, index);
+    }
+
+    /**
+     * Same as {@link #indexMeta(StartTag, Map)}, <code>attributes</code> returning the value of an attribute of the
+     * tag
+     *
+     * @since 2023
+     */
+    protected static void indexMeta(UnaryOperator<String> attributes, Map<String, String> index) {
+
+        String content = null;
+        for (String attr : META_KEY_ATTRIBUTES) {
+            String key = attributes.apply(attr);
+            if (key != null) {
+                if (content == null) {
+                    content = attributes.apply("content"); // Attribute values are automatically decoded
+                    if (content == null) {
+                        content = "";
+                    }
+                }
+                index.putIfAbsent(key.toLowerCase(Locale.ROOT), content);
+            }
+        }
     }
 }
@@ -0,0 +1,285 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.runtime.api.Framework;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Bounded, in-memory cache of the results computed by {@link HTMLParser} (links, text, title, ...), shared by all
+ * the operations.
+ * <p>
+ * Entries are keyed by the digest of the blob plus the parameters of the extraction, so an unchanged blob is never
+ * parsed twice. Inputs without a digest (String, Note documents, ...) are not cached.
+ * <p>
+ * Concurrent misses on the same key are computed once, the other callers wait for the result. Cached lists, maps and
+ * extractions are unmodifiable.
+ * <p>
+ * The weight of an entry is the approximate number of characters it holds. Configuration properties:
+ * <ul>
+ * <li><code>nuxeo.html.utils.cache.enabled</code>: default <code>true</code></li>
+ * <li><code>nuxeo.html.utils.cache.maxWeight</code>: total number of characters, default 32000000</li>
+ * <li><code>nuxeo.html.utils.cache.ttl</code>: time to live in seconds after write, default 3600</li>
+ * </ul>
+ *
+ * @since 2023
+ */
+public class HTMLParserCache {
+
+    public static final String ENABLED_PROPERTY = "nuxeo.html.utils.cache.enabled";
+
+    public static final String MAX_WEIGHT_PROPERTY = "nuxeo.html.utils.cache.maxWeight";
+
+    public static final String TTL_PROPERTY = "nuxeo.html.utils.cache.ttl";
+
+    public static final long DEFAULT_MAX_WEIGHT = 32_000_000L;
+
+    public static final long DEFAULT_TTL = 3600L;
+
+    // Fixed cost of an entry (key, references, ...), in characters
+    protected static final int ENTRY_OVERHEAD = 64;
+
+    protected static volatile HTMLParserCache instance;
+
+    protected final boolean enabled;
+
+    protected final Cache<String, Object> cache;
+
+    /**
+     * A value that must not be cached (partial or <code>null</code>). It is removed as soon as it is computed, the
+     * callers that were waiting for it compute their own value.
+     */
+    protected static class Uncached {
+
+        protected final Object value;
+
+        protected Uncached(Object value) {
+            this.value = value;
+        }
+    }
+
+    public static HTMLParserCache getInstance() {
+        if (instance == null) {
+            synchronized (HTMLParserCache.class) {
+                if (instance == null) {
+                    instance = new HTMLParserCache(
+                            !"false".equals(getProperty(ENABLED_PROPERTY, "true")),
+                            Long.parseLong(getProperty(MAX_WEIGHT_PROPERTY, String.valueOf(DEFAULT_MAX_WEIGHT))),
+                            Long.parseLong(getProperty(TTL_PROPERTY, String.valueOf(DEFAULT_TTL))));
+                }
+            }
+        }
+        return instance;
+    }
+
+    protected static String getProperty(String name, String defaultValue) {
+        return Framework.getRuntime() == null ? defaultValue : Framework.getProperty(name, defaultValue);
+    }
+
+    public HTMLParserCache(boolean enabled, long maxWeight, long ttlSeconds) {
+        this.enabled = enabled;
+        Weigher<String, Object> weigher = (key, value) -> weigh(key, value);
+        cache = CacheBuilder.newBuilder()
+                            .maximumWeight(maxWeight)
+                            .weigher(weigher)
+                            .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                            .recordStats()
+                            .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the cached value, or computes it with <code>loader</code> and caches it.
+     * <p>
+     * Returned values are shared: callers must not modify them.
+     *
+     * @param key
+     * @param loader
+     * @return the value
+     */
+    public <T> T get(String key, Supplier<T> loader) {
+        return get(key, loader, () -> true);
+    }
+
+    /**
+     * Same as {@link #get(String, Supplier)}, but the computed value is cached only if <code>cacheable</code> returns
+     * <code>true</code> once it is computed (a partial result for example must not be cached)
+     *
+     * @param key
+     * @param loader
+     * @param cacheable
+     * @return the value
+     * @since 2023
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Supplier<T> loader, BooleanSupplier cacheable) {
+
+        if (!enabled || key == null) {
+            return loader.get();
+        }
+
+        boolean[] computed = { false };
+        Object value;
+        try {
+            value = cache.get(key, () -> {
+                computed[0] = true;
+                T loaded = loader.get();
+                return loaded != null && cacheable.getAsBoolean() ? toShared(loaded) : new Uncached(loaded);
+            });
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new NuxeoException(cause);
+        }
+
+        if (value instanceof Uncached) {
+            cache.asMap().remove(key, value);
+            // When computed by another caller, it was with its own limits
+            return computed[0] ? (T) ((Uncached) value).value : loader.get();
+        }
+        return (T) value;
+    }
+
+    /**
+     * @return the value to share between the callers: lists, maps and extractions are unmodifiable
+     * @since 2023
+     */
+    protected static Object toShared(Object value) {
+
+        if (value instanceof List) {
+            return Collections.unmodifiableList((List<?>) value);
+        }
+        if (value instanceof Map) {
+            return Collections.unmodifiableMap((Map<?, ?>) value);
+        }
+        if (value instanceof HTMLExtraction) {
+            return ((HTMLExtraction) value).toUnmodifiable();
+        }
+        if (value instanceof StructuredData) {
+            return ((StructuredData) value).toUnmodifiable();
+        }
+        return value;
+    }
+
+    /**
+     * @return hit, miss and eviction counters since startup
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Builds a cache key from the digest of the input and the parameters of an extraction.
+     *
+     * @param digest the digest of the blob. If <code>null</code>, the result is <code>null</code> (not cacheable)
+     * @param kind what is extracted (links, text, ...)
+     * @param params the parameters that change the result
+     * @return the key or <code>null</code>
+     */
+    public static String buildKey(String digest, String kind, Object... params) {
+
+        if (digest == null) {
+            return null;
+        }
+
+        StringBuilder sb = new StringBuilder(digest).append('|').append(kind);
+        for (Object param : params) {
+            sb.append('|').append(param);
+        }
+        return sb.toString();
+    }
+
+    protected static int weigh(String key, Object value) {
+
+        long weight = ENTRY_OVERHEAD + key.length() + weighValue(value);
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+
+    protected static long weighValue(Object value) {
+
+        if (value instanceof CharSequence) {
+            return ((CharSequence) value).length();
+        }
+        if (value instanceof LinkInfo) {
+            LinkInfo li = (LinkInfo) value;
+            return ENTRY_OVERHEAD + length(li.getTag()) + length(li.getAttribute()) + length(li.getText())
+                    + length(li.getLink());
+        }
+        if (value instanceof Collection) {
+            long weight = 0;
+            for (Object item : (Collection<?>) value) {
+                weight += weighValue(item);
+            }
+            return weight;
+        }
+        if (value instanceof Map) {
+            long weight = 0;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                weight += weighValue(entry.getKey()) + weighValue(entry.getValue());
+            }
+            return weight;
+        }
+        if (value instanceof HTMLExtraction) {
+            HTMLExtraction extraction = (HTMLExtraction) value;
+            return length(extraction.title) + weighValue(extraction.metas) + weighValue(extraction.links)
+                    + weighValue(extraction.imgSrc) + length(extraction.plainText);
+        }
+        if (value instanceof StructuredData) {
+            StructuredData data = (StructuredData) value;
+            return weighValue(data.openGraph) + weighValue(data.twitter) + weighValue(data.jsonLd);
+        }
+        return ENTRY_OVERHEAD;
+    }
+
+    protected static int length(String str) {
+        return str == null ? 0 : str.length();
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.api.NuxeoPrincipal;
+import org.nuxeo.ecm.core.transientstore.api.TransientStore;
+import org.nuxeo.ecm.core.work.api.WorkManager;
+import org.nuxeo.html.utils.work.HTMLExtractionWork;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.kv.KeyValueStore;
+import org.nuxeo.runtime.model.ComponentContext;
+import org.nuxeo.runtime.model.DefaultComponent;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+
+/**
+ * Implementation of the {@link HTMLParserService}.
+ * <p>
+ * The <code>linkRules</code> extension point declares the tag/attribute pairs returned as links (see
+ * {@link LinkRuleDescriptor}). The default contribution declares <code>href</code> and <code>src</code> of any tag.
+ * <p>
+ * The <code>profiles</code> extension point declares the extraction profiles (see
+ * {@link HTMLExtractionProfileDescriptor}). A <code>default</code> profile replaces the built-in one, its values are
+ * the default values of the other profiles.
+ * <p>
+ * The rules and profiles are built once, when the component starts, and never modified after.
+ * <p>
+ * The asynchronous extractions run a {@link HTMLExtractionWork}, as the user who submitted them. Their id is random
+ * and only this user can read their status and result. The key-value store of the work maps the digest of the html,
+ * the parameters and the user to this id, so concurrent requests for the same extraction share the same work and the
+ * same result.
+ *
+ * @since 2023
+ */
+public class HTMLParserComponent extends DefaultComponent implements HTMLParserService {
+
+    public static final String XP_LINK_RULES = "linkRules";
+
+    public static final String XP_PROFILES = "profiles";
+
+    protected volatile LinkRules linkRules = LinkRules.DEFAULT;
+
+    protected volatile Map<String, HTMLExtractionProfile> profiles = Map.of();
+
+    protected volatile HTMLExtractionProfile defaultProfile = HTMLExtractionProfile.getDefault();
+
+    @Override
+    public void start(ComponentContext context) {
+
+        // The configuration properties are read once, an invalid value is ignored. Before the profiles, whose default
+        // budget is the configured one
+        HTMLParseBudget.readDefaults();
+        HTMLParser.readDefaults();
+
+        List<LinkRuleDescriptor> rules = getDescriptors(XP_LINK_RULES);
+        linkRules = new LinkRules(rules);
+        LinkRules.current = linkRules;
+
+        HTMLExtractionProfile builtIn = HTMLExtractionProfile.getDefault();
+        HTMLExtractionProfileDescriptor defaultDesc = getDescriptor(XP_PROFILES, DEFAULT_PROFILE);
+        HTMLExtractionProfile newDefault = defaultDesc == null ? builtIn : defaultDesc.toProfile(builtIn);
+
+        Map<String, HTMLExtractionProfile> newProfiles = new HashMap<String, HTMLExtractionProfile>();
+        List<HTMLExtractionProfileDescriptor> descriptors = getDescriptors(XP_PROFILES);
+        for (HTMLExtractionProfileDescriptor desc : descriptors) {
+            newProfiles.put(desc.getId(), desc.toProfile(newDefault));
+        }
+        newProfiles.put(DEFAULT_PROFILE, newDefault);
+
+        defaultProfile = newDefault;
+        profiles = Map.copyOf(newProfiles);
+
+        // Results computed with the previous configuration
+        HTMLParserCache.getInstance().invalidateAll();
+
+        HTMLBatchRunner.startExecutor();
+        HTMLMetrics.start();
+    }
+
+    @Override
+    public void stop(ComponentContext context) throws InterruptedException {
+        HTMLBatchRunner.shutdownExecutor();
+        HTMLMetrics.stop();
+        HTMLParseBudget.resetDefaults();
+        HTMLParser.resetDefaults();
+        linkRules = LinkRules.DEFAULT;
+        LinkRules.current = LinkRules.DEFAULT;
+        profiles = Map.of();
+        defaultProfile = HTMLExtractionProfile.getDefault();
+    }
+
+    @Override
+    public HTMLExtractionProfile getProfile(String name) {
+
+        if (StringUtils.isBlank(name)) {
+            return defaultProfile;
+        }
+        HTMLExtractionProfile profile = profiles.get(name.trim());
+        if (profile == null) {
+            throw new NuxeoException("Unknown html extraction profile: " + name);
+        }
+        return profile;
+    }
+
+    @Override
+    public Set<String> getProfileNames() {
+        return profiles.keySet();
+    }
+
+    @Override
+    public LinkRules getLinkRules() {
+        return linkRules;
+    }
+
+    @Override
+    public HTMLParserCache getCache() {
+        return HTMLParserCache.getInstance();
+    }
+
+    @Override
+    public HTMLParser newParser(Blob blob, HTMLExtractionProfile profile) throws IOException {
+        return configure(new HTMLParser(blob), profile);
+    }
+
+    @Override
+    public HTMLParser newParser(String html, HTMLExtractionProfile profile) throws IOException {
+        return configure(new HTMLParser(html), profile);
+    }
+
+    @Override
+    public HTMLParser newParser(DocumentModel doc, String xpath, HTMLExtractionProfile profile) throws IOException {
+        return configure(new HTMLParser(doc, xpath), profile);
+    }
+
+    @Override
+    public String submit(Blob blob, Map<String, Serializable> params) throws IOException {
+        return submit(blob, params, null);
+    }
+
+    @Override
+    public String submit(DocumentModel doc, Map<String, Serializable> params) throws IOException {
+
+        String xpath = params == null ? null : (String) params.get("xpath");
+        Blob blob = HTMLParser.getBlob(doc, xpath);
+        if (blob == null) {
+            return null;
+        }
+        return submit(blob, params, doc);
+    }
+
+    /**
+     * Returns the id of the extraction of the html, scheduling it if needed. The key-value store is updated with a
+     * compare-and-set: when concurrent calls find no extraction, only one of them schedules it and the others return
+     * its id. An existing extraction is never modified.
+     *
+     * @param blob the html
+     * @param params the parameters of HTML.Extract
+     * @param doc the document read by the work, <code>null</code> to store the blob instead
+     */
+    protected String submit(Blob blob, Map<String, Serializable> params, DocumentModel doc) throws IOException {
+
+        String digest = HTMLExtractedData.getSourceDigest(blob);
+        String key = getExtractionKey(digest, params);
+        String username = getCurrentUsername();
+        TransientStore store = HTMLExtractionWork.getStore();
+        KeyValueStore keyValueStore = HTMLExtractionWork.getKeyValueStore();
+        for (;;) {
+            String current = keyValueStore.getString(key);
+            if (isScheduled(store, current)) {
+                return current;
+            }
+
+            // The entry exists before the id is visible, so the other callers find it scheduled
+            String id = newExtractionId();
+            store.putParameter(id, HTMLExtractionWork.PARAM_STATUS, HTMLExtractionWork.STATUS_SCHEDULED);
+            if (username != null) {
+                store.putParameter(id, HTMLExtractionWork.PARAM_USER, username);
+            }
+            if (!keyValueStore.compareAndSet(key, current, id, HTMLExtractionWork.getTTL())) {
+                // Another call scheduled it first, or replaced the failed one first
+                store.remove(id);
+                continue;
+            }
+
+            HTMLExtractionWork work = new HTMLExtractionWork(id, params);
+            work.setOriginatingUsername(username);
+            if (doc == null) {
+                store.putBlobs(id, List.of(blob));
+            } else {
+                work.setDocument(doc.getRepositoryName(), doc.getId());
+                // The document may be modified before the work reads it
+                work.setSourceDigest(digest);
+            }
+            // After the commit, so the work reads the document as saved by this transaction
+            Framework.getService(WorkManager.class).schedule(work, true);
+            clearOnRollback(key, id);
+            return id;
+        }
+    }
+
+    /**
+     * On rollback, the work scheduled after the commit never runs: the key must not point to it, or the next calls
+     * would return an extraction that stays scheduled until its entry expires
+     */
+    protected void clearOnRollback(String key, String id) {
+
+        if (!TransactionHelper.isTransactionActive()) {
+            // The work is scheduled right away
+            return;
+        }
+        TransactionHelper.registerSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+                // nothing
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status != Status.STATUS_COMMITTED) {
+                    HTMLExtractionWork.getKeyValueStore().compareAndSet(key, id, null);
+                    HTMLExtractionWork.getStore().remove(id);
+                }
+            }
+        });
+    }
+
+    @Override
+    public String getStatus(String id) {
+
+        TransientStore store = HTMLExtractionWork.getStore();
+        if (StringUtils.isBlank(id) || !store.exists(id)
+                || !Objects.equals(getCurrentUsername(), store.getParameter(id, HTMLExtractionWork.PARAM_USER))) {
+            return null;
+        }
+        return (String) store.getParameter(id, HTMLExtractionWork.PARAM_STATUS);
+    }
+
+    @Override
+    public String getResult(String id) throws IOException {
+
+        if (!HTMLExtractionWork.STATUS_COMPLETED.equals(getStatus(id))) {
+            return null;
+        }
+        List<Blob> blobs = HTMLExtractionWork.getStore().getBlobs(id);
+        return blobs == null || blobs.isEmpty() ? null : blobs.get(0).getString();
+    }
+
+    /**
+     * @return a key depending only on the digest of the html, the parameters (sorted by name) and the current user
+     */
+    protected String getExtractionKey(String digest, Map<String, Serializable> params) {
+
+        String paramsStr = params == null ? "" : new TreeMap<String, Serializable>(params).toString();
+        return "html-extract-" + DigestUtils.md5Hex(digest + "|" + paramsStr + "|" + getCurrentUsername());
+    }
+
+    /**
+     * @return a new random id, that cannot be guessed from the html nor the parameters
+     */
+    protected String newExtractionId() {
+        return "html-extract-" + UUID.randomUUID();
+    }
+
+    /**
+     * @return <code>true</code> if the extraction is scheduled, running or completed, <code>false</code> if the id is
+     *         <code>null</code>, it expired or failed
+     */
+    protected boolean isScheduled(TransientStore store, String id) {
+        return id != null && store.exists(id)
+                && !HTMLExtractionWork.STATUS_FAILED.equals(store.getParameter(id, HTMLExtractionWork.PARAM_STATUS));
+    }
+
+    protected String getCurrentUsername() {
+        NuxeoPrincipal principal = NuxeoPrincipal.getCurrent();
+        return principal == null ? null : principal.getName();
+    }
+
+    protected HTMLParser configure(HTMLParser parser, HTMLExtractionProfile profile) {
+        return parser.setLinkRules(linkRules).setProfile(profile == null ? defaultProfile : profile);
+    }
+}
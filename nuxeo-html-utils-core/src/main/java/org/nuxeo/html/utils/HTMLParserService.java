@@ -0,0 +1,122 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Set;
+
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.DocumentModel;
+
+/**
+ * Creates the {@link HTMLParser}s configured for the server: extraction profiles, link rules and cache.
+ * <p>
+ * The service is thread-safe, and so are the profiles and the link rules it returns. A parser is not: create one per
+ * input.
+ *
+ * @since 2023
+ */
+public interface HTMLParserService {
+
+    String DEFAULT_PROFILE = "default";
+
+    /**
+     * @param name the name of the profile. If blank, returns the default profile
+     * @return the profile
+     * @throws org.nuxeo.ecm.core.api.NuxeoException if there is no such profile
+     */
+    HTMLExtractionProfile getProfile(String name);
+
+    /**
+     * @return the names of the contributed profiles
+     */
+    Set<String> getProfileNames();
+
+    /**
+     * @return the tag/attribute pairs returned as links
+     */
+    LinkRules getLinkRules();
+
+    /**
+     * @return the cache shared by the parsers
+     */
+    HTMLParserCache getCache();
+
+    /**
+     * @param blob the html
+     * @param profile the profile, the default one if <code>null</code>
+     * @return a new parser, configured with the profile and the link rules
+     */
+    HTMLParser newParser(Blob blob, HTMLExtractionProfile profile) throws IOException;
+
+    /**
+     * @param html the html
+     * @param profile the profile, the default one if <code>null</code>
+     * @return a new parser, configured with the profile and the link rules
+     */
+    HTMLParser newParser(String html, HTMLExtractionProfile profile) throws IOException;
+
+    /**
+     * @param doc the document, see {@link HTMLParser#getBlob(DocumentModel, String)}
+     * @param xpath the field holding the html, can be <code>null</code>
+     * @param profile the profile, the default one if <code>null</code>
+     * @return a new parser, configured with the profile and the link rules
+     */
+    HTMLParser newParser(DocumentModel doc, String xpath, HTMLExtractionProfile profile) throws IOException;
+
+    /**
+     * Schedules the extraction of the html (as done by HTML.Extract) in the <code>htmlExtraction</code> WorkManager
+     * queue.
+     * <p>
+     * The returned id is random. While an extraction is scheduled, running or completed, submitting the same html with
+     * the same parameters, as the same user, returns its id without scheduling another one.
+     *
+     * @param blob the html
+     * @param params the parameters of HTML.Extract, can be <code>null</code>
+     * @return the id to pass to {@link #getStatus(String)} and {@link #getResult(String)}
+     */
+    String submit(Blob blob, Map<String, Serializable> params) throws IOException;
+
+    /**
+     * Same as {@link #submit(Blob, Map)}, the document being loaded by the work. The <code>xpath</code> parameter is
+     * the field holding the html, see {@link HTMLParser#getBlob(DocumentModel, String)}.
+     *
+     * @param doc the document
+     * @param params the parameters of HTML.Extract, can be <code>null</code>
+     * @return the id of the extraction, <code>null</code> if the document has no html
+     */
+    String submit(DocumentModel doc, Map<String, Serializable> params) throws IOException;
+
+    /**
+     * @param id the id returned by <code>submit</code>
+     * @return the status (scheduled, running, completed or failed, see
+     *         {@link org.nuxeo.html.utils.work.HTMLExtractionWork}), <code>null</code> if the id is unknown, expired
+     *         or was submitted by another user
+     */
+    String getStatus(String id);
+
+    /**
+     * @param id the id returned by <code>submit</code>
+     * @return the JSON result of HTML.Extract, <code>null</code> if the extraction is not completed or failed
+     */
+    String getResult(String id) throws IOException;
+
+}
@@ -0,0 +1,220 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+import org.json.JSONObject;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import com.fasterxml.jackson.core.io.CharacterEscapes;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+/**
+ * JSON writer streaming to a {@link Writer} with a Jackson {@link JsonGenerator}, instead of building
+ * <code>JSONObject</code>/<code>JSONArray</code> trees, while keeping the output of org.json:
+ * <ul>
+ * <li>String values are quoted with {@link JSONObject#quote(String)} and written as raw values</li>
+ * <li>Names are escaped as <code>JSONObject#quote</code> does, character by character. The only difference is a
+ * <code>/</code> following a <code>&lt;</code>, that org.json escapes and that is written as is in a name (names are
+ * the fields of the operations and the names of the metas)</li>
+ * <li>A <code>JSONObject</code> does not keep the order of its keys. To write exactly what <code>toString()</code>
+ * would have returned, write the names in the order given by {@link #orgJsonOrder(String...)} and skip the
+ * <code>null</code> values (<code>JSONObject#put</code> removes the key in this case), see {@link #object(Map)}</li>
+ * </ul>
+ * The generator checks the structure (matching begin/end, a name before each value of an object). The output is
+ * flushed to the writer each time a top level value is complete, and by {@link #flush()}.
+ *
+ * @since 2023
+ */
+public class JSONStreamWriter {
+
+    // The writer belongs to the caller
+    protected static final JsonFactory FACTORY = JsonFactory.builder()
+                                                            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+                                                            .build();
+
+    protected static final CharacterEscapes ORG_JSON_ESCAPES = new OrgJsonEscapes();
+
+    protected JsonGenerator generator;
+
+    public JSONStreamWriter(Writer writer) throws IOException {
+        generator = FACTORY.createGenerator(writer);
+        generator.setCharacterEscapes(ORG_JSON_ESCAPES);
+    }
+
+    /**
+     * Returns the underlying generator, for values this class does not write
+     */
+    public JsonGenerator getGenerator() {
+        return generator;
+    }
+
+    public JSONStreamWriter beginArray() throws IOException {
+        generator.writeStartArray();
+        return this;
+    }
+
+    public JSONStreamWriter endArray() throws IOException {
+        generator.writeEndArray();
+        return flushAtRoot();
+    }
+
+    public JSONStreamWriter beginObject() throws IOException {
+        generator.writeStartObject();
+        return this;
+    }
+
+    public JSONStreamWriter endObject() throws IOException {
+        generator.writeEndObject();
+        return flushAtRoot();
+    }
+
+    public JSONStreamWriter name(String name) throws IOException {
+        generator.writeFieldName(name);
+        return this;
+    }
+
+    /**
+     * Writes a string, or <code>null</code>
+     */
+    public JSONStreamWriter value(String value) throws IOException {
+        return rawValue(value == null ? null : JSONObject.quote(value));
+    }
+
+    public JSONStreamWriter value(boolean value) throws IOException {
+        generator.writeBoolean(value);
+        return flushAtRoot();
+    }
+
+    public JSONStreamWriter value(long value) throws IOException {
+        generator.writeNumber(value);
+        return flushAtRoot();
+    }
+
+    /**
+     * Writes an already serialized JSON value as is, or <code>null</code>
+     */
+    public JSONStreamWriter rawValue(String json) throws IOException {
+        if (json == null) {
+            generator.writeNull();
+        } else {
+            generator.writeRawValue(json);
+        }
+        return flushAtRoot();
+    }
+
+    /**
+     * Writes a name/value pair in the current object
+     */
+    public JSONStreamWriter property(String name, String value) throws IOException {
+        return name(name).value(value);
+    }
+
+    /**
+     * Writes a name/value pair in the current object, unless the value is <code>null</code> (as
+     * <code>JSONObject#put</code> does)
+     */
+    public JSONStreamWriter optProperty(String name, String value) throws IOException {
+        return value == null ? this : property(name, value);
+    }
+
+    /**
+     * Writes an object with the values of the map (strings or booleans), in the order of
+     * <code>JSONObject#toString()</code>
+     */
+    public JSONStreamWriter object(Map<String, ?> values) throws IOException {
+        beginObject();
+        for (String name : orgJsonOrder(values.keySet().toArray(new String[0]))) {
+            Object value = values.get(name);
+            if (value instanceof Boolean) {
+                name(name).value(((Boolean) value).booleanValue());
+            } else {
+                optProperty(name, (String) value);
+            }
+        }
+        return endObject();
+    }
+
+    /**
+     * Returns the names in the order a <code>JSONObject</code> holding them (put in this order) writes them: the
+     * iteration order of its <code>HashMap</code>, which depends only on the names and their order. It is computed
+     * with a probe <code>JSONObject</code> at each call, callers writing the same names many times keep the result
+     * (see <code>HTMLGetLinksOp</code>).
+     */
+    public static String[] orgJsonOrder(String... names) {
+        JSONObject probe = new JSONObject();
+        for (String name : names) {
+            probe.put(name, Boolean.TRUE);
+        }
+        String[] ordered = JSONObject.getNames(probe);
+        return ordered == null ? new String[0] : ordered;
+    }
+
+    public void flush() throws IOException {
+        generator.flush();
+    }
+
+    protected JSONStreamWriter flushAtRoot() throws IOException {
+        if (generator.getOutputContext().inRoot()) {
+            generator.flush();
+        }
+        return this;
+    }
+
+    /**
+     * The escapes of <code>JSONObject#quote</code>: short escapes for <code>\b \t \n \f \r</code>, lower case
+     * <code>&#92;uxxxx</code> for the other control characters and for the ranges <code>U+0080-U+009F</code> and
+     * <code>U+2000-U+20FF</code>
+     */
+    protected static class OrgJsonEscapes extends CharacterEscapes {
+
+        private static final long serialVersionUID = 1L;
+
+        protected final int[] asciiEscapes;
+
+        protected OrgJsonEscapes() {
+            asciiEscapes = standardAsciiEscapesForJSON();
+            for (int c = 0; c < 0x20; c++) {
+                if (asciiEscapes[c] == ESCAPE_STANDARD) {
+                    asciiEscapes[c] = ESCAPE_CUSTOM;
+                }
+            }
+        }
+
+        @Override
+        public int[] getEscapeCodesForAscii() {
+            return asciiEscapes;
+        }
+
+        @Override
+        public SerializableString getEscapeSequence(int c) {
+            if (c < 0x20 || (c >= 0x80 && c < 0xa0) || (c >= 0x2000 && c < 0x2100)) {
+                String hex = Integer.toHexString(c);
+                return new SerializedString("\\u0000".substring(0, 6 - hex.length()) + hex);
+            }
+            return null;
+        }
+    }
+}
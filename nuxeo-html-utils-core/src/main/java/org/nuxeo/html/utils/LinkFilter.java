@@ -0,0 +1,269 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Selects the links returned by {@link HTMLParser#getLinks(LinkFilter)}. The filter is evaluated while scanning the
+ * start tags, before the text of the link is extracted, so rejected links cost almost nothing:
+ * <ul>
+ * <li><code>tags</code>: only the links of these tags</li>
+ * <li><code>attributes</code>: only the links of these attributes</li>
+ * <li><code>schemes</code>: only the links with these schemes (http, https, mailto, ...)</li>
+ * <li><code>hosts</code>: only the links to these hosts or their sub-domains</li>
+ * <li><code>excludedHosts</code>: not the links to these hosts or their sub-domains</li>
+ * <li><code>pattern</code>: only the links containing a match of this regular expression</li>
+ * </ul>
+ * Empty values accept everything. The filter applies to the link as it is in the html: a relative link has no scheme
+ * nor host, so it is rejected when <code>schemes</code> or <code>hosts</code> is set.
+ *
+ * @since 2023
+ */
+public class LinkFilter {
+
+    protected Set<String> tags = Collections.emptySet();
+
+    protected Set<String> attributes = Collections.emptySet();
+
+    protected Set<String> schemes = Collections.emptySet();
+
+    protected Set<String> hosts = Collections.emptySet();
+
+    protected Set<String> excludedHosts = Collections.emptySet();
+
+    protected Pattern pattern;
+
+    public LinkFilter() {
+        // accepts everything
+    }
+
+    /**
+     * Builds a filter from comma-separated lists, as received by the operations.
+     *
+     * @return the filter, <code>null</code> if every value is empty
+     */
+    public static LinkFilter of(String tags, String attributes, String schemes, String hosts, String excludedHosts,
+            String pattern) {
+
+        LinkFilter filter = new LinkFilter().setTags(split(tags))
+                                            .setAttributes(split(attributes))
+                                            .setSchemes(split(schemes))
+                                            .setHosts(split(hosts))
+                                            .setExcludedHosts(split(excludedHosts))
+                                            .setPattern(StringUtils.isBlank(pattern) ? null : Pattern.compile(pattern));
+        return filter.isEmpty() ? null : filter;
+    }
+
+    protected static List<String> split(String list) {
+
+        List<String> values = new ArrayList<String>();
+        if (StringUtils.isNotBlank(list)) {
+            for (String value : list.split(",")) {
+                if (StringUtils.isNotBlank(value)) {
+                    values.add(value.trim());
+                }
+            }
+        }
+        return values;
+    }
+
+    protected static Set<String> toLowerCaseSet(Collection<String> values) {
+
+        Set<String> set = new LinkedHashSet<String>();
+        if (values != null) {
+            for (String value : values) {
+                set.add(value.toLowerCase(Locale.ROOT));
+            }
+        }
+        return set;
+    }
+
+    public LinkFilter setTags(Collection<String> tags) {
+        this.tags = toLowerCaseSet(tags);
+        return this;
+    }
+
+    public LinkFilter setAttributes(Collection<String> attributes) {
+        this.attributes = toLowerCaseSet(attributes);
+        return this;
+    }
+
+    public LinkFilter setSchemes(Collection<String> schemes) {
+        this.schemes = toLowerCaseSet(schemes);
+        return this;
+    }
+
+    public LinkFilter setHosts(Collection<String> hosts) {
+        this.hosts = toLowerCaseSet(hosts);
+        return this;
+    }
+
+    public LinkFilter setExcludedHosts(Collection<String> excludedHosts) {
+        this.excludedHosts = toLowerCaseSet(excludedHosts);
+        return this;
+    }
+
+    public LinkFilter setPattern(Pattern pattern) {
+        this.pattern = pattern;
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return tags.isEmpty() && attributes.isEmpty() && schemes.isEmpty() && hosts.isEmpty()
+                && excludedHosts.isEmpty() && pattern == null;
+    }
+
+    /**
+     * @param tag the lower case name of the tag
+     */
+    public boolean acceptsTag(String tag) {
+        return tags.isEmpty() || tags.contains(tag);
+    }
+
+    /**
+     * @param attribute the lower case name of the attribute
+     */
+    public boolean acceptsAttribute(String attribute) {
+        return attributes.isEmpty() || attributes.contains(attribute);
+    }
+
+    /**
+     * @param link the link, as it is in the html
+     */
+    public boolean acceptsLink(String link) {
+
+        if (!schemes.isEmpty() && !schemes.contains(getScheme(link))) {
+            return false;
+        }
+        if (!hosts.isEmpty() || !excludedHosts.isEmpty()) {
+            String host = getHost(link);
+            if (!hosts.isEmpty() && !matchesHost(hosts, host)) {
+                return false;
+            }
+            if (matchesHost(excludedHosts, host)) {
+                return false;
+            }
+        }
+        return pattern == null || (link != null && pattern.matcher(link).find());
+    }
+
+    public boolean accepts(LinkInfo li) {
+        return acceptsTag(li.getTag()) && acceptsAttribute(li.getAttribute()) && acceptsLink(li.getLink());
+    }
+
+    /**
+     * @return a new list with the links accepted by the filter
+     */
+    public ArrayList<LinkInfo> filter(List<LinkInfo> links) {
+
+        ArrayList<LinkInfo> result = new ArrayList<LinkInfo>();
+        for (LinkInfo li : links) {
+            if (accepts(li)) {
+                result.add(li);
+            }
+        }
+        return result;
+    }
+
+    protected static boolean matchesHost(Set<String> hosts, String host) {
+
+        if (host == null) {
+            return false;
+        }
+        for (String oneHost : hosts) {
+            if (host.equals(oneHost) || host.endsWith("." + oneHost)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the lower case scheme of the link, <code>null</code> if it is relative
+     */
+    public static String getScheme(String link) {
+
+        if (link == null) {
+            return null;
+        }
+        link = link.trim();
+        for (int i = 0; i < link.length(); i++) {
+            char c = link.charAt(i);
+            if (c == ':') {
+                return i == 0 ? null : link.substring(0, i).toLowerCase(Locale.ROOT);
+            }
+            boolean schemeChar = i == 0 ? Character.isLetter(c)
+                    : Character.isLetterOrDigit(c) || c == '+' || c == '-' || c == '.';
+            if (!schemeChar) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the lower case host of the link, <code>null</code> if it has none
+     */
+    public static String getHost(String link) {
+
+        if (link == null) {
+            return null;
+        }
+        link = link.trim();
+        String scheme = getScheme(link);
+        int start = scheme == null ? 0 : scheme.length() + 1;
+        if (!link.startsWith("//", start)) {
+            return null;
+        }
+        start += 2;
+        int end = start;
+        while (end < link.length() && "/?#".indexOf(link.charAt(end)) < 0) {
+            end++;
+        }
+        String host = link.substring(start, end);
+        host = host.substring(host.lastIndexOf('@') + 1);
+        if (host.startsWith("[")) {
+            // IPv6
+            int close = host.indexOf(']');
+            host = close < 0 ? host : host.substring(0, close + 1);
+        } else if (host.indexOf(':') >= 0) {
+            host = host.substring(0, host.indexOf(':'));
+        }
+        return host.isEmpty() ? null : host.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Used in the keys of the cache
+     */
+    @Override
+    public String toString() {
+        return "tags=" + tags + ";attributes=" + attributes + ";schemes=" + schemes + ";hosts=" + hosts
+                + ";excludedHosts=" + excludedHosts + ";pattern=" + (pattern == null ? "" : pattern.pattern());
+    }
+}
@@ -33,6 +33,9 @@ public class LinkInfo {
 
     protected String link;
 
+    // Number of occurrences, when the links are de-duplicated (see LinkResolver)
+    protected int count = 1;
+
     public LinkInfo(String tag, String attribute, String text, String link) {
         this.tag = tag;
         this.attribute = attribute;
@@ -56,6 +59,14 @@ public class LinkInfo {
         return link;
     }
 
+    /**
+     * @return the number of occurrences of the link, see {@link LinkResolver#process}
+     * @since 2023
+     */
+    public int getCount() {
+        return count;
+    }
+
     public String toString() {
         return "tag: " + tag + " - attribute: " + attribute + " - text: " + text + " - link: " + link;
     }
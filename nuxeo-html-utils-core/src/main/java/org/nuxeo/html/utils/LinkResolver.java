@@ -0,0 +1,228 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Resolves the links against a base url, normalizes and de-duplicates them.
+ * <p>
+ * The normalization lower-cases the scheme and the host, removes the default port (80 for http, 443 for https, 21 for
+ * ftp) and the dot segments of the path, and uses "/" as the empty path. A link that is not a valid URI is returned
+ * unchanged.
+ *
+ * @since 2023
+ */
+public class LinkResolver {
+
+    private LinkResolver() {
+        // static methods only
+    }
+
+    /**
+     * Returns the base to resolve the links of a page: its <code>&lt;base href&gt;</code> (itself resolved against
+     * <code>pageUrl</code>) or <code>pageUrl</code>.
+     *
+     * @param pageUrl the url of the page, can be <code>null</code>
+     * @param baseHref the <code>&lt;base href&gt;</code> of the page, can be <code>null</code>
+     * @return the base, <code>null</code> if none
+     */
+    public static String getBase(String pageUrl, String baseHref) {
+
+        if (StringUtils.isBlank(baseHref)) {
+            return StringUtils.isBlank(pageUrl) ? null : pageUrl.trim();
+        }
+        return StringUtils.isBlank(pageUrl) ? baseHref.trim() : resolve(pageUrl.trim(), baseHref.trim());
+    }
+
+    /**
+     * Returns <code>link</code> resolved against <code>base</code>, and normalized.
+     *
+     * @param base can be <code>null</code>, the link is only normalized
+     * @param link
+     * @return the link, <code>null</code> if <code>link</code> is <code>null</code>
+     */
+    public static String resolve(String base, String link) {
+
+        if (link == null) {
+            return null;
+        }
+        String trimmed = link.trim();
+
+        URI linkUri = toURI(trimmed);
+        URI baseUri = base == null ? null : toURI(base);
+        if (linkUri == null || baseUri == null || linkUri.isAbsolute() || baseUri.isOpaque()) {
+            return linkUri == null ? link : normalize(linkUri);
+        }
+
+        // java.net.URI follows RFC 2396 for these cases, RFC 3986 changed them
+        String baseNoFragment = StringUtils.substringBefore(baseUri.toString(), "#");
+        if (trimmed.isEmpty()) {
+            return normalize(toURI(baseNoFragment));
+        }
+        if (trimmed.startsWith("?")) {
+            return normalize(toURI(StringUtils.substringBefore(baseNoFragment, "?") + trimmed));
+        }
+
+        return normalize(baseUri.resolve(linkUri));
+    }
+
+    /**
+     * @param link
+     * @return the normalized link, unchanged if it is not a valid URI
+     */
+    public static String normalize(String link) {
+
+        URI uri = link == null ? null : toURI(link.trim());
+        return uri == null ? link : normalize(uri);
+    }
+
+    protected static String normalize(URI uri) {
+
+        if (uri == null) {
+            return null;
+        }
+
+        String scheme = uri.getScheme() == null ? null : uri.getScheme().toLowerCase(Locale.ROOT);
+        if (uri.isOpaque()) {
+            // mailto:, javascript:, ...
+            return scheme + ":" + uri.getRawSchemeSpecificPart()
+                    + (uri.getRawFragment() == null ? "" : "#" + uri.getRawFragment());
+        }
+
+        uri = uri.normalize();
+        StringBuilder sb = new StringBuilder();
+        if (scheme != null) {
+            sb.append(scheme).append(':');
+        }
+        if (uri.getHost() != null) {
+            sb.append("//");
+            if (uri.getRawUserInfo() != null) {
+                sb.append(uri.getRawUserInfo()).append('@');
+            }
+            sb.append(uri.getHost().toLowerCase(Locale.ROOT));
+            int port = uri.getPort();
+            if (port != -1 && port != getDefaultPort(scheme)) {
+                sb.append(':').append(port);
+            }
+        } else if (uri.getRawAuthority() != null) {
+            sb.append("//").append(uri.getRawAuthority());
+        }
+
+        String path = uri.getRawPath() == null ? "" : uri.getRawPath();
+        if (uri.getRawAuthority() != null) {
+            // Dot segments above the root are removed too
+            while (path.startsWith("/../")) {
+                path = path.substring(3);
+            }
+            if (path.equals("/..")) {
+                path = "/";
+            }
+            if (path.isEmpty()) {
+                path = "/";
+            }
+        }
+        sb.append(path);
+        if (uri.getRawQuery() != null) {
+            sb.append('?').append(uri.getRawQuery());
+        }
+        if (uri.getRawFragment() != null) {
+            sb.append('#').append(uri.getRawFragment());
+        }
+        return sb.toString();
+    }
+
+    protected static int getDefaultPort(String scheme) {
+
+        if (scheme == null) {
+            return -1;
+        }
+        switch (scheme) {
+        case "http":
+            return 80;
+        case "https":
+            return 443;
+        case "ftp":
+            return 21;
+        default:
+            return -1;
+        }
+    }
+
+    protected static URI toURI(String value) {
+
+        try {
+            return new URI(value);
+        } catch (URISyntaxException e) {
+            try {
+                // Spaces are common in the links found in html
+                return new URI(value.replace(" ", "%20"));
+            } catch (URISyntaxException e2) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Resolves (if <code>resolve</code> is <code>true</code>) and de-duplicates (if <code>deduplicate</code> is
+     * <code>true</code>) the links. Duplicates are found using the normalized link: the first occurrence is kept, with
+     * the number of occurrences in {@link LinkInfo#getCount()}.
+     *
+     * @param links
+     * @param base the base to resolve the links, see {@link #getBase(String, String)}
+     * @param resolve
+     * @param deduplicate
+     * @return a new list
+     */
+    public static ArrayList<LinkInfo> process(List<LinkInfo> links, String base, boolean resolve,
+            boolean deduplicate) {
+
+        if (!resolve && !deduplicate) {
+            return new ArrayList<LinkInfo>(links);
+        }
+
+        Map<String, LinkInfo> unique = deduplicate ? new LinkedHashMap<String, LinkInfo>() : null;
+        ArrayList<LinkInfo> result = new ArrayList<LinkInfo>(deduplicate ? 16 : links.size());
+        for (LinkInfo li : links) {
+            String link = resolve ? resolve(base, li.getLink()) : li.getLink();
+            if (deduplicate) {
+                String key = resolve ? link : normalize(link);
+                LinkInfo first = unique.get(key);
+                if (first != null) {
+                    first.count++;
+                    continue;
+                }
+                LinkInfo copy = new LinkInfo(li.getTag(), li.getAttribute(), li.getText(), link);
+                unique.put(key, copy);
+                result.add(copy);
+            } else {
+                result.add(new LinkInfo(li.getTag(), li.getAttribute(), li.getText(), link));
+            }
+        }
+        return result;
+    }
+}
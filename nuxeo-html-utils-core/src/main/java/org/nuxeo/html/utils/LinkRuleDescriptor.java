@@ -0,0 +1,119 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils;
+
+import java.util.Locale;
+
+import org.apache.commons.lang3.StringUtils;
+import org.nuxeo.common.xmap.annotation.XNode;
+import org.nuxeo.common.xmap.annotation.XObject;
+import org.nuxeo.runtime.model.Descriptor;
+
+/**
+ * A tag/attribute pair holding a link, contributed to the <code>linkRules</code> extension point of
+ * {@link HTMLParserComponent}:
+ *
+ * <pre>
+ * &lt;rule tag="img" attribute="srcset" type="srcset" /&gt;
+ * </pre>
+ * <ul>
+ * <li><code>tag</code>: the name of the tag, <code>*</code> (or empty) for any tag</li>
+ * <li><code>attribute</code>: the name of the attribute</li>
+ * <li><code>type</code>: how the value is read, see {@link Type}. Default <code>url</code></li>
+ * <li><code>remove</code>: <code>true</code> to remove a rule contributed before</li>
+ * </ul>
+ *
+ * @since 2023
+ */
+@XObject("rule")
+public class LinkRuleDescriptor implements Descriptor {
+
+    public static final String ANY_TAG = "*";
+
+    /**
+     * How the value of the attribute is read
+     */
+    public enum Type {
+        /** The value is the link */
+        URL,
+        /** The value is a list of "url [descriptor]" separated with commas, each url is a link */
+        SRCSET,
+        /** The value is "delay; url=the link", used only if the http-equiv attribute of the tag is "refresh" */
+        REFRESH;
+
+        public static Type parse(String value) {
+            return StringUtils.isBlank(value) ? URL : valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    @XNode("@tag")
+    protected String tag;
+
+    @XNode("@attribute")
+    protected String attribute;
+
+    @XNode("@type")
+    protected String type;
+
+    @XNode("@remove")
+    protected boolean remove = false;
+
+    public LinkRuleDescriptor() {
+        // for XMap
+    }
+
+    public LinkRuleDescriptor(String tag, String attribute, Type type) {
+        this.tag = tag;
+        this.attribute = attribute;
+        this.type = type.name();
+    }
+
+    @Override
+    public String getId() {
+        return getTag() + "/" + getAttribute();
+    }
+
+    @Override
+    public boolean doesRemove() {
+        return remove;
+    }
+
+    /**
+     * @return the lower case name of the tag, {@link #ANY_TAG} for any tag
+     */
+    public String getTag() {
+        return StringUtils.isBlank(tag) ? ANY_TAG : tag.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return the lower case name of the attribute
+     */
+    public String getAttribute() {
+        return attribute == null ? null : attribute.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public Type getType() {
+        return Type.parse(type);
+    }
+
+    @Override
+    public String toString() {
+        return getId() + ":" + getType();
+    }
+}
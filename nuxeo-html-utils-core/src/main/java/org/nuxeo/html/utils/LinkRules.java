@@ -0,0 +1,288 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+import org.nuxeo.html.utils.LinkRuleDescriptor.Type;
+
+import net.htmlparser.jericho.Attribute;
+import net.htmlparser.jericho.Attributes;
+import net.htmlparser.jericho.StartTag;
+
+/**
+ * The tag/attribute pairs holding links (see {@link LinkRuleDescriptor}), indexed by attribute name so the links of a
+ * start tag are found by looking up each of its attributes: the cost of the scan does not depend on the number of
+ * rules.
+ * <p>
+ * When the same attribute is declared for several tags, the first rule matching the tag is used.
+ *
+ * @since 2023
+ */
+public class LinkRules {
+
+    /**
+     * The rules used when the runtime is not started: <code>href</code> and <code>src</code> of any tag
+     */
+    public static final LinkRules DEFAULT = new LinkRules(
+            Arrays.asList(new LinkRuleDescriptor(LinkRuleDescriptor.ANY_TAG, "href", Type.URL),
+                    new LinkRuleDescriptor(LinkRuleDescriptor.ANY_TAG, "src", Type.URL)));
+
+    // The rules of the HTMLParserComponent, set when it starts, so a parser does not look the service up
+    protected static volatile LinkRules current = DEFAULT;
+
+    /**
+     * Receives the links of a start tag
+     */
+    @FunctionalInterface
+    public interface LinkConsumer {
+        /**
+         * @param rule the index of the rule, see {@link LinkRules#getRule(int)}
+         * @param attribute the name of the attribute
+         * @param link the link, <code>null</code> if the attribute has no value
+         */
+        void accept(int rule, String attribute, String link);
+    }
+
+    protected final List<LinkRuleDescriptor> rules;
+
+    // Indexes of the rules for each attribute
+    protected final Map<String, List<Integer>> rulesByAttribute = new HashMap<String, List<Integer>>();
+
+    protected final String key;
+
+    public LinkRules(List<LinkRuleDescriptor> rules) {
+
+        this.rules = Collections.unmodifiableList(new ArrayList<LinkRuleDescriptor>(rules));
+        for (int i = 0; i < this.rules.size(); i++) {
+            rulesByAttribute.computeIfAbsent(this.rules.get(i).getAttribute(), k -> new ArrayList<Integer>()).add(i);
+        }
+        key = this.rules.stream().map(LinkRuleDescriptor::toString).collect(Collectors.joining(","));
+    }
+
+    /**
+     * @return the rules contributed to {@link HTMLParserService}, {@link #DEFAULT} if the component is not started
+     */
+    public static LinkRules get() {
+        return current;
+    }
+
+    public int size() {
+        return rules.size();
+    }
+
+    public LinkRuleDescriptor getRule(int index) {
+        return rules.get(index);
+    }
+
+    /**
+     * Sends every link of <code>startTag</code> to <code>consumer</code>, in the order of its attributes.
+     *
+     * @param startTag
+     * @param consumer
+     */
+    public void forEachLink(StartTag startTag, LinkConsumer consumer) {
+        forEachLink(startTag, null, consumer);
+    }
+
+    /**
+     * Sends the links of <code>startTag</code> accepted by <code>filter</code> to <code>consumer</code>, in the order
+     * of its attributes. The tag and the attributes are checked before the value is read.
+     *
+     * @param startTag
+     * @param filter can be <code>null</code>
+     * @param consumer
+     */
+    public void forEachLink(StartTag startTag, LinkFilter filter, LinkConsumer consumer) {
+
+        Attributes attributes = startTag.getAttributes();
+        if (attributes == null) {
+            // Comments, doctype, ...
+            return;
+        }
+
+        String tag = startTag.getName();
+        if (filter != null && !filter.acceptsTag(tag)) {
+            return;
+        }
+        for (Attribute attribute : attributes) {
+            if (hasRules(attribute.getKey(), filter)) {
+                forEachLink(tag, attribute.getKey(), attribute.getValue(), startTag::getAttributeValue, filter,
+                        consumer);
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #forEachLink(StartTag, LinkFilter, LinkConsumer)} for a tag found by a {@link FastTagScanner}
+     *
+     * @param tag
+     * @param filter can be <code>null</code>
+     * @param consumer
+     */
+    public void forEachLink(FastTagScanner.Tag tag, LinkFilter filter, LinkConsumer consumer) {
+
+        String name = tag.getName();
+        if (filter != null && !filter.acceptsTag(name)) {
+            return;
+        }
+        for (int i = 0; i < tag.getAttributeCount(); i++) {
+            String attribute = tag.getAttributeName(i);
+            if (hasRules(attribute, filter)) {
+                forEachLink(name, attribute, tag.getAttributeValue(i), tag::getAttributeValue, filter, consumer);
+            }
+        }
+    }
+
+    protected boolean hasRules(String attribute, LinkFilter filter) {
+        return rulesByAttribute.containsKey(attribute) && (filter == null || filter.acceptsAttribute(attribute));
+    }
+
+    /**
+     * Sends the links of an attribute, using the first rule matching the tag
+     *
+     * @param attributes returns the value of another attribute of the tag (<code>http-equiv</code>)
+     */
+    protected void forEachLink(String tag, String attribute, String value, UnaryOperator<String> attributes,
+            LinkFilter filter, LinkConsumer consumer) {
+
+        for (int index : rulesByAttribute.get(attribute)) {
+            LinkRuleDescriptor rule = rules.get(index);
+            if (LinkRuleDescriptor.ANY_TAG.equals(rule.getTag()) || rule.getTag().equals(tag)) {
+                switch (rule.getType()) {
+                case SRCSET:
+                    for (String link : parseSrcset(value)) {
+                        accept(index, attribute, link, filter, consumer);
+                    }
+                    break;
+                case REFRESH:
+                    if ("refresh".equalsIgnoreCase(attributes.apply("http-equiv"))) {
+                        String link = parseRefresh(value);
+                        if (link != null) {
+                            accept(index, attribute, link, filter, consumer);
+                        }
+                    }
+                    break;
+                default:
+                    accept(index, attribute, value, filter, consumer);
+                    break;
+                }
+                break;
+            }
+        }
+    }
+
+    protected void accept(int rule, String attribute, String link, LinkFilter filter, LinkConsumer consumer) {
+        if (filter == null || filter.acceptsLink(link)) {
+            consumer.accept(rule, attribute, link);
+        }
+    }
+
+    /**
+     * Returns the urls of a <code>srcset</code> value ("image-1x.png 1x, image-2x.png 2x"). A url can contain commas,
+     * only those followed by a whitespace or ending the url separate the candidates.
+     *
+     * @param value
+     * @return the urls, in order
+     */
+    public static List<String> parseSrcset(String value) {
+
+        List<String> urls = new ArrayList<String>();
+        if (value == null) {
+            return urls;
+        }
+
+        int length = value.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && (Character.isWhitespace(value.charAt(i)) || value.charAt(i) == ',')) {
+                i++;
+            }
+            int start = i;
+            while (i < length && !Character.isWhitespace(value.charAt(i))) {
+                i++;
+            }
+            String url = value.substring(start, i);
+            if (url.endsWith(",")) {
+                // No descriptor
+                url = url.replaceAll(",+$", "");
+            } else {
+                // Skips the descriptor, up to the next comma
+                while (i < length && value.charAt(i) != ',') {
+                    i++;
+                }
+            }
+            if (!url.isEmpty()) {
+                urls.add(url);
+            }
+        }
+        return urls;
+    }
+
+    /**
+     * Returns the url of a <code>&lt;meta http-equiv="refresh"&gt;</code> content ("5; url=http://..."),
+     * <code>null</code> if there is none.
+     *
+     * @param value
+     * @return the url
+     */
+    public static String parseRefresh(String value) {
+
+        if (value == null) {
+            return null;
+        }
+
+        int separator = value.indexOf(';');
+        if (separator < 0) {
+            separator = value.indexOf(',');
+        }
+        if (separator < 0) {
+            return null;
+        }
+
+        String url = value.substring(separator + 1).trim();
+        if (url.toLowerCase(Locale.ROOT).startsWith("url")) {
+            String afterUrl = url.substring(3).trim();
+            if (afterUrl.startsWith("=")) {
+                url = afterUrl.substring(1).trim();
+            }
+        }
+        if (url.length() > 1 && (url.charAt(0) == '\'' || url.charAt(0) == '"')) {
+            int end = url.indexOf(url.charAt(0), 1);
+            url = end < 0 ? url.substring(1) : url.substring(1, end);
+        }
+        return url.isEmpty() ? null : url;
+    }
+
+    /**
+     * Used in the keys of the cache, so results found with other rules are not used
+     */
+    @Override
+    public String toString() {
+        return key;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a file through a read-only memory mapping, decoding its bytes directly from the mapped buffer: there is no
+ * intermediate <code>byte[]</code>, the pages of the file are read by the OS when they are decoded. Used by
+ * {@link HTMLParser} for the large files (see {@link HTMLParser#MAPPED_FILE_THRESHOLD_PROPERTY}), streamed or, with
+ * {@link #decode(File, Charset, long)}, decoded at once.
+ * <p>
+ * As with an <code>InputStreamReader</code>, malformed input is replaced, and a UTF-8 byte order mark is skipped.
+ * <p>
+ * The JDK has no way to unmap a buffer: the mapping is released when the buffer is garbage collected, closing the
+ * reader does nothing. Until then the file stays open and its pages count in the virtual memory of the process, even
+ * if the reader is not used anymore (and, on Windows, the file cannot be deleted).
+ *
+ * @since 2023
+ */
+public class MappedFileReader extends Reader {
+
+    protected ByteBuffer bytes;
+
+    protected CharsetDecoder decoder;
+
+    protected boolean flushed = false;
+
+    /**
+     * @param file
+     * @param charset
+     * @param maxBytes only the first <code>maxBytes</code> are read, no limit if &lt;= 0
+     * @throws IOException
+     */
+    public MappedFileReader(File file, Charset charset, long maxBytes) throws IOException {
+        bytes = map(file, charset, maxBytes);
+        decoder = newDecoder(charset);
+    }
+
+    /**
+     * Decodes the file at once from its mapping, the same way the reader does
+     *
+     * @param file
+     * @param charset
+     * @param maxBytes only the first <code>maxBytes</code> are decoded, no limit if &lt;= 0
+     * @return the characters, in a buffer sized for them
+     * @throws IOException
+     */
+    public static CharBuffer decode(File file, Charset charset, long maxBytes) throws IOException {
+        return newDecoder(charset).decode(map(file, charset, maxBytes));
+    }
+
+    protected static ByteBuffer map(File file, Charset charset, long maxBytes) throws IOException {
+
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (maxBytes > 0 && maxBytes < size) {
+                size = maxBytes;
+            }
+            // The mapping stays valid after the channel is closed
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        if (StandardCharsets.UTF_8.equals(charset) && mapped.remaining() >= 3 && mapped.get(0) == (byte) 0xEF
+                && mapped.get(1) == (byte) 0xBB && mapped.get(2) == (byte) 0xBF) {
+            mapped.position(3);
+        }
+        return mapped;
+    }
+
+    protected static CharsetDecoder newDecoder(Charset charset) {
+        return charset.newDecoder()
+                      .onMalformedInput(CodingErrorAction.REPLACE)
+                      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+
+        if (len == 0) {
+            return 0;
+        }
+        if (flushed) {
+            return -1;
+        }
+
+        CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+        CoderResult result = decoder.decode(bytes, out, true);
+        if (result.isUnderflow() && decoder.flush(out).isUnderflow()) {
+            // Every byte is decoded
+            flushed = true;
+        }
+        int count = out.position() - off;
+        return count == 0 && flushed ? -1 : count;
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release, see the class documentation
+    }
+}
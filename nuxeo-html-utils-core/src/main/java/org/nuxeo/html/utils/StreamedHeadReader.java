@@ -0,0 +1,130 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils;
+
+import java.util.EnumSet;
+
+import org.nuxeo.html.utils.HTMLExtractor.Facet;
+
+import net.htmlparser.jericho.CharacterReference;
+import net.htmlparser.jericho.EndTag;
+import net.htmlparser.jericho.HTMLElementName;
+import net.htmlparser.jericho.Segment;
+import net.htmlparser.jericho.StartTag;
+import net.htmlparser.jericho.StartTagType;
+import net.htmlparser.jericho.StreamedSource;
+
+/**
+ * Reads the title and the metas of an html source sequentially, and stops at the end of its <code>head</code>: the
+ * <code>&lt;/head&gt;</code> end tag, or the <code>&lt;body&gt;</code> start tag. The rest of the input is not read,
+ * so the time spent does not depend on the size of the body. It also stops when the timeout of the budget expires or
+ * when <code>maxElements</code> metas were read (the extraction is then truncated).
+ * <p>
+ * A <code>title</code> or a <code>meta</code> before the <code>body</code> is enough to make a head, even without a
+ * <code>&lt;head&gt;</code> tag. When there is no head at all, the whole source is read, so the title and the metas
+ * are found wherever they are.
+ *
+ * @since 2023
+ */
+public class StreamedHeadReader {
+
+    protected boolean headFound;
+
+    protected boolean inTitle;
+
+    protected StringBuilder titleContent = new StringBuilder();
+
+    /**
+     * Reads the source up to the end of its head. Closing the source, which stops reading the input, is the
+     * responsibility of the caller.
+     *
+     * @param streamedSource
+     * @param budget limits the number of metas and the time spent, can be <code>null</code>
+     * @return an extraction with the title ("" if none) and the index of every meta (see
+     *         {@link HTMLParser#getMetas()})
+     */
+    public HTMLExtraction read(StreamedSource streamedSource, HTMLParseBudget budget) {
+
+        HTMLExtraction result = new HTMLExtraction(EnumSet.of(Facet.TITLE, Facet.METAS));
+        headFound = false;
+        inTitle = false;
+        titleContent.setLength(0);
+
+        int count = 0;
+        int metaCount = 0;
+        for (Segment segment : streamedSource) {
+            if (segment instanceof StartTag) {
+                count++;
+                if (budget != null && budget.isExpired()) {
+                    result.truncated = true;
+                    break;
+                }
+                StartTag startTag = (StartTag) segment;
+                if (inTitle || startTag.getStartTagType() != StartTagType.NORMAL) {
+                    // The content of a title is its raw text, see HTMLParser#getTitle
+                    appendTitle(segment);
+                    continue;
+                }
+                String name = startTag.getName();
+                if (HTMLElementName.BODY.equals(name) && headFound) {
+                    break;
+                }
+                if (HTMLElementName.HEAD.equals(name)) {
+                    headFound = true;
+                } else if (HTMLElementName.TITLE.equals(name)) {
+                    headFound = true;
+                    inTitle = result.title == null && !startTag.isSyntacticalEmptyElementTag();
+                } else if (HTMLElementName.META.equals(name)) {
+                    headFound = true;
+                    if (budget != null && budget.isOverElements(++metaCount)) {
+                        result.truncated = true;
+                        break;
+                    }
+                    HTMLParser.indexMeta(startTag, result.metas);
+                }
+            } else if (segment instanceof EndTag) {
+                String name = ((EndTag) segment).getName();
+                if (inTitle && HTMLElementName.TITLE.equals(name)) {
+                    // TITLE element never contains other tags so just decode it collapsing whitespace:
+                    result.title = CharacterReference.decodeCollapseWhiteSpace(titleContent);
+                    inTitle = false;
+                } else if (inTitle) {
+                    appendTitle(segment);
+                } else if (HTMLElementName.HEAD.equals(name)) {
+                    break;
+                }
+            } else {
+                appendTitle(segment);
+            }
+        }
+        HTMLMetrics.countElements(count);
+
+        if (result.title == null) {
+            // No title, or never closed
+            result.title = "";
+        }
+        return result;
+    }
+
+    protected void appendTitle(Segment segment) {
+        if (inTitle) {
+            titleContent.append(segment);
+        }
+    }
+}
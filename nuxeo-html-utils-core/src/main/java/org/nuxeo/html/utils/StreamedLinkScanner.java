@@ -0,0 +1,317 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import net.htmlparser.jericho.Attributes;
+import net.htmlparser.jericho.CharacterReference;
+import net.htmlparser.jericho.EndTag;
+import net.htmlparser.jericho.HTMLElementName;
+import net.htmlparser.jericho.Segment;
+import net.htmlparser.jericho.StartTag;
+import net.htmlparser.jericho.StartTagType;
+import net.htmlparser.jericho.StreamedSource;
+
+/**
+ * Finds the same links as {@link HTMLParser#getLinks()} while reading the html sequentially, and passes each of them
+ * to a {@link LinkHandler} as soon as it is complete. The links are never all held in memory, whatever the html:
+ * <ul>
+ * <li>The text of a link is limited to {@link #DEFAULT_MAX_TEXT_LENGTH} characters (see
+ * {@link #setMaxTextLength(int)})</li>
+ * <li>An element is closed by its end tag, by the end tag of one of its parents, or, for an <code>a</code>, by the
+ * next <code>a</code>. At most {@link #MAX_OPEN_ELEMENTS} elements are open: beyond, the outermost is closed</li>
+ * <li>A link waits for the links before it, so they are sent in the order of the document. When more than
+ * {@link #MAX_PENDING_LINKS} links wait, the first one is sent with the text found so far</li>
+ * </ul>
+ * <p>
+ * The links are sent in the order of the document, while {@link HTMLParser#getLinks()} groups them by rule (see
+ * {@link LinkRules}). The text of a link is its decoded content with whitespace collapsed, the content of
+ * <code>script</code> and <code>style</code> elements excluded.
+ *
+ * @since 2023
+ */
+public class StreamedLinkScanner {
+
+    public static final int DEFAULT_MAX_TEXT_LENGTH = 4096;
+
+    public static final int MAX_OPEN_ELEMENTS = 256;
+
+    public static final int MAX_PENDING_LINKS = 1024;
+
+    /**
+     * Receives the links found by the scanner
+     */
+    @FunctionalInterface
+    public interface LinkHandler {
+        void handle(LinkInfo link) throws IOException;
+    }
+
+    // Elements that never have content or end tag
+    protected static final Set<String> VOID_ELEMENTS = new HashSet<String>(Arrays.asList(HTMLElementName.AREA,
+            HTMLElementName.BASE, HTMLElementName.BASEFONT, HTMLElementName.BR, HTMLElementName.COL,
+            HTMLElementName.FRAME, HTMLElementName.HR, HTMLElementName.IMG, HTMLElementName.INPUT,
+            HTMLElementName.ISINDEX, HTMLElementName.LINK, HTMLElementName.META, HTMLElementName.PARAM, "embed",
+            "source", "track", "wbr"));
+
+    protected static final Set<String> NO_TEXT_ELEMENTS = new HashSet<String>(
+            Arrays.asList(HTMLElementName.SCRIPT, HTMLElementName.STYLE));
+
+    /**
+     * A link waiting for the end of its element
+     */
+    protected static class PendingLink {
+
+        // The same element can have several links (href and src)
+        protected final int elementId;
+
+        protected final String tag;
+
+        protected final String attribute;
+
+        protected final String link;
+
+        protected final StringBuilder text = new StringBuilder();
+
+        protected boolean complete;
+
+        protected PendingLink(int elementId, String tag, String attribute, String link) {
+            this.elementId = elementId;
+            this.tag = tag;
+            this.attribute = attribute;
+            this.link = link;
+        }
+
+        protected void appendText(CharSequence chars, int maxLength) {
+            for (int i = 0; i < chars.length() && text.length() < maxLength; i++) {
+                char c = chars.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    if (text.length() > 0 && text.charAt(text.length() - 1) != ' ') {
+                        text.append(' ');
+                    }
+                } else {
+                    text.append(c);
+                }
+            }
+        }
+
+        protected LinkInfo toLinkInfo() {
+            return new LinkInfo(tag, attribute, text.toString().trim(), link);
+        }
+    }
+
+    /**
+     * An element whose end was not found yet
+     */
+    protected static class OpenElement {
+
+        protected final String name;
+
+        // 0 if the element has no link
+        protected final int elementId;
+
+        protected OpenElement(String name, int elementId) {
+            this.name = name;
+            this.elementId = elementId;
+        }
+    }
+
+    // In document order. Only the first ones can be complete while the next ones are still open.
+    protected ArrayDeque<PendingLink> pendingLinks = new ArrayDeque<PendingLink>();
+
+    // The pending links whose element is still open, they receive the text
+    protected List<PendingLink> openLinks = new ArrayList<PendingLink>();
+
+    // The innermost last
+    protected ArrayDeque<OpenElement> openElements = new ArrayDeque<OpenElement>();
+
+    protected String noTextElement;
+
+    protected int elementCount;
+
+    protected int maxTextLength = DEFAULT_MAX_TEXT_LENGTH;
+
+    protected final LinkRules linkRules;
+
+    public StreamedLinkScanner() {
+        this(LinkRules.get());
+    }
+
+    /**
+     * @param linkRules the tag/attribute pairs returned as links
+     */
+    public StreamedLinkScanner(LinkRules linkRules) {
+        this.linkRules = linkRules;
+    }
+
+    /**
+     * @param maxTextLength the max. length of the text of a link, {@link #DEFAULT_MAX_TEXT_LENGTH} if &lt;= 0
+     */
+    public StreamedLinkScanner setMaxTextLength(int maxTextLength) {
+        this.maxTextLength = maxTextLength > 0 ? maxTextLength : DEFAULT_MAX_TEXT_LENGTH;
+        return this;
+    }
+
+    /**
+     * Reads the whole source and sends every link to <code>handler</code>. Closing the source is the responsibility
+     * of the caller.
+     *
+     * @param streamedSource
+     * @param handler
+     * @throws IOException
+     */
+    public void scan(StreamedSource streamedSource, LinkHandler handler) throws IOException {
+
+        pendingLinks.clear();
+        openLinks.clear();
+        openElements.clear();
+        noTextElement = null;
+        elementCount = 0;
+
+        for (Segment segment : streamedSource) {
+            if (segment instanceof StartTag) {
+                handleStartTag((StartTag) segment);
+            } else if (segment instanceof EndTag) {
+                handleEndTag((EndTag) segment);
+            } else if (noTextElement == null && !openLinks.isEmpty()) {
+                CharSequence text = CharacterReference.decode(segment);
+                for (PendingLink pending : openLinks) {
+                    pending.appendText(text, maxTextLength);
+                }
+            }
+            flush(handler);
+        }
+
+        // Elements never closed
+        for (PendingLink pending : pendingLinks) {
+            pending.complete = true;
+        }
+        openLinks.clear();
+        openElements.clear();
+        flush(handler);
+    }
+
+    protected void handleStartTag(StartTag startTag) {
+
+        if (startTag.getStartTagType() != StartTagType.NORMAL) {
+            return;
+        }
+
+        String name = startTag.getName();
+        Attributes attributes = startTag.getAttributes();
+        boolean hasContent = !startTag.isSyntacticalEmptyElementTag() && !VOID_ELEMENTS.contains(name);
+
+        if (hasContent && HTMLElementName.A.equals(name)) {
+            // A link cannot contain another link: the previous one ends
+            closeElement(name);
+        }
+
+        int elementId = 0;
+        if (attributes != null) {
+            int id = ++elementCount;
+            linkRules.forEachLink(startTag, (rule, attr, link) -> {
+                PendingLink pending = new PendingLink(id, name, attr, link);
+                pending.complete = !hasContent;
+                pendingLinks.add(pending);
+                if (hasContent) {
+                    openLinks.add(pending);
+                }
+            });
+            elementId = id;
+        }
+
+        if (hasContent) {
+            openElements.addLast(new OpenElement(name, elementId));
+            if (openElements.size() > MAX_OPEN_ELEMENTS) {
+                complete(openElements.pollFirst());
+            }
+        }
+
+        if (hasContent && noTextElement == null && NO_TEXT_ELEMENTS.contains(name)) {
+            noTextElement = name;
+        }
+    }
+
+    protected void handleEndTag(EndTag endTag) {
+
+        String name = endTag.getName();
+        if (name.equals(noTextElement)) {
+            noTextElement = null;
+        }
+        closeElement(name);
+    }
+
+    /**
+     * Closes the innermost open element with this name, and the elements open inside it. Does nothing if there is
+     * none.
+     */
+    protected void closeElement(String name) {
+
+        boolean found = false;
+        for (Iterator<OpenElement> it = openElements.descendingIterator(); it.hasNext();) {
+            if (it.next().name.equals(name)) {
+                found = true;
+                break;
+            }
+        }
+        if (!found) {
+            return;
+        }
+
+        OpenElement closed;
+        do {
+            closed = openElements.pollLast();
+            complete(closed);
+        } while (!closed.name.equals(name));
+    }
+
+    protected void complete(OpenElement element) {
+
+        if (element.elementId == 0) {
+            return;
+        }
+        for (Iterator<PendingLink> it = openLinks.iterator(); it.hasNext();) {
+            PendingLink pending = it.next();
+            if (pending.elementId == element.elementId) {
+                pending.complete = true;
+                it.remove();
+            }
+        }
+    }
+
+    protected void flush(LinkHandler handler) throws IOException {
+
+        while (pendingLinks.size() > MAX_PENDING_LINKS && !pendingLinks.peekFirst().complete) {
+            // Too many links wait for this one: sent with the text found so far
+            PendingLink first = pendingLinks.peekFirst();
+            first.complete = true;
+            openLinks.remove(first);
+        }
+        while (!pendingLinks.isEmpty() && pendingLinks.peekFirst().complete) {
+            handler.handle(pendingLinks.pollFirst().toLinkInfo());
+        }
+    }
+}
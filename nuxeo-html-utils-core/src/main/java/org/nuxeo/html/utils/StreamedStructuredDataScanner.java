@@ -0,0 +1,95 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils;
+
+import java.io.IOException;
+
+import net.htmlparser.jericho.EndTag;
+import net.htmlparser.jericho.HTMLElementName;
+import net.htmlparser.jericho.Segment;
+import net.htmlparser.jericho.StartTag;
+import net.htmlparser.jericho.StartTagType;
+import net.htmlparser.jericho.StreamedSource;
+
+/**
+ * Finds the same {@link StructuredData} as {@link HTMLParser#getStructuredData()} while reading the html
+ * sequentially. Each JSON-LD block is passed to a {@link StructuredData.JsonLdHandler} as soon as its
+ * <code>script</code> is closed: only the current block is held in memory, never the document.
+ *
+ * @since 2023
+ */
+public class StreamedStructuredDataScanner {
+
+    protected StructuredData result = new StructuredData();
+
+    /**
+     * Reads the whole source. A scanner is used once. Closing the source is the responsibility of the caller.
+     *
+     * @param streamedSource
+     * @param handler receives the JSON-LD blocks
+     * @return the Open Graph and Twitter Cards metas, without the JSON-LD blocks
+     * @throws IOException
+     */
+    public StructuredData scan(StreamedSource streamedSource, StructuredData.JsonLdHandler handler)
+            throws IOException {
+
+        // Content of the JSON-LD script being read
+        StringBuilder block = null;
+
+        for (Segment segment : streamedSource) {
+            if (block != null) {
+                if (segment instanceof EndTag && HTMLElementName.SCRIPT.equals(((EndTag) segment).getName())) {
+                    String json = StructuredData.toCompactJson(block);
+                    if (json != null) {
+                        handler.handle(json);
+                    }
+                    block = null;
+                } else {
+                    block.append(segment);
+                }
+                continue;
+            }
+
+            if (!(segment instanceof StartTag)) {
+                continue;
+            }
+            StartTag startTag = (StartTag) segment;
+            if (startTag.getStartTagType() != StartTagType.NORMAL) {
+                continue;
+            }
+
+            String name = startTag.getName();
+            if (HTMLElementName.META.equals(name)) {
+                result.addMeta(startTag::getAttributeValue);
+            } else if (HTMLElementName.SCRIPT.equals(name) && !startTag.isSyntacticalEmptyElementTag()
+                    && StructuredData.isJsonLd(startTag.getAttributeValue("type"))) {
+                block = new StringBuilder();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the metas found so far, when {@link #scan(StreamedSource, StructuredData.JsonLdHandler)} was stopped
+     *         by an exception of the handler
+     */
+    public StructuredData getResult() {
+        return result;
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.io.output.StringBuilderWriter;
+import org.apache.commons.lang3.StringUtils;
+
+import net.htmlparser.jericho.EndTag;
+import net.htmlparser.jericho.HTMLElementName;
+import net.htmlparser.jericho.StartTag;
+import net.htmlparser.jericho.StartTagType;
+import net.htmlparser.jericho.StreamedSource;
+
+/**
+ * Renders the plain text of an html source as it is read (see {@link StreamedTextRenderer}) and splits it in chunks
+ * of at most <code>maxChunkSize</code> characters, passed to a {@link ChunkHandler} as soon as they are complete. Only
+ * the current chunk is held in memory.
+ * <p>
+ * Chunks are aligned to the blocks (<code>p</code>, <code>li</code>, <code>td</code>, ...): when the next character
+ * does not fit, the chunk is cut after the last complete block, and only a block longer than a chunk is cut inside,
+ * after its last space. A heading (<code>h1</code> to <code>h6</code>) always starts a new chunk, and every chunk
+ * has the text of the headings it is under (see {@link TextChunk#getHeadings()}), and the position of the html it
+ * comes from.
+ *
+ * @since 2023
+ */
+public class StreamedTextChunker extends StreamedTextRenderer {
+
+    public static final int DEFAULT_MAX_CHUNK_SIZE = 1000;
+
+    /**
+     * Receives the chunks, in the order of the document
+     */
+    @FunctionalInterface
+    public interface ChunkHandler {
+        void handle(TextChunk chunk) throws IOException;
+    }
+
+    // Elements whose start and end are the places where a chunk is cut
+    protected static final Set<String> CHUNK_ELEMENTS = new HashSet<String>(Arrays.asList(HTMLElementName.P,
+            HTMLElementName.LI, HTMLElementName.TD, HTMLElementName.TH, HTMLElementName.DD, HTMLElementName.DT,
+            HTMLElementName.PRE, HTMLElementName.BLOCKQUOTE, HTMLElementName.CAPTION, "figcaption"));
+
+    protected static final List<String> HEADING_ELEMENTS = Arrays.asList(HTMLElementName.H1, HTMLElementName.H2,
+            HTMLElementName.H3, HTMLElementName.H4, HTMLElementName.H5, HTMLElementName.H6);
+
+    protected int maxChunkSize;
+
+    // Chunking state
+    protected ChunkHandler handler;
+
+    protected StringBuilder buffer;
+
+    // Begin and end of the segment each character of the buffer comes from
+    protected int[] begins;
+
+    protected int[] ends;
+
+    // Length of the buffer at the end of the last complete block, 0 if none
+    protected int boundary;
+
+    protected int chunkIndex;
+
+    // Text of the current h1 to h6
+    protected String[] headings = new String[HEADING_ELEMENTS.size()];
+
+    // 1 to 6 inside a heading, else 0
+    protected int headingLevel;
+
+    protected StringBuilder headingText = new StringBuilder();
+
+    public StreamedTextChunker(int maxChunkSize, String lineSeparator, boolean includeHyperlinkURLs,
+            boolean includeAlternateText, boolean convertNonBreakingSpaces) {
+        super(lineSeparator, includeHyperlinkURLs, includeAlternateText, convertNonBreakingSpaces);
+        this.maxChunkSize = maxChunkSize > 0 ? maxChunkSize : DEFAULT_MAX_CHUNK_SIZE;
+    }
+
+    /**
+     * Reads the whole source and passes the chunks of its plain text to <code>handler</code>. When a limit of the
+     * budget is reached, the text rendered so far is still sent. Closing the source is the responsibility of the
+     * caller.
+     *
+     * @param streamedSource
+     * @param budget limits the total length of the text and the time spent, can be <code>null</code>
+     * @param handler
+     * @throws IOException
+     */
+    public void chunk(StreamedSource streamedSource, HTMLParseBudget budget, ChunkHandler handler)
+            throws IOException {
+
+        this.handler = handler;
+        buffer = new StringBuilder(maxChunkSize);
+        begins = new int[maxChunkSize + 16];
+        ends = new int[maxChunkSize + 16];
+        boundary = 0;
+        chunkIndex = 0;
+        Arrays.fill(headings, null);
+        headingLevel = 0;
+        headingText.setLength(0);
+
+        Writer writer = new StringBuilderWriter(buffer);
+        try {
+            render(streamedSource, budget == null ? writer : budget.limit(writer));
+        } catch (HTMLParseBudget.ExceededException e) {
+            emit(buffer.length());
+            throw e;
+        }
+        emit(buffer.length());
+    }
+
+    @Override
+    protected void handleStartTag(StartTag startTag) throws IOException {
+
+        super.handleStartTag(startTag);
+        if (removedElement != null || startTag.getStartTagType() != StartTagType.NORMAL) {
+            return;
+        }
+
+        String name = startTag.getName();
+        int level = HEADING_ELEMENTS.indexOf(name) + 1;
+        if (level > 0) {
+            closeHeading();
+            // A new section starts
+            emit(buffer.length());
+            headingLevel = level;
+        } else if (CHUNK_ELEMENTS.contains(name)) {
+            markBoundary();
+        }
+    }
+
+    @Override
+    protected void handleEndTag(EndTag endTag) throws IOException {
+
+        boolean removed = removedElement != null;
+        super.handleEndTag(endTag);
+        if (removed) {
+            return;
+        }
+
+        String name = endTag.getName();
+        if (HEADING_ELEMENTS.contains(name)) {
+            // The heading stays with the block following it
+            closeHeading();
+        } else if (CHUNK_ELEMENTS.contains(name)) {
+            markBoundary();
+        }
+    }
+
+    @Override
+    protected void appendText(CharSequence text) throws IOException {
+
+        if (headingLevel > 0 && headingText.length() < maxChunkSize) {
+            headingText.append(text);
+        }
+        super.appendText(text);
+    }
+
+    @Override
+    protected void writeChar(char c) throws IOException {
+
+        if (buffer.length() > 0 && buffer.length() + getPendingLength() + 1 > maxChunkSize) {
+            int at = boundary;
+            if (at == 0) {
+                // A block longer than a chunk
+                at = buffer.lastIndexOf(" ");
+                if (at <= 0) {
+                    at = buffer.length();
+                }
+            }
+            emit(at);
+        }
+
+        int start = buffer.length();
+        try {
+            super.writeChar(c);
+        } finally {
+            recordPositions(start);
+        }
+    }
+
+    /**
+     * @return the number of characters written before the next one (line separators or space)
+     */
+    protected int getPendingLength() {
+
+        if (pendingLines > 0) {
+            return hasOutput ? pendingLines * lineSeparator.length() : 0;
+        }
+        return pendingSpace && !atLineStart ? 1 : 0;
+    }
+
+    protected void recordPositions(int start) {
+
+        int length = buffer.length();
+        if (length > begins.length) {
+            begins = Arrays.copyOf(begins, length + 16);
+            ends = Arrays.copyOf(ends, length + 16);
+        }
+        for (int i = start; i < length; i++) {
+            begins[i] = segment.getBegin();
+            ends[i] = segment.getEnd();
+        }
+    }
+
+    protected void markBoundary() {
+        if (buffer.length() > 0) {
+            boundary = buffer.length();
+        }
+    }
+
+    protected void closeHeading() {
+
+        if (headingLevel == 0) {
+            return;
+        }
+        headings[headingLevel - 1] = StringUtils.normalizeSpace(headingText.toString());
+        Arrays.fill(headings, headingLevel, headings.length, null);
+        headingLevel = 0;
+        headingText.setLength(0);
+    }
+
+    /**
+     * Sends the first <code>length</code> characters of the buffer as a chunk, the rest (without the leading
+     * separators) starts the next chunk
+     */
+    protected void emit(int length) throws IOException {
+
+        String text = StringUtils.stripEnd(buffer.substring(0, length), null);
+        if (!text.isEmpty()) {
+            handler.handle(new TextChunk(chunkIndex++, text, getHeadings(), begins[0], ends[length - 1]));
+        }
+
+        int from = skipSeparators(length);
+        int remaining = buffer.length() - from;
+        buffer.delete(0, from);
+        System.arraycopy(begins, from, begins, 0, remaining);
+        System.arraycopy(ends, from, ends, 0, remaining);
+        boundary = 0;
+        if (remaining == 0) {
+            // No separator nor space before the first character of the next chunk
+            hasOutput = false;
+            atLineStart = true;
+        }
+    }
+
+    protected int skipSeparators(int from) {
+
+        int i = from;
+        while (i < buffer.length()) {
+            if (Character.isWhitespace(buffer.charAt(i))) {
+                i++;
+            } else if (buffer.indexOf(lineSeparator, i) == i) {
+                i += lineSeparator.length();
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    protected List<String> getHeadings() {
+
+        List<String> result = new ArrayList<String>();
+        for (String heading : headings) {
+            if (heading != null) {
+                result.add(heading);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+
+import net.htmlparser.jericho.CharacterReference;
+import net.htmlparser.jericho.EndTag;
+import net.htmlparser.jericho.HTMLElementName;
+import net.htmlparser.jericho.Segment;
+import net.htmlparser.jericho.StartTag;
+import net.htmlparser.jericho.StartTagType;
+import net.htmlparser.jericho.StreamedSource;
+
+/**
+ * Renders the plain text of an html source as it is read, without building the parse tree and without holding the
+ * whole text in memory: the memory used does not depend on the size of the input.
+ * <p>
+ * The options have the same meaning as the ones of {@link HTMLParser#getPlainText(String, boolean, boolean, boolean)}
+ * and the same elements are removed (head, script, style, ...), so the words of the text are the same. Only the layout
+ * is simpler than the one of the Jericho <code>Renderer</code>: block elements start a new line (an empty line for
+ * paragraphs, headings, lists and tables), there is no indentation nor bullet, and table cells are separated by a
+ * space. The text is not the same as the one of {@link HTMLParser#getPlainText()}, the line breaks differ.
+ *
+ * @since 2023
+ */
+public class StreamedTextRenderer {
+
+    // Elements whose content is not rendered, as in the Jericho Renderer
+    protected static final Set<String> REMOVED_ELEMENTS = new HashSet<String>(Arrays.asList(HTMLElementName.HEAD,
+            HTMLElementName.SCRIPT, HTMLElementName.STYLE, HTMLElementName.NOSCRIPT, HTMLElementName.NOFRAMES,
+            HTMLElementName.MAP, HTMLElementName.OBJECT, HTMLElementName.APPLET, HTMLElementName.SELECT,
+            HTMLElementName.TEXTAREA, HTMLElementName.BUTTON));
+
+    // Elements replaced by their alternate text, as in the Jericho Renderer
+    protected static final Set<String> ALTERNATE_TEXT_ELEMENTS = new HashSet<String>(
+            Arrays.asList(HTMLElementName.IMG, HTMLElementName.OBJECT, HTMLElementName.APPLET));
+
+    protected static final Set<String> BLOCK_ELEMENTS = new HashSet<String>(Arrays.asList(HTMLElementName.ADDRESS,
+            HTMLElementName.CAPTION, HTMLElementName.CENTER, HTMLElementName.DD, HTMLElementName.DIR,
+            HTMLElementName.DIV, HTMLElementName.DT, HTMLElementName.FIELDSET, HTMLElementName.FORM,
+            HTMLElementName.HR, HTMLElementName.LEGEND, HTMLElementName.LI, HTMLElementName.MENU,
+            HTMLElementName.TR, "article", "aside", "figcaption", "figure", "footer", "header", "main", "nav",
+            "section"));
+
+    // Block elements separated from the rest by an empty line
+    protected static final Set<String> SPACED_BLOCK_ELEMENTS = new HashSet<String>(Arrays.asList(HTMLElementName.P,
+            HTMLElementName.H1, HTMLElementName.H2, HTMLElementName.H3, HTMLElementName.H4, HTMLElementName.H5,
+            HTMLElementName.H6, HTMLElementName.BLOCKQUOTE, HTMLElementName.PRE, HTMLElementName.UL,
+            HTMLElementName.OL, HTMLElementName.DL, HTMLElementName.TABLE));
+
+    protected String lineSeparator;
+
+    protected boolean includeHyperlinkURLs;
+
+    protected boolean includeAlternateText;
+
+    protected boolean convertNonBreakingSpaces;
+
+    // Rendering state
+    protected Writer writer;
+
+    protected String removedElement;
+
+    // Number of removedElement open, the content is rendered again when the last one is closed
+    protected int removedDepth;
+
+    protected String hyperlinkURL;
+
+    protected int preDepth;
+
+    protected int pendingLines;
+
+    protected boolean pendingSpace;
+
+    protected boolean atLineStart;
+
+    protected boolean hasOutput;
+
+    // The segment being rendered
+    protected Segment segment;
+
+    public StreamedTextRenderer(String lineSeparator, boolean includeHyperlinkURLs, boolean includeAlternateText,
+            boolean convertNonBreakingSpaces) {
+        this.lineSeparator = StringUtils.isBlank(lineSeparator) ? "\n" : lineSeparator;
+        this.includeHyperlinkURLs = includeHyperlinkURLs;
+        this.includeAlternateText = includeAlternateText;
+        this.convertNonBreakingSpaces = convertNonBreakingSpaces;
+    }
+
+    /**
+     * Reads the whole source and writes its plain text to <code>writer</code>. Closing the source and the writer is
+     * the responsibility of the caller.
+     *
+     * @param streamedSource
+     * @param writer
+     * @throws IOException
+     */
+    public void render(StreamedSource streamedSource, Writer writer) throws IOException {
+
+        this.writer = writer;
+        removedElement = null;
+        removedDepth = 0;
+        hyperlinkURL = null;
+        preDepth = 0;
+        pendingLines = 0;
+        pendingSpace = false;
+        atLineStart = true;
+        hasOutput = false;
+
+        for (Segment current : streamedSource) {
+            segment = current;
+            if (segment instanceof StartTag) {
+                handleStartTag((StartTag) segment);
+            } else if (segment instanceof EndTag) {
+                handleEndTag((EndTag) segment);
+            } else if (removedElement == null) {
+                // Plain text or character reference
+                appendText(CharacterReference.decode(segment));
+            }
+        }
+
+        writer.flush();
+    }
+
+    protected void handleStartTag(StartTag startTag) throws IOException {
+
+        if (startTag.getStartTagType() != StartTagType.NORMAL) {
+            // Comments, doctype, ...
+            return;
+        }
+
+        String name = startTag.getName();
+        if (removedElement != null) {
+            if (HTMLElementName.HEAD.equals(removedElement) && HTMLElementName.BODY.equals(name)) {
+                // A missing </head> ends with the body
+                removedElement = null;
+                removedDepth = 0;
+            } else if (removedElement.equals(name) && !startTag.isSyntacticalEmptyElementTag()) {
+                removedDepth++;
+            }
+            return;
+        }
+
+        if (includeAlternateText && ALTERNATE_TEXT_ELEMENTS.contains(name)) {
+            String alt = startTag.getAttributeValue("alt");
+            if (StringUtils.isNotBlank(alt)) {
+                appendText(alt);
+            }
+        }
+        if (REMOVED_ELEMENTS.contains(name)) {
+            if (!startTag.isSyntacticalEmptyElementTag()) {
+                removedElement = name;
+                removedDepth = 1;
+            }
+        } else if (HTMLElementName.BR.equals(name)) {
+            pendingLines++;
+        } else if (SPACED_BLOCK_ELEMENTS.contains(name)) {
+            requestLines(2);
+            if (HTMLElementName.PRE.equals(name)) {
+                preDepth++;
+            }
+        } else if (BLOCK_ELEMENTS.contains(name)) {
+            requestLines(1);
+        } else if (HTMLElementName.TD.equals(name) || HTMLElementName.TH.equals(name)) {
+            pendingSpace = true;
+        } else if (HTMLElementName.A.equals(name)) {
+            hyperlinkURL = startTag.getAttributeValue("href");
+        }
+    }
+
+    protected void handleEndTag(EndTag endTag) throws IOException {
+
+        String name = endTag.getName();
+        if (removedElement != null) {
+            // Nested elements of the same name (a noscript in a noscript, ...) end with the outer one
+            if (removedElement.equals(name) && --removedDepth == 0) {
+                removedElement = null;
+            }
+            return;
+        }
+
+        if (SPACED_BLOCK_ELEMENTS.contains(name)) {
+            requestLines(2);
+            if (HTMLElementName.PRE.equals(name) && preDepth > 0) {
+                preDepth--;
+            }
+        } else if (BLOCK_ELEMENTS.contains(name)) {
+            requestLines(1);
+        } else if (HTMLElementName.A.equals(name)) {
+            if (includeHyperlinkURLs && StringUtils.isNotBlank(hyperlinkURL)
+                    && !hyperlinkURL.toLowerCase(Locale.ROOT).startsWith("javascript:")) {
+                pendingSpace = true;
+                appendText("<" + hyperlinkURL.trim() + ">");
+            }
+            hyperlinkURL = null;
+        }
+    }
+
+    protected void requestLines(int count) {
+        pendingLines = Math.max(pendingLines, count);
+    }
+
+    protected void appendText(CharSequence text) throws IOException {
+
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '\u00A0' && convertNonBreakingSpaces) {
+                c = ' ';
+            }
+            if (preDepth > 0) {
+                if (c == '\n') {
+                    pendingLines++;
+                } else if (c != '\r') {
+                    writeChar(c);
+                }
+            } else if (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f') {
+                pendingSpace = true;
+            } else {
+                writeChar(c);
+            }
+        }
+    }
+
+    protected void writeChar(char c) throws IOException {
+
+        if (pendingLines > 0) {
+            if (hasOutput) {
+                for (int i = 0; i < pendingLines; i++) {
+                    writer.write(lineSeparator);
+                }
+            }
+            atLineStart = true;
+        } else if (pendingSpace && !atLineStart) {
+            writer.write(' ');
+        }
+        pendingLines = 0;
+        pendingSpace = false;
+
+        writer.write(c);
+        atLineStart = false;
+        hasOutput = true;
+    }
+}
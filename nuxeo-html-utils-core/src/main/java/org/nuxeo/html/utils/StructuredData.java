@@ -0,0 +1,239 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/**
+ * The structured metadata of an html: Open Graph metas (<code>og:*</code>, and the <code>article:*</code>,
+ * <code>book:*</code>, <code>profile:*</code>, <code>music:*</code>, <code>video:*</code> and <code>fb:*</code> ones),
+ * Twitter Cards metas (<code>twitter:*</code>) and JSON-LD blocks (<code>&lt;script
+ * type="application/ld+json"&gt;</code>). See {@link HTMLParser#getStructuredData()}.
+ * <p>
+ * A meta found several times (typically <code>og:image</code>) keeps every value, in the order of the document. The
+ * JSON-LD blocks are kept as compact JSON strings, a block that is not valid JSON is ignored.
+ *
+ * @since 2023
+ */
+public class StructuredData {
+
+    private static final Logger log = LogManager.getLogger(StructuredData.class);
+
+    public static final String JSON_LD_TYPE = "application/ld+json";
+
+    protected static final String[] OPEN_GRAPH_PREFIXES = { "og:", "article:", "book:", "profile:", "music:",
+            "video:", "fb:" };
+
+    protected static final String TWITTER_PREFIX = "twitter:";
+
+    /**
+     * Receives the JSON-LD blocks, see {@link HTMLParser#scanStructuredData(JsonLdHandler)}
+     */
+    @FunctionalInterface
+    public interface JsonLdHandler {
+        /**
+         * @param json a JSON-LD block, as compact JSON
+         */
+        void handle(String json) throws IOException;
+    }
+
+    protected Map<String, List<String>> openGraph = new LinkedHashMap<String, List<String>>();
+
+    protected Map<String, List<String>> twitter = new LinkedHashMap<String, List<String>>();
+
+    protected List<String> jsonLd = new ArrayList<String>();
+
+    /**
+     * @param type the <code>type</code> attribute of a <code>script</code> tag
+     * @return <code>true</code> if the script is a JSON-LD block
+     */
+    public static boolean isJsonLd(String type) {
+        return type != null && JSON_LD_TYPE.equalsIgnoreCase(type.trim());
+    }
+
+    /**
+     * Adds the content of a <code>meta</code> tag if it is an Open Graph or Twitter Cards meta
+     *
+     * @param attributes returns the decoded value of an attribute of the tag
+     */
+    public void addMeta(UnaryOperator<String> attributes) {
+
+        String key = attributes.apply("property");
+        if (StringUtils.isBlank(key)) {
+            key = attributes.apply("name");
+        }
+        if (StringUtils.isBlank(key)) {
+            return;
+        }
+        key = key.trim().toLowerCase(Locale.ROOT);
+
+        Map<String, List<String>> index = null;
+        if (key.startsWith(TWITTER_PREFIX)) {
+            index = twitter;
+        } else if (StringUtils.startsWithAny(key, OPEN_GRAPH_PREFIXES)) {
+            index = openGraph;
+        }
+        if (index != null) {
+            String content = attributes.apply("content");
+            index.computeIfAbsent(key, k -> new ArrayList<String>()).add(content == null ? "" : content);
+        }
+    }
+
+    /**
+     * Adds the content of a JSON-LD <code>script</code>
+     *
+     * @param content the raw content of the script
+     * @return the compact JSON of the block, <code>null</code> if it is not valid JSON
+     */
+    public String addJsonLd(CharSequence content) {
+
+        String json = toCompactJson(content);
+        if (json != null) {
+            jsonLd.add(json);
+        }
+        return json;
+    }
+
+    /**
+     * @param content the raw content of a JSON-LD <code>script</code>
+     * @return the compact JSON of the block, <code>null</code> if it is not a JSON object or array
+     */
+    public static String toCompactJson(CharSequence content) {
+
+        if (StringUtils.isBlank(content)) {
+            return null;
+        }
+        try {
+            JSONTokener tokener = new JSONTokener(content.toString());
+            Object value = tokener.nextValue();
+            if ((value instanceof JSONObject || value instanceof JSONArray) && tokener.nextClean() == 0) {
+                return value.toString();
+            }
+        } catch (JSONException e) {
+            log.debug("Invalid JSON-LD block: {}", e::getMessage);
+        }
+        return null;
+    }
+
+    /**
+     * @return the Open Graph metas, each with its values in the order of the document
+     */
+    public Map<String, List<String>> getOpenGraph() {
+        return openGraph;
+    }
+
+    /**
+     * @return the Twitter Cards metas, each with its values in the order of the document
+     */
+    public Map<String, List<String>> getTwitter() {
+        return twitter;
+    }
+
+    /**
+     * @return the valid JSON-LD blocks, as compact JSON
+     */
+    public List<String> getJsonLd() {
+        return jsonLd;
+    }
+
+    /**
+     * @return a copy that cannot be modified, to be shared (see {@link HTMLParserCache})
+     * @since 2023
+     */
+    public StructuredData toUnmodifiable() {
+
+        StructuredData result = new StructuredData();
+        result.openGraph = toUnmodifiable(openGraph);
+        result.twitter = toUnmodifiable(twitter);
+        result.jsonLd = Collections.unmodifiableList(jsonLd);
+        return result;
+    }
+
+    protected static Map<String, List<String>> toUnmodifiable(Map<String, List<String>> metas) {
+
+        Map<String, List<String>> result = new LinkedHashMap<String, List<String>>();
+        for (Map.Entry<String, List<String>> entry : metas.entrySet()) {
+            result.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Writes <code>{"jsonLd": [...], "openGraph": {...}, "twitter": {...}}</code>. A meta with a single value is
+     * written as a string, a meta with several values as an array.
+     * <p>
+     * The JSON-LD blocks come first, so they can be written as they are found when the html is streamed.
+     *
+     * @param json
+     * @throws IOException
+     */
+    public void writeTo(JSONStreamWriter json) throws IOException {
+
+        json.beginObject();
+        json.name("jsonLd").beginArray();
+        for (String block : jsonLd) {
+            json.rawValue(block);
+        }
+        json.endArray();
+        writeMetasTo(json);
+        json.endObject();
+    }
+
+    /**
+     * Writes the <code>openGraph</code> and <code>twitter</code> fields, in an object started by the caller
+     */
+    public void writeMetasTo(JSONStreamWriter json) throws IOException {
+        writeMetas(json, "openGraph", openGraph);
+        writeMetas(json, "twitter", twitter);
+    }
+
+    protected static void writeMetas(JSONStreamWriter json, String name, Map<String, List<String>> metas)
+            throws IOException {
+
+        json.name(name).beginObject();
+        for (Map.Entry<String, List<String>> entry : metas.entrySet()) {
+            List<String> values = entry.getValue();
+            if (values.size() == 1) {
+                json.property(entry.getKey(), values.get(0));
+            } else {
+                json.name(entry.getKey()).beginArray();
+                for (String value : values) {
+                    json.value(value);
+                }
+                json.endArray();
+            }
+        }
+        json.endObject();
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A chunk of the plain text of an html, see {@link StreamedTextChunker}
+ *
+ * @since 2023
+ */
+public class TextChunk {
+
+    protected int index;
+
+    protected String text;
+
+    protected List<String> headings;
+
+    protected long begin;
+
+    protected long end;
+
+    public TextChunk(int index, String text, List<String> headings, long begin, long end) {
+        this.index = index;
+        this.text = text;
+        this.headings = headings;
+        this.begin = begin;
+        this.end = end;
+    }
+
+    /**
+     * @return the position of the chunk in the document, starting at 0
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return the text of the headings the chunk is under, from h1 to h6. Empty if the chunk is before the first
+     *         heading
+     */
+    public List<String> getHeadings() {
+        return headings;
+    }
+
+    /**
+     * @return the position in the html (in characters) of the first segment the text comes from
+     */
+    public long getBegin() {
+        return begin;
+    }
+
+    /**
+     * @return the position in the html (in characters) after the last segment the text comes from
+     */
+    public long getEnd() {
+        return end;
+    }
+
+    /**
+     * Writes the chunk as an object with index, text, headings, begin and end fields
+     */
+    public void writeTo(JSONStreamWriter json) throws IOException {
+
+        json.beginObject();
+        json.name("index").value(index);
+        json.property("text", text);
+        json.name("headings").beginArray();
+        for (String heading : headings) {
+            json.value(heading);
+        }
+        json.endArray();
+        json.name("begin").value(begin);
+        json.name("end").value(end);
+        json.endObject();
+    }
+
+    public String toString() {
+        return "index: " + index + " - headings: " + headings + " - begin: " + begin + " - end: " + end + " - text: "
+                + text;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils.bulk;
+
+import static org.nuxeo.ecm.core.bulk.BulkServiceImpl.STATUS_STREAM;
+import static org.nuxeo.lib.stream.computation.AbstractComputation.INPUT_1;
+import static org.nuxeo.lib.stream.computation.AbstractComputation.OUTPUT_1;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.bulk.action.computation.AbstractBulkComputation;
+import org.nuxeo.html.utils.HTMLExtractedData;
+import org.nuxeo.html.utils.listeners.HTMLExtractedListener;
+import org.nuxeo.lib.stream.computation.Topology;
+import org.nuxeo.runtime.stream.StreamProcessorTopology;
+
+/**
+ * Bulk action (re)extracting the html of the documents of a query and storing the result in the document (see
+ * {@link HTMLExtractedData}).
+ * <p>
+ * The documents are loaded and processed by batches, each batch in its own transaction. The bulk framework reports
+ * the progress in the status of the command, and resumes it after a restart of the node.
+ * <p>
+ * Parameters:
+ * <ul>
+ * <li><code>addFacet</code> (boolean, default <code>false</code>): adds the <code>HtmlExtracted</code> facet to the
+ * documents that do not have it. Else, these documents are skipped.</li>
+ * <li><code>force</code> (boolean, default <code>false</code>): extracts the html even if the stored data is fresh,
+ * typically after a change of the configuration.</li>
+ * </ul>
+ *
+ * @since 2023
+ */
+public class HTMLExtractAction implements StreamProcessorTopology {
+
+    private static final Logger log = LogManager.getLogger(HTMLExtractAction.class);
+
+    public static final String ACTION_NAME = "htmlExtract";
+
+    public static final String ACTION_FULL_NAME = "bulk/" + ACTION_NAME;
+
+    public static final String PARAM_ADD_FACET = "addFacet";
+
+    public static final String PARAM_FORCE = "force";
+
+    @Override
+    public Topology getTopology(Map<String, String> options) {
+        return Topology.builder()
+                       .addComputation(HTMLExtractComputation::new,
+                               Arrays.asList(INPUT_1 + ":" + ACTION_FULL_NAME, OUTPUT_1 + ":" + STATUS_STREAM))
+                       .build();
+    }
+
+    public static class HTMLExtractComputation extends AbstractBulkComputation {
+
+        public HTMLExtractComputation() {
+            super(ACTION_FULL_NAME);
+        }
+
+        @Override
+        protected void compute(CoreSession session, List<String> ids, Map<String, Serializable> properties) {
+
+            boolean addFacet = Boolean.parseBoolean(String.valueOf(properties.get(PARAM_ADD_FACET)));
+            boolean force = Boolean.parseBoolean(String.valueOf(properties.get(PARAM_FORCE)));
+
+            for (DocumentModel doc : loadDocuments(session, ids)) {
+                if (doc.isImmutable()) {
+                    continue;
+                }
+                if (!doc.hasFacet(HTMLExtractedData.FACET)) {
+                    if (!addFacet) {
+                        continue;
+                    }
+                    doc.addFacet(HTMLExtractedData.FACET);
+                }
+                if (!force && !HTMLExtractedData.needsUpdate(doc)) {
+                    continue;
+                }
+                try {
+                    if (!HTMLExtractedData.update(doc)) {
+                        log.warn("Partial extraction of the html of document: {}, not stored", doc.getId());
+                        continue;
+                    }
+                } catch (Exception e) {
+                    // One bad html must not fail the whole command
+                    log.warn("Cannot extract the html of document: {}", doc.getId(), e);
+                    continue;
+                }
+                // The save must not make the listener check the document again
+                HTMLExtractedListener.setExtractedSave(doc);
+                session.saveDocument(doc);
+            }
+        }
+    }
+}
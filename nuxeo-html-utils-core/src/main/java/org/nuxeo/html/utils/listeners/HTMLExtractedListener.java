@@ -0,0 +1,109 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils.listeners;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentRef;
+import org.nuxeo.ecm.core.api.versioning.VersioningService;
+import org.nuxeo.ecm.core.event.Event;
+import org.nuxeo.ecm.core.event.EventBundle;
+import org.nuxeo.ecm.core.event.PostCommitFilteringEventListener;
+import org.nuxeo.ecm.core.event.impl.DocumentEventContext;
+import org.nuxeo.html.utils.HTMLExtractedData;
+
+/**
+ * Asynchronous post-commit listener filling the data of the documents having the <code>HtmlExtracted</code> facet
+ * when their html changed (see {@link HTMLExtractedData}).
+ * <p>
+ * The html is considered changed when its digest is not the stored one (for a Note, the MD5 of its html), so
+ * modifying the metadata of a document costs a comparison of digests, not a parsing. The save of the extraction itself
+ * is ignored.
+ *
+ * @since 2023
+ */
+public class HTMLExtractedListener implements PostCommitFilteringEventListener {
+
+    private static final Logger log = LogManager.getLogger(HTMLExtractedListener.class);
+
+    // Context data of the dublincore listener, not to change the modification date and contributors
+    public static final String DISABLE_DUBLINCORE_LISTENER = "disableDublinCoreListener";
+
+    /**
+     * Context data set when the document is saved with its extraction, so this save does not schedule another check
+     */
+    public static final String HTML_EXTRACTED_SAVE = "htmlExtractedSave";
+
+    /**
+     * Sets the context data of a save of the extraction: no other check is scheduled, and the modification date, the
+     * contributors and the version of the document are not changed
+     *
+     * @param doc
+     */
+    public static void setExtractedSave(DocumentModel doc) {
+        doc.putContextData(DISABLE_DUBLINCORE_LISTENER, Boolean.TRUE);
+        doc.putContextData(VersioningService.DISABLE_AUTO_CHECKOUT, Boolean.TRUE);
+        doc.putContextData(HTML_EXTRACTED_SAVE, Boolean.TRUE);
+    }
+
+    @Override
+    public boolean acceptEvent(Event event) {
+
+        if (!(event.getContext() instanceof DocumentEventContext)) {
+            return false;
+        }
+        if (Boolean.TRUE.equals(event.getContext().getProperty(HTML_EXTRACTED_SAVE))) {
+            return false;
+        }
+        DocumentModel doc = ((DocumentEventContext) event.getContext()).getSourceDocument();
+        return doc != null && !doc.isImmutable() && doc.hasFacet(HTMLExtractedData.FACET);
+    }
+
+    @Override
+    public void handleEvent(EventBundle events) {
+
+        // A document modified several times in the transaction is extracted once
+        Set<DocumentRef> done = new HashSet<>();
+        for (Event event : events) {
+            DocumentEventContext ctx = (DocumentEventContext) event.getContext();
+            DocumentRef ref = ctx.getSourceDocument().getRef();
+            if (!done.add(ref)) {
+                continue;
+            }
+            CoreSession session = ctx.getCoreSession();
+            if (!session.exists(ref)) {
+                continue;
+            }
+            try {
+                DocumentModel doc = session.getDocument(ref);
+                if (HTMLExtractedData.needsUpdate(doc) && HTMLExtractedData.update(doc)) {
+                    setExtractedSave(doc);
+                    session.saveDocument(doc);
+                }
+            } catch (Exception e) {
+                log.warn("Cannot extract the html of document: {}", ref, e);
+            }
+        }
+    }
+}
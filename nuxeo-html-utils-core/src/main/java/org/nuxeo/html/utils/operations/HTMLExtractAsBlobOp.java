@@ -0,0 +1,288 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils.operations;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.io.output.StringBuilderWriter;
+import org.apache.commons.lang3.StringUtils;
+import org.nuxeo.ecm.automation.OperationContext;
+import org.nuxeo.ecm.automation.core.Constants;
+import org.nuxeo.ecm.automation.core.annotations.Context;
+import org.nuxeo.ecm.automation.core.annotations.Operation;
+import org.nuxeo.ecm.automation.core.annotations.OperationMethod;
+import org.nuxeo.ecm.automation.core.annotations.Param;
+import org.nuxeo.ecm.automation.core.util.BlobList;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.Blobs;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentModelList;
+import org.nuxeo.html.utils.HTMLBatchRunner;
+import org.nuxeo.html.utils.HTMLBatchRunner.DocumentInput;
+import org.nuxeo.html.utils.HTMLExtractedData;
+import org.nuxeo.html.utils.HTMLExtraction;
+import org.nuxeo.html.utils.HTMLExtractionProfile;
+import org.nuxeo.html.utils.HTMLExtractor.Facet;
+import org.nuxeo.html.utils.HTMLMetrics;
+import org.nuxeo.html.utils.HTMLParseBudget;
+import org.nuxeo.html.utils.HTMLParser;
+import org.nuxeo.html.utils.HTMLParserService;
+import org.nuxeo.html.utils.JSONStreamWriter;
+
+/**
+ * Same as {@link HTMLExtractOp}, but the JSON is written to an <code>application/json</code> blob instead of a
+ * String: use it when the output is large (text and links of a large html, list of inputs).
+ * <p>
+ * The JSON is the same as the one returned by HTML.Extract.
+ *
+ * @since 2023
+ */
+@Operation(id = HTMLExtractAsBlobOp.ID, category = Constants.CAT_SERVICES, label = "HTML: Extract As Blob", description = "Same as HTML.Extract (same parameters, same JSON), but returns an application/json blob instead of a string. Use it when the output is large. If input is a Document, optional xpath is the field holding the blob. The operation handles Note documents (whatever value in xpath). If input is a list of Documents or Blobs, they are parsed using up to parallelism threads (default: the number of processors) and the blob holds an array with one object per input, null if it failed.")
+public class HTMLExtractAsBlobOp {
+
+    public static final String ID = "HTML.ExtractAsBlob";
+
+    @Param(name = "facets", required = false)
+    String facets;
+
+    @Param(name = "metaList", required = false)
+    String metaList;
+
+    @Param(name = "includeHyperlinkURLs", required = false, values = { "false" })
+    Boolean includeHyperlinkURLs;
+
+    @Param(name = "includeAlternateText", required = false, values = { "false" })
+    Boolean includeAlternateText;
+
+    @Param(name = "convertNonBreakingSpaces", required = false, values = { "false" })
+    Boolean convertNonBreakingSpaces;
+
+    @Param(name = "lineSeparator", required = false)
+    String lineSeparator;
+
+    @Param(name = "xpath", required = false)
+    String xpath;
+
+    @Param(name = "profile", required = false)
+    String profile;
+
+    @Param(name = "engine", required = false, values = { "auto", "jericho", "fast" })
+    String engine;
+
+    @Param(name = "maxInputBytes", required = false)
+    int maxInputBytes = 0;
+
+    @Param(name = "maxElements", required = false)
+    int maxElements = 0;
+
+    @Param(name = "maxOutputChars", required = false)
+    int maxOutputChars = 0;
+
+    @Param(name = "timeout", required = false)
+    int timeout = 0;
+
+    @Param(name = "parallelism", required = false)
+    int parallelism = 0;
+
+    @Context
+    protected OperationContext ctx;
+
+    @Context
+    protected HTMLParserService htmlParserService;
+
+    // Set when the result of a parser is partial, see HTMLParseBudget
+    protected AtomicBoolean truncated = new AtomicBoolean();
+
+    protected List<String> getMetaNames() {
+
+        List<String> metaNames = new ArrayList<String>();
+        if (StringUtils.isNotBlank(metaList)) {
+            for (String oneMeta : metaList.split(",")) {
+                metaNames.add(oneMeta.trim());
+            }
+        }
+        return metaNames;
+    }
+
+    protected HTMLExtraction extract(HTMLParser htmlParser) throws IOException {
+
+        HTMLExtractionProfile p = htmlParser.getProfile();
+        return htmlParser.getExtractor()
+                         .setFacets(Facet.parse(facets))
+                         .setMetaNames(getMetaNames())
+                         .setPlainTextOptions(p.getLineSeparator(), p.isIncludeHyperlinkURLs(),
+                                 p.isIncludeAlternateText(), p.isConvertNonBreakingSpaces())
+                         .extract();
+    }
+
+    /**
+     * @return the extraction of the stored data, <code>null</code> if it cannot be used with these parameters
+     */
+    protected HTMLExtraction getStoredExtraction(HTMLExtractedData stored, HTMLExtractionProfile extractionProfile) {
+        return stored.getExtraction(Facet.parse(facets), getMetaNames(), extractionProfile);
+    }
+
+    /**
+     * Writes the JSON of the extraction to the blob. The extraction holds the values, but they are not copied to a
+     * JSON String.
+     */
+    protected Blob buildJsonBlob(HTMLExtraction extraction) throws IOException {
+
+        if (extraction.isTruncated()) {
+            truncated.set(true);
+        }
+        return writeJsonBlob(json -> HTMLExtractOp.writeExtraction(json, extraction));
+    }
+
+    protected Blob writeJsonBlob(JsonContent content) throws IOException {
+
+        Blob result = Blobs.createBlobWithExtension(".json");
+        try (Writer writer = Files.newBufferedWriter(result.getFile().toPath(), StandardCharsets.UTF_8)) {
+            JSONStreamWriter json = new JSONStreamWriter(writer);
+            content.writeTo(json);
+            json.flush();
+        }
+        result.setMimeType("application/json");
+        result.setEncoding("UTF-8");
+
+        return result;
+    }
+
+    @FunctionalInterface
+    protected interface JsonContent {
+        void writeTo(JSONStreamWriter json) throws IOException;
+    }
+
+    /**
+     * @return the profile of the profile parameter, with the values of the other parameters
+     */
+    protected HTMLExtractionProfile getProfile() {
+        return htmlParserService.getProfile(profile)
+                                .withBudget(maxInputBytes, maxElements, maxOutputChars, timeout)
+                                .withPlainTextOptions(lineSeparator, includeHyperlinkURLs, includeAlternateText,
+                                        convertNonBreakingSpaces)
+                                .withEngine(engine);
+    }
+
+    /**
+     * Sets the {@link HTMLParseBudget#TRUNCATED_CONTEXT_VARIABLE} context variable and records the output
+     */
+    protected Blob complete(Blob result) {
+        if (ctx != null) {
+            ctx.put(HTMLParseBudget.TRUNCATED_CONTEXT_VARIABLE, truncated.get());
+        }
+        if (result != null) {
+            HTMLMetrics.recordOutput(ID, result.getLength());
+        }
+        return result;
+    }
+
+    @OperationMethod
+    public Blob run(Blob inBlob) throws IOException {
+
+        Blob result = null;
+        if (inBlob != null) {
+            result = buildJsonBlob(extract(htmlParserService.newParser(inBlob, getProfile())));
+        }
+        return complete(result);
+    }
+
+    @OperationMethod
+    public Blob run(DocumentModel inDoc) throws IOException {
+
+        Blob result = null;
+        if (inDoc != null) {
+            HTMLExtractedData stored = HTMLExtractedData.getIfFresh(inDoc, xpath);
+            HTMLExtraction extraction = stored == null ? null : getStoredExtraction(stored, getProfile());
+            if (extraction == null) {
+                extraction = extract(htmlParserService.newParser(inDoc, xpath, getProfile()));
+            }
+            result = buildJsonBlob(extraction);
+        }
+        return complete(result);
+    }
+
+    @OperationMethod
+    public Blob run(String inStr) throws IOException {
+
+        Blob result = null;
+        if (inStr != null) {
+            result = buildJsonBlob(extract(htmlParserService.newParser(inStr, getProfile())));
+        }
+        return complete(result);
+    }
+
+    @OperationMethod
+    public Blob run(DocumentModelList inDocs) throws IOException {
+
+        // Immutable, shared by the threads
+        HTMLExtractionProfile extractionProfile = getProfile();
+        List<DocumentInput> inputs = HTMLBatchRunner.getInputs(inDocs, xpath,
+                stored -> getStoredExtraction(stored, extractionProfile));
+        return runBatch(inputs, input -> input.getStored() != null ? input.getStored()
+                : extract(input.newParser(htmlParserService, extractionProfile)));
+    }
+
+    @OperationMethod
+    public Blob run(BlobList inBlobs) throws IOException {
+        return runBatch(inBlobs);
+    }
+
+    protected Blob runBatch(List<Blob> blobs) throws IOException {
+
+        // Immutable, shared by the threads
+        HTMLExtractionProfile extractionProfile = getProfile();
+        return runBatch(blobs, blob -> extract(htmlParserService.newParser(blob, extractionProfile)));
+    }
+
+    /**
+     * Each input is serialized by its thread, the blob is written once they are all done, in the order of the inputs
+     */
+    protected <I> Blob runBatch(List<I> inputs, HTMLBatchRunner.ParseFunction<I, HTMLExtraction> extractFunction)
+            throws IOException {
+
+        List<String> results = HTMLBatchRunner.map(inputs, parallelism, input -> {
+            if (input == null) {
+                return null;
+            }
+            HTMLExtraction extraction = extractFunction.apply(input);
+            if (extraction.isTruncated()) {
+                truncated.set(true);
+            }
+            StringBuilderWriter writer = new StringBuilderWriter();
+            HTMLExtractOp.writeExtraction(new JSONStreamWriter(writer), extraction);
+            return writer.toString();
+        });
+
+        return complete(writeJsonBlob(json -> {
+            json.beginArray();
+            for (String result : results) {
+                json.rawValue(result);
+            }
+            json.endArray();
+        }));
+    }
+
+}
@@ -0,0 +1,149 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils.operations;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.nuxeo.ecm.automation.core.Constants;
+import org.nuxeo.ecm.automation.core.annotations.Context;
+import org.nuxeo.ecm.automation.core.annotations.Operation;
+import org.nuxeo.ecm.automation.core.annotations.OperationMethod;
+import org.nuxeo.ecm.automation.core.annotations.Param;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.Blobs;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.html.utils.HTMLParserService;
+
+/**
+ * Schedules an HTML.Extract in the background (see {@link HTMLParserService#submit(Blob, Map)}) and returns the id
+ * to pass to HTML.GetExtractResult. The request does not wait for the parsing, and concurrent requests for the same
+ * html and parameters share the same extraction.
+ *
+ * @since 2023
+ */
+@Operation(id = HTMLExtractAsyncOp.ID, category = Constants.CAT_SERVICES, label = "HTML: Extract Async", description = "Schedules the extraction of the HTML in the background and returns its id, to pass to HTML.GetExtractResult. Same parameters as HTML.Extract. Submitting the same html with the same parameters, as the same user, while the extraction is scheduled, running or completed returns the same id, without parsing again. Only this user can get its result. If input is a Document, optional xpath is the field holding the blob. Returns an empty string if the Document has no html.")
+public class HTMLExtractAsyncOp {
+
+    public static final String ID = "HTML.ExtractAsync";
+
+    @Param(name = "facets", required = false)
+    String facets;
+
+    @Param(name = "metaList", required = false)
+    String metaList;
+
+    @Param(name = "includeHyperlinkURLs", required = false, values = { "false" })
+    Boolean includeHyperlinkURLs;
+
+    @Param(name = "includeAlternateText", required = false, values = { "false" })
+    Boolean includeAlternateText;
+
+    @Param(name = "convertNonBreakingSpaces", required = false, values = { "false" })
+    Boolean convertNonBreakingSpaces;
+
+    @Param(name = "lineSeparator", required = false)
+    String lineSeparator;
+
+    @Param(name = "xpath", required = false)
+    String xpath;
+
+    @Param(name = "profile", required = false)
+    String profile;
+
+    @Param(name = "engine", required = false, values = { "auto", "jericho", "fast" })
+    String engine;
+
+    @Param(name = "maxInputBytes", required = false)
+    int maxInputBytes = 0;
+
+    @Param(name = "maxElements", required = false)
+    int maxElements = 0;
+
+    @Param(name = "maxOutputChars", required = false)
+    int maxOutputChars = 0;
+
+    @Param(name = "timeout", required = false)
+    int timeout = 0;
+
+    @Context
+    protected HTMLParserService htmlParserService;
+
+    /**
+     * @return the parameters of HTML.Extract, only the ones set
+     */
+    protected Map<String, Serializable> getParams() {
+
+        Map<String, Serializable> params = new HashMap<String, Serializable>();
+        putIfSet(params, "facets", facets);
+        putIfSet(params, "metaList", metaList);
+        putIfSet(params, "includeHyperlinkURLs", includeHyperlinkURLs);
+        putIfSet(params, "includeAlternateText", includeAlternateText);
+        putIfSet(params, "convertNonBreakingSpaces", convertNonBreakingSpaces);
+        putIfSet(params, "lineSeparator", lineSeparator);
+        putIfSet(params, "xpath", xpath);
+        putIfSet(params, "profile", profile);
+        putIfSet(params, "engine", engine);
+        putIfSet(params, "maxInputBytes", maxInputBytes);
+        putIfSet(params, "maxElements", maxElements);
+        putIfSet(params, "maxOutputChars", maxOutputChars);
+        putIfSet(params, "timeout", timeout);
+        return params;
+    }
+
+    protected void putIfSet(Map<String, Serializable> params, String name, Serializable value) {
+
+        if (value == null || (value instanceof String && StringUtils.isEmpty((String) value))
+                || (value instanceof Integer && (Integer) value <= 0)) {
+            return;
+        }
+        params.put(name, value);
+    }
+
+    @OperationMethod
+    public String run(Blob inBlob) throws IOException {
+
+        if (inBlob == null) {
+            return "";
+        }
+        return htmlParserService.submit(inBlob, getParams());
+    }
+
+    @OperationMethod
+    public String run(DocumentModel inDoc) throws IOException {
+
+        if (inDoc == null) {
+            return "";
+        }
+        return StringUtils.defaultString(htmlParserService.submit(inDoc, getParams()));
+    }
+
+    @OperationMethod
+    public String run(String inHTML) throws IOException {
+
+        if (inHTML == null) {
+            return "";
+        }
+        return run(Blobs.createBlob(inHTML, "text/html", "UTF-8"));
+    }
+
+}
@@ -0,0 +1,314 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils.operations;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.io.output.StringBuilderWriter;
+import org.apache.commons.lang3.StringUtils;
+import org.nuxeo.ecm.automation.OperationContext;
+import org.nuxeo.ecm.automation.core.Constants;
+import org.nuxeo.ecm.automation.core.annotations.Context;
+import org.nuxeo.ecm.automation.core.annotations.Operation;
+import org.nuxeo.ecm.automation.core.annotations.OperationMethod;
+import org.nuxeo.ecm.automation.core.annotations.Param;
+import org.nuxeo.ecm.automation.core.util.BlobList;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentModelList;
+import org.nuxeo.html.utils.HTMLBatchRunner;
+import org.nuxeo.html.utils.HTMLBatchRunner.DocumentInput;
+import org.nuxeo.html.utils.HTMLExtractedData;
+import org.nuxeo.html.utils.HTMLExtraction;
+import org.nuxeo.html.utils.HTMLExtractionProfile;
+import org.nuxeo.html.utils.HTMLExtractor.Facet;
+import org.nuxeo.html.utils.HTMLMetrics;
+import org.nuxeo.html.utils.HTMLParseBudget;
+import org.nuxeo.html.utils.HTMLParser;
+import org.nuxeo.html.utils.HTMLParserService;
+import org.nuxeo.html.utils.JSONStreamWriter;
+import org.nuxeo.html.utils.LinkInfo;
+
+/**
+ * Parses the HTML input (blob, Document or String) once and returns, in a single JSON object, every facet requested:
+ * title, metas, links, images and/or text. This is faster than calling HTML.GetInfo, HTML.GetLinks and
+ * HTML.GetPlainText on the same input.
+ * <p>
+ * If the input is a Document whose extraction is stored (see {@link HTMLExtractedData}) and only title, metas and/or
+ * links are requested, they are returned without parsing.
+ * <p>
+ * If the input is a list of documents or blobs, they are parsed in parallel (see {@link HTMLBatchRunner}) and the
+ * result is a JSON array with one object per input, in the same order (<code>null</code> if the parsing of an input
+ * failed).
+ *
+ * @since 2023
+ */
+@Operation(id = HTMLExtractOp.ID, category = Constants.CAT_SERVICES, label = "HTML: Extract", description = "Parses the HTML once and returns a JSON string of an object with the facets listed in facets (comma-separated list of title, metas, links, images, text. Default: all): {title: \"The title\", metas: {keywords: \"kw1, kw2\"}, links: [{tag, attribute, text, link}], images: [\"src\"], text: \"The text\"}. metaList is the comma-separated list of metas to return, the other parameters are the same as HTML.GetPlainText. If input is a Document, optional xpath is the field holding the blob. The operation handles Note documents (whatever value in xpath). If input is a list of Documents or Blobs, they are parsed using up to parallelism threads (default: the number of processors) and the result is an array with one object per input, null if it failed. engine (auto, jericho or fast) selects how the start tags are found: the default, auto, uses a lightweight scanner when the text is not needed.")
+public class HTMLExtractOp {
+
+    public static final String ID = "HTML.Extract";
+
+    protected static final String EMPTY_OBJECT = "{}";
+
+    // Name of the field of each facet in the result
+    protected static final Map<Facet, String> FIELDS = Map.of(Facet.TITLE, "title", Facet.METAS, "metas", Facet.LINKS,
+            "links", Facet.IMAGES, "images", Facet.TEXT, "text");
+
+    @Param(name = "facets", required = false)
+    String facets;
+
+    @Param(name = "metaList", required = false)
+    String metaList;
+
+    @Param(name = "includeHyperlinkURLs", required = false, values = { "false" })
+    Boolean includeHyperlinkURLs;
+
+    @Param(name = "includeAlternateText", required = false, values = { "false" })
+    Boolean includeAlternateText;
+
+    @Param(name = "convertNonBreakingSpaces", required = false, values = { "false" })
+    Boolean convertNonBreakingSpaces;
+
+    @Param(name = "lineSeparator", required = false)
+    String lineSeparator;
+
+    @Param(name = "xpath", required = false)
+    String xpath;
+
+    @Param(name = "profile", required = false)
+    String profile;
+
+    @Param(name = "engine", required = false, values = { "auto", "jericho", "fast" })
+    String engine;
+
+    @Param(name = "maxInputBytes", required = false)
+    int maxInputBytes = 0;
+
+    @Param(name = "maxElements", required = false)
+    int maxElements = 0;
+
+    @Param(name = "maxOutputChars", required = false)
+    int maxOutputChars = 0;
+
+    @Param(name = "timeout", required = false)
+    int timeout = 0;
+
+    @Param(name = "parallelism", required = false)
+    int parallelism = 0;
+
+    @Context
+    protected OperationContext ctx;
+
+    @Context
+    protected HTMLParserService htmlParserService;
+
+    // Set when the result of a parser is partial, see HTMLParseBudget
+    protected AtomicBoolean truncated = new AtomicBoolean();
+
+    protected List<String> getMetaNames() {
+
+        List<String> metaNames = new ArrayList<String>();
+        if (StringUtils.isNotBlank(metaList)) {
+            for (String oneMeta : metaList.split(",")) {
+                metaNames.add(oneMeta.trim());
+            }
+        }
+        return metaNames;
+    }
+
+    protected HTMLExtraction extract(HTMLParser htmlParser) throws IOException {
+
+        HTMLExtractionProfile p = htmlParser.getProfile();
+        return htmlParser.getExtractor()
+                         .setFacets(Facet.parse(facets))
+                         .setMetaNames(getMetaNames())
+                         .setPlainTextOptions(p.getLineSeparator(), p.isIncludeHyperlinkURLs(),
+                                 p.isIncludeAlternateText(), p.isConvertNonBreakingSpaces())
+                         .extract();
+    }
+
+    /**
+     * @return the extraction of the stored data, <code>null</code> if it cannot be used with these parameters
+     */
+    protected HTMLExtraction getStoredExtraction(HTMLExtractedData stored, HTMLExtractionProfile extractionProfile) {
+        return stored.getExtraction(Facet.parse(facets), getMetaNames(), extractionProfile);
+    }
+
+    protected String buildResult(HTMLParser htmlParser) throws IOException {
+        return buildResult(extract(htmlParser));
+    }
+
+    protected String buildResult(HTMLExtraction extraction) throws IOException {
+
+        if (extraction.isTruncated()) {
+            truncated.set(true);
+        }
+        StringBuilderWriter writer = new StringBuilderWriter();
+        writeExtraction(new JSONStreamWriter(writer), extraction);
+
+        return writer.toString();
+    }
+
+    /**
+     * Writes the JSON object of the extraction, with the <code>truncated</code> field if it is partial
+     */
+    public static void writeExtraction(JSONStreamWriter json, HTMLExtraction extraction) throws IOException {
+
+        List<String> fields = new ArrayList<String>();
+        for (Facet facet : Facet.values()) {
+            if (extraction.has(facet)) {
+                fields.add(FIELDS.get(facet));
+            }
+        }
+        if (extraction.isTruncated()) {
+            fields.add(HTMLGetInfoOp.TRUNCATED_FIELD);
+        }
+
+        json.beginObject();
+        for (String field : JSONStreamWriter.orgJsonOrder(fields.toArray(new String[0]))) {
+            switch (field) {
+            case "title":
+                json.optProperty(field, extraction.getTitle());
+                break;
+            case "metas":
+                json.name(field).object(extraction.getMetas());
+                break;
+            case "links":
+                json.name(field).beginArray();
+                for (LinkInfo li : extraction.getLinks()) {
+                    HTMLGetLinksOp.writeLink(json, li);
+                }
+                json.endArray();
+                break;
+            case "images":
+                json.name(field).beginArray();
+                for (String src : extraction.getImgSrc()) {
+                    json.value(src);
+                }
+                json.endArray();
+                break;
+            case "text":
+                json.optProperty(field, extraction.getPlainText());
+                break;
+            default:
+                json.name(field).value(true);
+                break;
+            }
+        }
+        json.endObject();
+    }
+
+    /**
+     * @return the profile of the profile parameter, with the values of the other parameters
+     */
+    protected HTMLExtractionProfile getProfile() {
+        return htmlParserService.getProfile(profile)
+                                .withBudget(maxInputBytes, maxElements, maxOutputChars, timeout)
+                                .withPlainTextOptions(lineSeparator, includeHyperlinkURLs, includeAlternateText,
+                                        convertNonBreakingSpaces)
+                                .withEngine(engine);
+    }
+
+    /**
+     * Sets the {@link HTMLParseBudget#TRUNCATED_CONTEXT_VARIABLE} context variable and records the output
+     */
+    protected String complete(String result) {
+        if (ctx != null) {
+            ctx.put(HTMLParseBudget.TRUNCATED_CONTEXT_VARIABLE, truncated.get());
+        }
+        return HTMLMetrics.recordOutput(ID, result);
+    }
+
+    @OperationMethod
+    public String run(Blob inBlob) throws IOException {
+
+        String result = EMPTY_OBJECT;
+
+        if (inBlob != null) {
+            result = buildResult(htmlParserService.newParser(inBlob, getProfile()));
+        }
+
+        return complete(result);
+    }
+
+    @OperationMethod
+    public String run(DocumentModel inDoc) throws IOException {
+
+        String result = EMPTY_OBJECT;
+
+        if (inDoc != null) {
+            HTMLExtractedData stored = HTMLExtractedData.getIfFresh(inDoc, xpath);
+            HTMLExtraction extraction = stored == null ? null : getStoredExtraction(stored, getProfile());
+            if (extraction != null) {
+                result = buildResult(extraction);
+            } else {
+                result = buildResult(htmlParserService.newParser(inDoc, xpath, getProfile()));
+            }
+        }
+
+        return complete(result);
+    }
+
+    @OperationMethod
+    public String run(String inStr) throws IOException {
+
+        String result = EMPTY_OBJECT;
+
+        if (inStr != null) {
+            result = buildResult(htmlParserService.newParser(inStr, getProfile()));
+        }
+
+        return complete(result);
+    }
+
+    @OperationMethod
+    public String run(DocumentModelList inDocs) throws IOException {
+
+        // Immutable, shared by the threads
+        HTMLExtractionProfile extractionProfile = getProfile();
+        List<DocumentInput> inputs = HTMLBatchRunner.getInputs(inDocs, xpath,
+                stored -> getStoredExtraction(stored, extractionProfile));
+        List<String> results = HTMLBatchRunner.map(inputs, parallelism,
+                input -> input == null ? null
+                        : input.getStored() != null ? buildResult(input.getStored())
+                                : buildResult(input.newParser(htmlParserService, extractionProfile)));
+
+        return complete(HTMLBatchRunner.toJsonArray(results));
+    }
+
+    @OperationMethod
+    public String run(BlobList inBlobs) throws IOException {
+        return runBatch(inBlobs);
+    }
+
+    protected String runBatch(List<Blob> blobs) throws IOException {
+
+        // Immutable, shared by the threads
+        HTMLExtractionProfile extractionProfile = getProfile();
+        List<String> results = HTMLBatchRunner.map(blobs, parallelism,
+                blob -> blob == null ? null : buildResult(htmlParserService.newParser(blob, extractionProfile)));
+
+        return complete(HTMLBatchRunner.toJsonArray(results));
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils.operations;
+
+import java.io.IOException;
+
+import org.apache.commons.io.output.StringBuilderWriter;
+import org.nuxeo.ecm.automation.core.Constants;
+import org.nuxeo.ecm.automation.core.annotations.Context;
+import org.nuxeo.ecm.automation.core.annotations.Operation;
+import org.nuxeo.ecm.automation.core.annotations.OperationMethod;
+import org.nuxeo.ecm.automation.core.annotations.Param;
+import org.nuxeo.html.utils.HTMLParserService;
+import org.nuxeo.html.utils.JSONStreamWriter;
+
+/**
+ * Returns the status, and the result when completed, of an extraction scheduled by HTML.ExtractAsync.
+ *
+ * @since 2023
+ */
+@Operation(id = HTMLGetExtractResultOp.ID, category = Constants.CAT_SERVICES, label = "HTML: Get Extract Result", description = "Returns a JSON string of the extraction whose id was returned by HTML.ExtractAsync: {id: \"the id\", status: \"completed\", result: {...}}. status is scheduled, running, completed, failed or unknown (the id does not exist, expired or was submitted by another user). result is the result of HTML.Extract, only when status is completed.")
+public class HTMLGetExtractResultOp {
+
+    public static final String ID = "HTML.GetExtractResult";
+
+    public static final String STATUS_UNKNOWN = "unknown";
+
+    @Param(name = "id", required = true)
+    String id;
+
+    @Context
+    protected HTMLParserService htmlParserService;
+
+    @OperationMethod
+    public String run() throws IOException {
+
+        String status = htmlParserService.getStatus(id);
+        String result = htmlParserService.getResult(id);
+
+        StringBuilderWriter writer = new StringBuilderWriter();
+        JSONStreamWriter json = new JSONStreamWriter(writer);
+        json.beginObject();
+        json.property("id", id);
+        json.property("status", status == null ? STATUS_UNKNOWN : status);
+        if (result != null) {
+            json.name("result").rawValue(result);
+        }
+        json.endObject();
+        json.flush();
+
+        return writer.toString();
+    }
+
+}
@@ -19,30 +19,61 @@
 package org.nuxeo.html.utils.operations;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
+import org.apache.commons.io.output.StringBuilderWriter;
 import org.apache.commons.lang3.StringUtils;
-import org.json.JSONException;
-import org.json.JSONObject;
+import org.nuxeo.ecm.automation.OperationContext;
 import org.nuxeo.ecm.automation.core.Constants;
+import org.nuxeo.ecm.automation.core.annotations.Context;
 import org.nuxeo.ecm.automation.core.annotations.Operation;
 import org.nuxeo.ecm.automation.core.annotations.OperationMethod;
 import org.nuxeo.ecm.automation.core.annotations.Param;
+import org.nuxeo.ecm.automation.core.util.BlobList;
 import org.nuxeo.ecm.core.api.Blob;
 import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentModelList;
+import org.nuxeo.html.utils.HTMLBatchRunner;
+import org.nuxeo.html.utils.HTMLBatchRunner.DocumentInput;
+import org.nuxeo.html.utils.HTMLExtractedData;
+import org.nuxeo.html.utils.HTMLExtraction;
+import org.nuxeo.html.utils.HTMLExtractionProfile;
+import org.nuxeo.html.utils.HTMLExtractor.Facet;
+import org.nuxeo.html.utils.HTMLMetrics;
+import org.nuxeo.html.utils.HTMLParseBudget;
 import org.nuxeo.html.utils.HTMLParser;
+import org.nuxeo.html.utils.HTMLParserService;
+import org.nuxeo.html.utils.JSONStreamWriter;
 
 /**
  * Parses the HTML input (blob, Document or String) and return a JSON String containing an object with at least a
  * "title" field. Also contains the contant of any "meta" field passed (using the name of the tag)
+ * <p>
+ * If the input is a Document whose title and metas are stored (see {@link HTMLExtractedData}), they are returned
+ * without parsing, unless they cannot give the same result (headOnly, fast engine, budget).
+ * <p>
+ * If the input is a list of documents or blobs, they are parsed in parallel (see {@link HTMLBatchRunner}) and the
+ * result is a JSON array with one object per input, in the same order (<code>null</code> if the parsing of an input
+ * failed).
  * 
  * @since 8.1
  */
-@Operation(id = HTMLGetInfoOp.ID, category = Constants.CAT_SERVICES, label = "HTML: Get Info", description = "Returns a JSON string of an object whose properties are title and every meta required (comma-separated list). For example, {title: \"The title\", keywords: \"kw1, kw2\"}. If input is a Document, optional xpath is the field holding the blob. The operation handles Note documents (whatever value in xpath).")
+@Operation(id = HTMLGetInfoOp.ID, category = Constants.CAT_SERVICES, label = "HTML: Get Info", description = "Returns a JSON string of an object whose properties are title and every meta required (comma-separated list). For example, {title: \"The title\", keywords: \"kw1, kw2\"}. If input is a Document, optional xpath is the field holding the blob. The operation handles Note documents (whatever value in xpath). If input is a list of Documents or Blobs, they are parsed using up to parallelism threads (default: the number of processors) and the result is an array with one object per input, null if it failed. engine (auto, jericho or fast) selects how the start tags are found: the default, auto, uses a lightweight scanner when the text is not needed. If headOnly is true (default false), the html is read sequentially and the reading stops at the end of the head (</head> or <body>): the time spent does not depend on the size of the body, but a title or a meta in the body is ignored (the whole html is read if it has no head).")
 public class HTMLGetInfoOp {
 
     public static final String ID = "HTML.GetInfo";
 
-    protected HTMLParser htmlParser;
+    protected static final String EMPTY_OBJECT = "{}";
+
+    // Added to the result when it is partial, see HTMLParseBudget
+    public static final String TRUNCATED_FIELD = "truncated";
 
     @Param(name = "metaList", required = false)
     String metaList;
@@ -50,61 +81,186 @@ public class HTMLGetInfoOp {
     @Param(name = "xpath", required = false)
     String xpath;
 
-    protected JSONObject buildInfo() throws JSONException {
+    @Param(name = "profile", required = false)
+    String profile;
+
+    @Param(name = "engine", required = false, values = { "auto", "jericho", "fast" })
+    String engine;
+
+    @Param(name = "headOnly", required = false, values = { "false" })
+    boolean headOnly = false;
+
+    @Param(name = "maxInputBytes", required = false)
+    int maxInputBytes = 0;
+
+    @Param(name = "timeout", required = false)
+    int timeout = 0;
+
+    @Param(name = "parallelism", required = false)
+    int parallelism = 0;
+
+    @Context
+    protected OperationContext ctx;
+
+    @Context
+    protected HTMLParserService htmlParserService;
+
+    // Set when the result of a parser is partial, see HTMLParseBudget
+    protected AtomicBoolean truncated = new AtomicBoolean();
+
+    protected String buildInfo(HTMLParser htmlParser) throws IOException {
+
+        htmlParser.setHeadOnly(headOnly);
+        Map<String, Object> info = collectInfo(htmlParser::getTitle, htmlParser::getMetaValue);
+        if (htmlParser.isTruncated()) {
+            truncated.set(true);
+            info.put(TRUNCATED_FIELD, Boolean.TRUE);
+        }
+        return writeInfo(info);
+    }
+
+    protected String buildInfo(HTMLExtraction extraction) throws IOException {
+        return writeInfo(collectInfo(extraction::getTitle, extraction.getMetas()::get));
+    }
+
+    /**
+     * @return the title and metas of the stored data, <code>null</code> if it cannot be used with these parameters
+     */
+    protected HTMLExtraction getStoredExtraction(HTMLExtractedData stored, HTMLExtractionProfile extractionProfile) {
+        return stored.getExtraction(EnumSet.of(Facet.TITLE, Facet.METAS), getMetaNames(), extractionProfile);
+    }
+
+    protected Map<String, Object> collectInfo(Supplier<String> title, UnaryOperator<String> metaValue) {
 
-        JSONObject obj = new JSONObject();
+        Map<String, Object> info = new LinkedHashMap<String, Object>();
 
-        obj.put("title", htmlParser.getTitle());
+        info.put("title", title.get());
 
+        for (String oneMeta : getMetaNames()) {
+            info.put(oneMeta, metaValue.apply(oneMeta));
+        }
+
+        return info;
+    }
+
+    protected String writeInfo(Map<String, Object> info) throws IOException {
+
+        try (HTMLMetrics.Timing timing = HTMLMetrics.time(HTMLMetrics.PHASE_SERIALIZE)) {
+            StringBuilderWriter writer = new StringBuilderWriter();
+            new JSONStreamWriter(writer).object(info);
+            return writer.toString();
+        }
+    }
+
+    protected List<String> getMetaNames() {
+
+        List<String> names = new ArrayList<String>();
         if (StringUtils.isNotBlank(metaList)) {
             String[] metas = metaList.split(",");
             for (String oneMeta : metas) {
-                oneMeta = oneMeta.trim();
-                obj.put(oneMeta, htmlParser.getMetaValue(oneMeta));
+                names.add(oneMeta.trim());
             }
         }
+        return names;
+    }
+
+    /**
+     * @return the profile of the profile parameter, with the values of the other parameters
+     */
+    protected HTMLExtractionProfile getProfile() {
+        return htmlParserService.getProfile(profile)
+                                .withBudget(maxInputBytes, 0, 0, timeout)
+                                .withEngine(engine);
+    }
 
-        return obj;
+    /**
+     * Sets the {@link HTMLParseBudget#TRUNCATED_CONTEXT_VARIABLE} context variable and records the output
+     */
+    protected String complete(String result) {
+        if (ctx != null) {
+            ctx.put(HTMLParseBudget.TRUNCATED_CONTEXT_VARIABLE, truncated.get());
+        }
+        return HTMLMetrics.recordOutput(ID, result);
     }
 
     @OperationMethod
-    public String run(Blob inBlob) throws IOException, JSONException {
+    public String run(Blob inBlob) throws IOException {
+        try (HTMLMetrics.Timing timing = HTMLMetrics.timeOperation(ID)) {
+            String result = EMPTY_OBJECT;
 
-        JSONObject obj = new JSONObject();
+            if (inBlob != null) {
+                result = buildInfo(htmlParserService.newParser(inBlob, getProfile()));
+            }
 
-        if (inBlob != null) {
-            htmlParser = new HTMLParser(inBlob);
-            obj = buildInfo();
+            return complete(result);
         }
-
-        return obj.toString();
     }
 
     @OperationMethod
-    public String run(DocumentModel inDoc) throws IOException, JSONException {
+    public String run(DocumentModel inDoc) throws IOException {
+        try (HTMLMetrics.Timing timing = HTMLMetrics.timeOperation(ID)) {
+            String result = EMPTY_OBJECT;
 
-        JSONObject obj = new JSONObject();
-
-        if (inDoc != null) {
-            htmlParser = new HTMLParser(inDoc, xpath);
-            obj = buildInfo();
+            if (inDoc != null) {
+                // The stored data is extracted from the whole html
+                HTMLExtractedData stored = headOnly ? null : HTMLExtractedData.getIfFresh(inDoc, xpath);
+                HTMLExtraction extraction = stored == null ? null : getStoredExtraction(stored, getProfile());
+                if (extraction != null) {
+                    result = buildInfo(extraction);
+                } else {
+                    result = buildInfo(htmlParserService.newParser(inDoc, xpath, getProfile()));
+                }
+            }
 
+            return complete(result);
         }
+    }
 
-        return obj.toString();
+    @OperationMethod
+    public String run(String inStr) throws IOException {
+        try (HTMLMetrics.Timing timing = HTMLMetrics.timeOperation(ID)) {
+            String result = EMPTY_OBJECT;
+
+            if (inStr != null) {
+                result = buildInfo(htmlParserService.newParser(inStr, getProfile()));
+            }
+
+            return complete(result);
+        }
     }
 
     @OperationMethod
-    public String run(String inStr) throws IOException, JSONException {
+    public String run(DocumentModelList inDocs) throws IOException {
+        try (HTMLMetrics.Timing timing = HTMLMetrics.timeOperation(ID)) {
+            // Immutable, shared by the threads
+            HTMLExtractionProfile extractionProfile = getProfile();
+            // The stored data is extracted from the whole html
+            List<DocumentInput> inputs = HTMLBatchRunner.getInputs(inDocs, xpath,
+                    headOnly ? null : stored -> getStoredExtraction(stored, extractionProfile));
+            List<String> results = HTMLBatchRunner.map(inputs, parallelism,
+                    input -> input == null ? null
+                            : input.getStored() != null ? buildInfo(input.getStored())
+                                    : buildInfo(input.newParser(htmlParserService, extractionProfile)));
 
-        JSONObject obj = new JSONObject();
+            return complete(HTMLBatchRunner.toJsonArray(results));
+        }
+    }
 
-        if (inStr != null) {
-            htmlParser = new HTMLParser(inStr);
-            obj = buildInfo();
+    @OperationMethod
+    public String run(BlobList inBlobs) throws IOException {
+        try (HTMLMetrics.Timing timing = HTMLMetrics.timeOperation(ID)) {
+            return runBatch(inBlobs);
         }
+    }
+
+    protected String runBatch(List<Blob> blobs) throws IOException {
+
+        // Immutable, shared by the threads
+        HTMLExtractionProfile extractionProfile = getProfile();
+        List<String> results = HTMLBatchRunner.map(blobs, parallelism,
+                blob -> blob == null ? null : buildInfo(htmlParserService.newParser(blob, extractionProfile)));
 
-        return obj.toString();
+        return complete(HTMLBatchRunner.toJsonArray(results));
     }
 
 }
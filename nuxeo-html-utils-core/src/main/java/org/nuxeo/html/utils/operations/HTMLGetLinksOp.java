@@ -21,97 +21,327 @@ package org.nuxeo.html.utils.operations;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import org.apache.commons.io.output.StringBuilderWriter;
+import org.nuxeo.ecm.automation.OperationContext;
 import org.nuxeo.ecm.automation.core.Constants;
+import org.nuxeo.ecm.automation.core.annotations.Context;
 import org.nuxeo.ecm.automation.core.annotations.Operation;
 import org.nuxeo.ecm.automation.core.annotations.OperationMethod;
 import org.nuxeo.ecm.automation.core.annotations.Param;
+import org.nuxeo.ecm.automation.core.util.BlobList;
 import org.nuxeo.ecm.core.api.Blob;
 import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentModelList;
+import org.nuxeo.html.utils.HTMLBatchRunner;
+import org.nuxeo.html.utils.HTMLBatchRunner.DocumentInput;
+import org.nuxeo.html.utils.HTMLExtractedData;
+import org.nuxeo.html.utils.HTMLExtraction;
+import org.nuxeo.html.utils.HTMLExtractionProfile;
+import org.nuxeo.html.utils.HTMLExtractor.Facet;
+import org.nuxeo.html.utils.HTMLMetrics;
+import org.nuxeo.html.utils.HTMLParseBudget;
 import org.nuxeo.html.utils.HTMLParser;
+import org.nuxeo.html.utils.HTMLParserService;
+import org.nuxeo.html.utils.JSONStreamWriter;
+import org.nuxeo.html.utils.LinkFilter;
 import org.nuxeo.html.utils.LinkInfo;
+import org.nuxeo.html.utils.LinkResolver;
 
 /**
  * Parses the html for every tag with a "src" or a "href" attribute, and returns a JSON string of an array of objects
  * with tag, attribute, text and link fields.
  * <p>
- * If the input is a Document, optional xpath is the field holding the blob. Let empty if using a Note document.
+ * The links can be resolved against the <code>&lt;base href&gt;</code> of the html or <code>baseUrl</code>,
+ * normalized and de-duplicated (see {@link LinkResolver}). De-duplicated links have a <code>count</code> field.
+ * <p>
+ * The tags, attributes, schemes, hosts, excludedHosts and pattern parameters select the links (see
+ * {@link LinkFilter}). They are evaluated while parsing, before the text of a link is extracted.
+ * <p>
+ * Extracting the text of the links is the most expensive part: set includeText to <code>false</code> when it is not
+ * used (the objects then have no text field), or limit it with maxTextLength.
+ * <p>
+ * If the input is a Document, optional xpath is the field holding the blob. Let empty if using a Note document. If
+ * the document has the links of its html stored (see {@link HTMLExtractedData}), they are returned without parsing,
+ * unless they cannot give the same result (fast engine, maxInputBytes below the size of the html, resolve).
+ * <p>
+ * If the input is a list of documents or blobs, they are parsed in parallel (see {@link HTMLBatchRunner}) and the
+ * result is a JSON array with one array of links per input, in the same order (<code>null</code> if the parsing of
+ * an input failed).
  * 
  * @since 8.1
  */
-@Operation(id = HTMLGetLinksOp.ID, category = Constants.CAT_SERVICES, label = "HTML: Get Links", description = "Returns a JSON string of an array of objects with tag, attribute, text and link fields (returns href and src). If input is a Document, optional xpath is the field holding the blob. The operaiton handles Note documents (whatever value in xpath).")
+@Operation(id = HTMLGetLinksOp.ID, category = Constants.CAT_SERVICES, label = "HTML: Get Links", description = "Returns a JSON string of an array of objects with tag, attribute, text and link fields (returns href and src). tags, attributes, schemes, hosts and excludedHosts are optional comma-separated lists selecting the links (hosts include their sub-domains, a relative link has no scheme nor host), pattern an optional regular expression the link must contain. If includeText is false (default true), the text field is not returned, which is much faster. maxTextLength limits the length of the text. If resolve is true, the links are resolved against the base href of the html or baseUrl (the url of the page), and normalized. If deduplicate is true, each link is returned once, with its number of occurrences in a count field. If input is a Document, optional xpath is the field holding the blob. The operaiton handles Note documents (whatever value in xpath). If input is a list of Documents or Blobs, they are parsed using up to parallelism threads (default: the number of processors) and the result is an array with one array of links per input, null if it failed. engine (auto, jericho or fast) selects how the start tags are found: the default, auto, uses a lightweight scanner when the text is not needed.")
 public class HTMLGetLinksOp {
 
     public static final String ID = "HTML.GetLinks";
 
+    protected static final String EMPTY_ARRAY = "[]";
+
     @Param(name = "xpath", required = false)
     String xpath;
 
-    protected JSONArray buildJsonString(ArrayList<LinkInfo> links) throws JSONException {
+    @Param(name = "tags", required = false)
+    String tags;
+
+    @Param(name = "attributes", required = false)
+    String attributes;
+
+    @Param(name = "schemes", required = false)
+    String schemes;
+
+    @Param(name = "hosts", required = false)
+    String hosts;
+
+    @Param(name = "excludedHosts", required = false)
+    String excludedHosts;
+
+    @Param(name = "pattern", required = false)
+    String pattern;
+
+    @Param(name = "includeText", required = false, values = { "true" })
+    Boolean includeText;
+
+    @Param(name = "maxTextLength", required = false)
+    Integer maxTextLength;
+
+    @Param(name = "baseUrl", required = false)
+    String baseUrl;
+
+    @Param(name = "resolve", required = false, values = { "false" })
+    boolean resolve = false;
+
+    @Param(name = "deduplicate", required = false, values = { "false" })
+    boolean deduplicate = false;
 
-        JSONArray array = new JSONArray();
-        for (LinkInfo li : links) {
-            JSONObject object = new JSONObject();
-            object.put("tag", li.getTag());
-            object.put("attribute", li.getAttribute());
-            object.put("text", li.getText());
-            object.put("link", li.getLink());
+    @Param(name = "profile", required = false)
+    String profile;
 
-            array.put(object);
+    @Param(name = "engine", required = false, values = { "auto", "jericho", "fast" })
+    String engine;
+
+    @Param(name = "maxInputBytes", required = false)
+    int maxInputBytes = 0;
+
+    @Param(name = "maxElements", required = false)
+    int maxElements = 0;
+
+    @Param(name = "timeout", required = false)
+    int timeout = 0;
+
+    @Param(name = "parallelism", required = false)
+    int parallelism = 0;
+
+    @Context
+    protected OperationContext ctx;
+
+    @Context
+    protected HTMLParserService htmlParserService;
+
+    // Set when the result of a parser is partial, see HTMLParseBudget
+    protected AtomicBoolean truncated = new AtomicBoolean();
+
+    // Order of the fields in the JSON objects returned by org.json, kept for compatibility
+    protected static final String[] LINK_FIELDS = JSONStreamWriter.orgJsonOrder("tag", "attribute", "text", "link");
+
+    protected static final String[] LINK_FIELDS_WITH_COUNT = JSONStreamWriter.orgJsonOrder("tag", "attribute", "text",
+            "link", "count");
+
+    protected String buildJsonString(List<LinkInfo> links) throws IOException {
+
+        try (HTMLMetrics.Timing timing = HTMLMetrics.time(HTMLMetrics.PHASE_SERIALIZE)) {
+            StringBuilderWriter writer = new StringBuilderWriter();
+            JSONStreamWriter json = new JSONStreamWriter(writer);
+            json.beginArray();
+            for (LinkInfo li : links) {
+                writeLink(json, li, deduplicate);
+            }
+            json.endArray();
+            return writer.toString();
         }
-        return array;
 
     }
 
-    @OperationMethod
-    public String run(Blob inBlob) throws IOException, JSONException {
+    /**
+     * Writes the link as a JSON object with the tag, attribute, text and link fields, in the same order as the
+     * <code>JSONObject</code> previously built by this operation
+     *
+     * @since 2023
+     */
+    public static void writeLink(JSONStreamWriter json, LinkInfo li) throws IOException {
+        writeLink(json, li, false);
+    }
 
-        JSONArray array = new JSONArray();
+    /**
+     * Same as {@link #writeLink(JSONStreamWriter, LinkInfo)}, with the number of occurrences of the link in a
+     * <code>count</code> field if <code>withCount</code> is <code>true</code>
+     *
+     * @since 2023
+     */
+    public static void writeLink(JSONStreamWriter json, LinkInfo li, boolean withCount) throws IOException {
+        json.beginObject();
+        for (String field : withCount ? LINK_FIELDS_WITH_COUNT : LINK_FIELDS) {
+            switch (field) {
+            case "tag":
+                json.optProperty(field, li.getTag());
+                break;
+            case "attribute":
+                json.optProperty(field, li.getAttribute());
+                break;
+            case "text":
+                json.optProperty(field, li.getText());
+                break;
+            case "count":
+                json.name(field).value(li.getCount());
+                break;
+            default:
+                json.optProperty(field, li.getLink());
+                break;
+            }
+        }
+        json.endObject();
+    }
+
+    protected LinkFilter getFilter() {
+        return LinkFilter.of(tags, attributes, schemes, hosts, excludedHosts, pattern);
+    }
+
+    protected ArrayList<LinkInfo> getLinks(HTMLParser hp) {
+
+        ArrayList<LinkInfo> links = hp.getLinks(getFilter(), baseUrl, resolve, deduplicate);
+        if (hp.isTruncated()) {
+            truncated.set(true);
+        }
+        return links;
+    }
 
-        if (inBlob != null) {
-            HTMLParser hp = new HTMLParser(inBlob);
-            ArrayList<LinkInfo> links = hp.getLinks();
+    /**
+     * @return the links of the stored data, <code>null</code> if it cannot be used with these parameters
+     */
+    protected HTMLExtraction getStoredExtraction(HTMLExtractedData stored, HTMLExtractionProfile extractionProfile) {
+        return stored.getExtraction(EnumSet.of(Facet.LINKS), Collections.emptyList(), getFilter(), extractionProfile);
+    }
+
+    protected ArrayList<LinkInfo> getLinks(HTMLExtraction extraction) {
 
-            array = buildJsonString(links);
+        if (extraction.isTruncated()) {
+            truncated.set(true);
         }
+        return LinkResolver.process(extraction.getLinks(), null, false, deduplicate);
+    }
 
-        return array.toString();
+    /**
+     * @return the profile of the profile parameter, with the values of the other parameters
+     */
+    protected HTMLExtractionProfile getProfile() {
+        return htmlParserService.getProfile(profile)
+                                .withBudget(maxInputBytes, maxElements, 0, timeout)
+                                .withLinkText(includeText, maxTextLength)
+                                .withEngine(engine);
+    }
 
+    /**
+     * Sets the {@link HTMLParseBudget#TRUNCATED_CONTEXT_VARIABLE} context variable and records the output
+     */
+    protected String complete(String result) {
+        if (ctx != null) {
+            ctx.put(HTMLParseBudget.TRUNCATED_CONTEXT_VARIABLE, truncated.get());
+        }
+        return HTMLMetrics.recordOutput(ID, result);
     }
 
     @OperationMethod
-    public String run(DocumentModel inDoc) throws IOException, JSONException {
+    public String run(Blob inBlob) throws IOException {
+        try (HTMLMetrics.Timing timing = HTMLMetrics.timeOperation(ID)) {
+            String result = EMPTY_ARRAY;
 
-        JSONArray array = new JSONArray();
+            if (inBlob != null) {
+                HTMLParser hp = htmlParserService.newParser(inBlob, getProfile());
+                ArrayList<LinkInfo> links = getLinks(hp);
 
-        if (inDoc != null) {
-            HTMLParser hp = new HTMLParser(inDoc, xpath);
-            ArrayList<LinkInfo> links = hp.getLinks();
+                result = buildJsonString(links);
+            }
 
-            array = buildJsonString(links);
+            return complete(result);
         }
+    }
+
+    @OperationMethod
+    public String run(DocumentModel inDoc) throws IOException {
+        try (HTMLMetrics.Timing timing = HTMLMetrics.timeOperation(ID)) {
+            String result = EMPTY_ARRAY;
+
+            if (inDoc != null) {
+                ArrayList<LinkInfo> links;
+                // The <base href> of the html is not stored
+                HTMLExtractedData stored = resolve ? null : HTMLExtractedData.getIfFresh(inDoc, xpath);
+                HTMLExtraction extraction = stored == null ? null : getStoredExtraction(stored, getProfile());
+                if (extraction != null) {
+                    links = getLinks(extraction);
+                } else {
+                    HTMLParser hp = htmlParserService.newParser(inDoc, xpath, getProfile());
+                    links = getLinks(hp);
+                }
 
-        return array.toString();
+                result = buildJsonString(links);
+            }
 
+            return complete(result);
+        }
     }
 
     @OperationMethod
-    public String run(String inHTML) throws IOException, JSONException {
+    public String run(String inHTML) throws IOException {
+        try (HTMLMetrics.Timing timing = HTMLMetrics.timeOperation(ID)) {
+            String result = EMPTY_ARRAY;
+
+            if (inHTML != null) {
+                HTMLParser hp = htmlParserService.newParser(inHTML, getProfile());
+                ArrayList<LinkInfo> links = getLinks(hp);
+
+                result = buildJsonString(links);
+            }
+
+            return complete(result);
+        }
+    }
 
-        JSONArray array = new JSONArray();
+    @OperationMethod
+    public String run(DocumentModelList inDocs) throws IOException {
+        try (HTMLMetrics.Timing timing = HTMLMetrics.timeOperation(ID)) {
+            // Immutable, shared by the threads
+            HTMLExtractionProfile extractionProfile = getProfile();
+            // The <base href> of the html is not stored
+            List<DocumentInput> inputs = HTMLBatchRunner.getInputs(inDocs, xpath,
+                    resolve ? null : stored -> getStoredExtraction(stored, extractionProfile));
+            List<String> results = HTMLBatchRunner.map(inputs, parallelism,
+                    input -> input == null ? null
+                            : buildJsonString(input.getStored() != null ? getLinks(input.getStored())
+                                    : getLinks(input.newParser(htmlParserService, extractionProfile))));
 
-        if (inHTML != null) {
-            HTMLParser hp = new HTMLParser(inHTML);
-            ArrayList<LinkInfo> links = hp.getLinks();
+            return complete(HTMLBatchRunner.toJsonArray(results));
+        }
+    }
 
-            array = buildJsonString(links);
+    @OperationMethod
+    public String run(BlobList inBlobs) throws IOException {
+        try (HTMLMetrics.Timing timing = HTMLMetrics.timeOperation(ID)) {
+            return runBatch(inBlobs);
         }
+    }
+
+    protected String runBatch(List<Blob> blobs) throws IOException {
 
-        return array.toString();
+        // Immutable, shared by the threads
+        HTMLExtractionProfile extractionProfile = getProfile();
+        List<String> results = HTMLBatchRunner.map(blobs, parallelism, blob -> blob == null ? null
+                : buildJsonString(getLinks(htmlParserService.newParser(blob, extractionProfile))));
 
+        return complete(HTMLBatchRunner.toJsonArray(results));
     }
 
 }
@@ -0,0 +1,155 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+
+package org.nuxeo.html.utils.operations;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.nuxeo.ecm.automation.OperationContext;
+import org.nuxeo.ecm.automation.core.Constants;
+import org.nuxeo.ecm.automation.core.annotations.Context;
+import org.nuxeo.ecm.automation.core.annotations.Operation;
+import org.nuxeo.ecm.automation.core.annotations.OperationMethod;
+import org.nuxeo.ecm.automation.core.annotations.Param;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.html.utils.HTMLExtractionProfile;
+import org.nuxeo.html.utils.HTMLParseBudget;
+import org.nuxeo.html.utils.HTMLParser;
+import org.nuxeo.html.utils.HTMLParserService;
+
+/**
+ * Same as {@link HTMLGetPlainTextOp}, but the html is read sequentially and the text is written to a temporary file
+ * as it is rendered: the memory used does not depend on the size of the input. Use it for very large html.
+ * <p>
+ * If the input is a Document, optional xpath is the field holding the blob. Let empty if using a Note document.
+ *
+ * @since 2023
+ */
+@Operation(id = HTMLGetPlainTextAsBlobOp.ID, category = Constants.CAT_CONVERSION, label = "HTML: Get Plain Text As Blob", description = "Returns the plain text of the HTML as a text/plain blob. The html is streamed, so the memory used does not depend on its size. Same parameters and same text as HTML.GetPlainText, but with a simpler layout: block elements start a new line, there is no indentation nor list bullet, and table cells are separated by a space. If input is a Document, optional xpath is the field holding the blob. The operation handles Note documents (whatever value in xpath).")
+public class HTMLGetPlainTextAsBlobOp {
+
+    public static final String ID = "HTML.GetPlainTextAsBlob";
+
+    @Param(name = "includeHyperlinkURLs", required = false, values = { "false" })
+    Boolean includeHyperlinkURLs;
+
+    @Param(name = "includeAlternateText", required = false, values = { "false" })
+    Boolean includeAlternateText;
+
+    @Param(name = "convertNonBreakingSpaces", required = false, values = { "false" })
+    Boolean convertNonBreakingSpaces;
+
+    @Param(name = "lineSeparator", required = false)
+    String lineSeparator;
+
+    @Param(name = "xpath", required = false)
+    String xpath;
+
+    @Param(name = "profile", required = false)
+    String profile;
+
+    @Param(name = "maxInputBytes", required = false)
+    int maxInputBytes = 0;
+
+    @Param(name = "maxOutputChars", required = false)
+    int maxOutputChars = 0;
+
+    @Param(name = "timeout", required = false)
+    int timeout = 0;
+
+    @Context
+    protected OperationContext ctx;
+
+    @Context
+    protected HTMLParserService htmlParserService;
+
+    // Set when the result of a parser is partial, see HTMLParseBudget
+    protected AtomicBoolean truncated = new AtomicBoolean();
+
+    protected Blob getPlainTextAsBlob(HTMLParser hp) throws IOException {
+
+        Blob plainText = hp.getPlainTextAsBlob();
+        if (hp.isTruncated()) {
+            truncated.set(true);
+        }
+        return plainText;
+    }
+
+    /**
+     * @return the profile of the profile parameter, with the values of the other parameters
+     */
+    protected HTMLExtractionProfile getProfile() {
+        return htmlParserService.getProfile(profile)
+                                .withBudget(maxInputBytes, 0, maxOutputChars, timeout)
+                                .withPlainTextOptions(lineSeparator, includeHyperlinkURLs, includeAlternateText,
+                                        convertNonBreakingSpaces);
+    }
+
+    /**
+     * Sets the {@link HTMLParseBudget#TRUNCATED_CONTEXT_VARIABLE} context variable
+     */
+    protected Blob complete(Blob result) {
+        if (ctx != null) {
+            ctx.put(HTMLParseBudget.TRUNCATED_CONTEXT_VARIABLE, truncated.get());
+        }
+        return result;
+    }
+
+    @OperationMethod
+    public Blob run(Blob inBlob) throws IOException {
+
+        Blob plainText = null;
+        if (inBlob != null) {
+            HTMLParser hp = htmlParserService.newParser(inBlob, getProfile());
+
+            plainText = getPlainTextAsBlob(hp);
+        }
+        return complete(plainText);
+
+    }
+
+    @OperationMethod
+    public Blob run(String inStr) throws IOException {
+
+        Blob plainText = null;
+        if (inStr != null) {
+            HTMLParser hp = htmlParserService.newParser(inStr, getProfile());
+
+            plainText = getPlainTextAsBlob(hp);
+        }
+        return complete(plainText);
+
+    }
+
+    @OperationMethod
+    public Blob run(DocumentModel inDoc) throws IOException {
+
+        Blob plainText = null;
+        if (inDoc != null) {
+            HTMLParser hp = htmlParserService.newParser(inDoc, xpath, getProfile());
+
+            plainText = getPlainTextAsBlob(hp);
+        }
+        return complete(plainText);
+
+    }
+
+}
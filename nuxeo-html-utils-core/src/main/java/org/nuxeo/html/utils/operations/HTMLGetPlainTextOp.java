@@ -20,83 +20,181 @@
 package org.nuxeo.html.utils.operations;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-import org.json.JSONException;
+import org.json.JSONObject;
+import org.nuxeo.ecm.automation.OperationContext;
 import org.nuxeo.ecm.automation.core.Constants;
+import org.nuxeo.ecm.automation.core.annotations.Context;
 import org.nuxeo.ecm.automation.core.annotations.Operation;
 import org.nuxeo.ecm.automation.core.annotations.OperationMethod;
 import org.nuxeo.ecm.automation.core.annotations.Param;
+import org.nuxeo.ecm.automation.core.util.BlobList;
 import org.nuxeo.ecm.core.api.Blob;
 import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentModelList;
+import org.nuxeo.html.utils.HTMLBatchRunner;
+import org.nuxeo.html.utils.HTMLBatchRunner.DocumentInput;
+import org.nuxeo.html.utils.HTMLExtractionProfile;
+import org.nuxeo.html.utils.HTMLMetrics;
+import org.nuxeo.html.utils.HTMLParseBudget;
 import org.nuxeo.html.utils.HTMLParser;
+import org.nuxeo.html.utils.HTMLParserService;
 
 /**
  * Returns the plain text of the html.
  * <p>
  * If the input is a Document, optional xpath is the field holding the blob. Let empty if using a Note document.
+ * <p>
+ * If the input is a list of documents or blobs, they are parsed in parallel (see {@link HTMLBatchRunner}) and the
+ * result is a JSON array with the text of each input, in the same order (<code>null</code> if the parsing of an
+ * input failed).
  * 
  * @since 8.1
  */
-@Operation(id = HTMLGetPlainTextOp.ID, category = Constants.CAT_CONVERSION, label = "HTML: Get Plain Text", description = "Returns the plain text of the HTML. If input is a Document, optional xpath is the field holding the blob. The operaiton handles Note documents (whatever value in xpath).")
+@Operation(id = HTMLGetPlainTextOp.ID, category = Constants.CAT_CONVERSION, label = "HTML: Get Plain Text", description = "Returns the plain text of the HTML. If input is a Document, optional xpath is the field holding the blob. The operaiton handles Note documents (whatever value in xpath). If input is a list of Documents or Blobs, they are parsed using up to parallelism threads (default: the number of processors) and the result is a JSON array with the text of each input, null if it failed.")
 public class HTMLGetPlainTextOp {
 
     public static final String ID = "HTML.GetPlainText";
 
     @Param(name = "includeHyperlinkURLs", required = false, values = { "false" })
-    boolean includeHyperlinkURLs = false;
+    Boolean includeHyperlinkURLs;
 
     @Param(name = "includeAlternateText", required = false, values = { "false" })
-    boolean includeAlternateText = false;
+    Boolean includeAlternateText;
 
     @Param(name = "convertNonBreakingSpaces", required = false, values = { "false" })
-    boolean convertNonBreakingSpaces = false;
+    Boolean convertNonBreakingSpaces;
 
     @Param(name = "lineSeparator", required = false)
-    String lineSeparator = null;
+    String lineSeparator;
 
     @Param(name = "xpath", required = false)
     String xpath;
 
-    @OperationMethod
-    public String run(Blob inBlob) throws IOException, JSONException {
+    @Param(name = "profile", required = false)
+    String profile;
+
+    @Param(name = "maxInputBytes", required = false)
+    int maxInputBytes = 0;
+
+    @Param(name = "maxOutputChars", required = false)
+    int maxOutputChars = 0;
+
+    @Param(name = "timeout", required = false)
+    int timeout = 0;
+
+    @Param(name = "parallelism", required = false)
+    int parallelism = 0;
+
+    @Context
+    protected OperationContext ctx;
 
-        String plainText = "";
-        if (inBlob != null) {
-            HTMLParser hp = new HTMLParser(inBlob);
+    @Context
+    protected HTMLParserService htmlParserService;
 
-            plainText = hp.getPlainText(lineSeparator, includeHyperlinkURLs, includeAlternateText,
-                    convertNonBreakingSpaces);
+    // Set when the result of a parser is partial, see HTMLParseBudget
+    protected AtomicBoolean truncated = new AtomicBoolean();
+
+    protected String getPlainText(HTMLParser hp) {
+
+        String plainText = hp.getPlainText();
+        if (hp.isTruncated()) {
+            truncated.set(true);
         }
         return plainText;
+    }
 
+    /**
+     * @return the profile of the profile parameter, with the values of the other parameters
+     */
+    protected HTMLExtractionProfile getProfile() {
+        return htmlParserService.getProfile(profile)
+                                .withBudget(maxInputBytes, 0, maxOutputChars, timeout)
+                                .withPlainTextOptions(lineSeparator, includeHyperlinkURLs, includeAlternateText,
+                                        convertNonBreakingSpaces);
+    }
+
+    /**
+     * Sets the {@link HTMLParseBudget#TRUNCATED_CONTEXT_VARIABLE} context variable and records the output
+     */
+    protected String complete(String result) {
+        if (ctx != null) {
+            ctx.put(HTMLParseBudget.TRUNCATED_CONTEXT_VARIABLE, truncated.get());
+        }
+        return HTMLMetrics.recordOutput(ID, result);
     }
 
     @OperationMethod
-    public String run(String inStr) throws IOException, JSONException {
+    public String run(Blob inBlob) throws IOException {
+        try (HTMLMetrics.Timing timing = HTMLMetrics.timeOperation(ID)) {
+            String plainText = "";
+            if (inBlob != null) {
+                HTMLParser hp = htmlParserService.newParser(inBlob, getProfile());
+
+                plainText = getPlainText(hp);
+            }
+            return complete(plainText);
+        }
+    }
 
-        String plainText = "";
-        if (inStr != null) {
-            HTMLParser hp = new HTMLParser(inStr);
+    @OperationMethod
+    public String run(String inStr) throws IOException {
+        try (HTMLMetrics.Timing timing = HTMLMetrics.timeOperation(ID)) {
+            String plainText = "";
+            if (inStr != null) {
+                HTMLParser hp = htmlParserService.newParser(inStr, getProfile());
+
+                plainText = getPlainText(hp);
+            }
+            return complete(plainText);
+        }
+    }
 
-            plainText = hp.getPlainText(lineSeparator, includeHyperlinkURLs, includeAlternateText,
-                    convertNonBreakingSpaces);
+    @OperationMethod
+    public String run(DocumentModel inDoc) throws IOException {
+        try (HTMLMetrics.Timing timing = HTMLMetrics.timeOperation(ID)) {
+            String plainText = "";
+            if (inDoc != null) {
+                HTMLParser hp = htmlParserService.newParser(inDoc, xpath, getProfile());
+
+                plainText = getPlainText(hp);
+            }
+            return complete(plainText);
         }
-        return plainText;
+    }
 
+    @OperationMethod
+    public String run(DocumentModelList inDocs) throws IOException {
+        try (HTMLMetrics.Timing timing = HTMLMetrics.timeOperation(ID)) {
+            // Immutable, shared by the threads
+            HTMLExtractionProfile extractionProfile = getProfile();
+            // The text is not stored, only its digest
+            List<DocumentInput> inputs = HTMLBatchRunner.getInputs(inDocs, xpath, null);
+            List<String> results = HTMLBatchRunner.map(inputs, parallelism, input -> input == null ? null
+                    : JSONObject.quote(getPlainText(input.newParser(htmlParserService, extractionProfile))));
+
+            return complete(HTMLBatchRunner.toJsonArray(results));
+        }
     }
 
     @OperationMethod
-    public String run(DocumentModel inDoc) throws IOException, JSONException {
+    public String run(BlobList inBlobs) throws IOException {
+        try (HTMLMetrics.Timing timing = HTMLMetrics.timeOperation(ID)) {
+            return runBatch(inBlobs);
+        }
+    }
 
-        String plainText = "";
-        if (inDoc != null) {
-            HTMLParser hp = new HTMLParser(inDoc, xpath);
+    protected String runBatch(List<Blob> blobs) throws IOException {
 
-            plainText = hp.getPlainText(lineSeparator, includeHyperlinkURLs, includeAlternateText,
-                    convertNonBreakingSpaces);
-        }
-        return plainText;
+        // Immutable, shared by the threads
+        HTMLExtractionProfile extractionProfile = getProfile();
+        List<String> results = HTMLBatchRunner.map(blobs, parallelism,
+                blob -> blob == null ? null
+                        : JSONObject.quote(getPlainText(htmlParserService.newParser(blob, extractionProfile))));
 
+        return complete(HTMLBatchRunner.toJsonArray(results));
     }
 
 }
@@ -0,0 +1,172 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils.operations;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.io.output.StringBuilderWriter;
+import org.nuxeo.ecm.automation.OperationContext;
+import org.nuxeo.ecm.automation.core.Constants;
+import org.nuxeo.ecm.automation.core.annotations.Context;
+import org.nuxeo.ecm.automation.core.annotations.Operation;
+import org.nuxeo.ecm.automation.core.annotations.OperationMethod;
+import org.nuxeo.ecm.automation.core.annotations.Param;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.html.utils.HTMLExtractionProfile;
+import org.nuxeo.html.utils.HTMLMetrics;
+import org.nuxeo.html.utils.HTMLParseBudget;
+import org.nuxeo.html.utils.HTMLParser;
+import org.nuxeo.html.utils.HTMLParserService;
+import org.nuxeo.html.utils.JSONStreamWriter;
+import org.nuxeo.html.utils.StructuredData;
+
+/**
+ * Returns the structured metadata of the html (Open Graph, Twitter Cards and JSON-LD, see {@link StructuredData})
+ * as a JSON String, found in a single pass over the html.
+ * <p>
+ * If the input is a Document, optional xpath is the field holding the blob. Let empty if using a Note document.
+ *
+ * @since 2023
+ */
+@Operation(id = HTMLGetStructuredDataOp.ID, category = Constants.CAT_SERVICES, label = "HTML: Get Structured Data", description = "Returns a JSON string of an object with jsonLd (the array of the JSON-LD blocks, a block that is not valid JSON being ignored), openGraph (the og:, article:, book:, profile:, music:, video: and fb: metas) and twitter (the twitter: metas) fields. A meta found several times (like og:image) is an array of its values. The metas and the JSON-LD blocks are found in a single pass over the html. If streamed is true (default false), the html is read sequentially and each JSON-LD block is written as soon as it is found, so the memory used does not depend on the size of the html. If input is a Document, optional xpath is the field holding the blob. The operation handles Note documents (whatever value in xpath).")
+public class HTMLGetStructuredDataOp {
+
+    public static final String ID = "HTML.GetStructuredData";
+
+    protected static final String EMPTY_OBJECT = "{}";
+
+    @Param(name = "xpath", required = false)
+    String xpath;
+
+    @Param(name = "profile", required = false)
+    String profile;
+
+    @Param(name = "engine", required = false, values = { "auto", "jericho", "fast" })
+    String engine;
+
+    @Param(name = "streamed", required = false, values = { "false" })
+    boolean streamed = false;
+
+    @Param(name = "maxInputBytes", required = false)
+    int maxInputBytes = 0;
+
+    @Param(name = "maxElements", required = false)
+    int maxElements = 0;
+
+    @Param(name = "timeout", required = false)
+    int timeout = 0;
+
+    @Context
+    protected OperationContext ctx;
+
+    @Context
+    protected HTMLParserService htmlParserService;
+
+    // Set when the result of a parser is partial, see HTMLParseBudget
+    protected AtomicBoolean truncated = new AtomicBoolean();
+
+    protected String buildStructuredData(HTMLParser htmlParser) throws IOException {
+
+        StringBuilderWriter writer = new StringBuilderWriter();
+        JSONStreamWriter json = new JSONStreamWriter(writer);
+        if (streamed) {
+            json.beginObject();
+            json.name("jsonLd").beginArray();
+            StructuredData metas = htmlParser.scanStructuredData(json::rawValue);
+            json.endArray();
+            metas.writeMetasTo(json);
+            if (htmlParser.isTruncated()) {
+                json.name(HTMLGetInfoOp.TRUNCATED_FIELD).value(true);
+            }
+            json.endObject();
+        } else {
+            StructuredData data = htmlParser.getStructuredData();
+            try (HTMLMetrics.Timing timing = HTMLMetrics.time(HTMLMetrics.PHASE_SERIALIZE)) {
+                data.writeTo(json);
+            }
+        }
+        json.flush();
+        if (htmlParser.isTruncated()) {
+            truncated.set(true);
+        }
+
+        return writer.toString();
+    }
+
+    /**
+     * @return the profile of the profile parameter, with the values of the other parameters
+     */
+    protected HTMLExtractionProfile getProfile() {
+        return htmlParserService.getProfile(profile)
+                                .withBudget(maxInputBytes, maxElements, 0, timeout)
+                                .withEngine(engine);
+    }
+
+    /**
+     * Sets the {@link HTMLParseBudget#TRUNCATED_CONTEXT_VARIABLE} context variable and records the output
+     */
+    protected String complete(String result) {
+        if (ctx != null) {
+            ctx.put(HTMLParseBudget.TRUNCATED_CONTEXT_VARIABLE, truncated.get());
+        }
+        return HTMLMetrics.recordOutput(ID, result);
+    }
+
+    @OperationMethod
+    public String run(Blob inBlob) throws IOException {
+        try (HTMLMetrics.Timing timing = HTMLMetrics.timeOperation(ID)) {
+            String result = EMPTY_OBJECT;
+
+            if (inBlob != null) {
+                result = buildStructuredData(htmlParserService.newParser(inBlob, getProfile()));
+            }
+
+            return complete(result);
+        }
+    }
+
+    @OperationMethod
+    public String run(DocumentModel inDoc) throws IOException {
+        try (HTMLMetrics.Timing timing = HTMLMetrics.timeOperation(ID)) {
+            String result = EMPTY_OBJECT;
+
+            if (inDoc != null) {
+                result = buildStructuredData(htmlParserService.newParser(inDoc, xpath, getProfile()));
+            }
+
+            return complete(result);
+        }
+    }
+
+    @OperationMethod
+    public String run(String inStr) throws IOException {
+        try (HTMLMetrics.Timing timing = HTMLMetrics.timeOperation(ID)) {
+            String result = EMPTY_OBJECT;
+
+            if (inStr != null) {
+                result = buildStructuredData(htmlParserService.newParser(inStr, getProfile()));
+            }
+
+            return complete(result);
+        }
+    }
+
+}
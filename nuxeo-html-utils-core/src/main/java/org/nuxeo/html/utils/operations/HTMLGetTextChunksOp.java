@@ -0,0 +1,168 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils.operations;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.nuxeo.ecm.automation.OperationContext;
+import org.nuxeo.ecm.automation.core.Constants;
+import org.nuxeo.ecm.automation.core.annotations.Context;
+import org.nuxeo.ecm.automation.core.annotations.Operation;
+import org.nuxeo.ecm.automation.core.annotations.OperationMethod;
+import org.nuxeo.ecm.automation.core.annotations.Param;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.Blobs;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.html.utils.HTMLExtractionProfile;
+import org.nuxeo.html.utils.HTMLParseBudget;
+import org.nuxeo.html.utils.HTMLParser;
+import org.nuxeo.html.utils.HTMLParserService;
+import org.nuxeo.html.utils.JSONStreamWriter;
+import org.nuxeo.html.utils.StreamedTextChunker;
+
+/**
+ * Splits the plain text of the html in chunks (see {@link StreamedTextChunker}), typically to index them for
+ * semantic search. The html is read sequentially and each chunk is written to a JSON blob as soon as it is complete:
+ * the full text is never built.
+ * <p>
+ * If the input is a Document, optional xpath is the field holding the blob. Let empty if using a Note document.
+ *
+ * @since 2023
+ */
+@Operation(id = HTMLGetTextChunksOp.ID, category = Constants.CAT_CONVERSION, label = "HTML: Get Text Chunks", description = "Returns an application/json blob of an array of objects with index, text, headings (the text of the h1 to h6 the chunk is under), begin and end (position in the html) fields. The chunks have at most maxChunkSize characters (default 1000) and are cut between blocks (p, li, td, ...), a heading always starting a new chunk. The html is streamed, so the memory used does not depend on its size. Same rendering parameters and same text as HTML.GetPlainText, with the layout of HTML.GetPlainTextAsBlob (no indentation nor list bullet). If input is a Document, optional xpath is the field holding the blob. The operation handles Note documents (whatever value in xpath).")
+public class HTMLGetTextChunksOp {
+
+    public static final String ID = "HTML.GetTextChunks";
+
+    @Param(name = "maxChunkSize", required = false)
+    int maxChunkSize = StreamedTextChunker.DEFAULT_MAX_CHUNK_SIZE;
+
+    @Param(name = "includeHyperlinkURLs", required = false, values = { "false" })
+    Boolean includeHyperlinkURLs;
+
+    @Param(name = "includeAlternateText", required = false, values = { "false" })
+    Boolean includeAlternateText;
+
+    @Param(name = "convertNonBreakingSpaces", required = false, values = { "false" })
+    Boolean convertNonBreakingSpaces;
+
+    @Param(name = "lineSeparator", required = false)
+    String lineSeparator;
+
+    @Param(name = "xpath", required = false)
+    String xpath;
+
+    @Param(name = "profile", required = false)
+    String profile;
+
+    @Param(name = "maxInputBytes", required = false)
+    int maxInputBytes = 0;
+
+    @Param(name = "maxElements", required = false)
+    int maxElements = 0;
+
+    @Param(name = "maxOutputChars", required = false)
+    int maxOutputChars = 0;
+
+    @Param(name = "timeout", required = false)
+    int timeout = 0;
+
+    @Context
+    protected OperationContext ctx;
+
+    @Context
+    protected HTMLParserService htmlParserService;
+
+    // Set when the result of a parser is partial, see HTMLParseBudget
+    protected AtomicBoolean truncated = new AtomicBoolean();
+
+    protected Blob buildJsonBlob(HTMLParser hp) throws IOException {
+
+        Blob result = Blobs.createBlobWithExtension(".json");
+        try (Writer writer = Files.newBufferedWriter(result.getFile().toPath(), StandardCharsets.UTF_8)) {
+            JSONStreamWriter json = new JSONStreamWriter(writer);
+            json.beginArray();
+            hp.chunkPlainText(maxChunkSize, chunk -> chunk.writeTo(json));
+            json.endArray();
+            json.flush();
+        }
+        result.setMimeType("application/json");
+        result.setEncoding("UTF-8");
+        if (hp.isTruncated()) {
+            truncated.set(true);
+        }
+
+        return result;
+    }
+
+    /**
+     * @return the profile of the profile parameter, with the values of the other parameters
+     */
+    protected HTMLExtractionProfile getProfile() {
+        return htmlParserService.getProfile(profile)
+                                .withBudget(maxInputBytes, maxElements, maxOutputChars, timeout)
+                                .withPlainTextOptions(lineSeparator, includeHyperlinkURLs, includeAlternateText,
+                                        convertNonBreakingSpaces);
+    }
+
+    /**
+     * Sets the {@link HTMLParseBudget#TRUNCATED_CONTEXT_VARIABLE} context variable
+     */
+    protected Blob complete(Blob result) {
+        if (ctx != null) {
+            ctx.put(HTMLParseBudget.TRUNCATED_CONTEXT_VARIABLE, truncated.get());
+        }
+        return result;
+    }
+
+    @OperationMethod
+    public Blob run(Blob inBlob) throws IOException {
+
+        Blob result = null;
+        if (inBlob != null) {
+            result = buildJsonBlob(htmlParserService.newParser(inBlob, getProfile()));
+        }
+        return complete(result);
+    }
+
+    @OperationMethod
+    public Blob run(DocumentModel inDoc) throws IOException {
+
+        Blob result = null;
+        if (inDoc != null) {
+            result = buildJsonBlob(htmlParserService.newParser(inDoc, xpath, getProfile()));
+        }
+        return complete(result);
+    }
+
+    @OperationMethod
+    public Blob run(String inHTML) throws IOException {
+
+        Blob result = null;
+        if (inHTML != null) {
+            result = buildJsonBlob(htmlParserService.newParser(inHTML, getProfile()));
+        }
+        return complete(result);
+    }
+
+}
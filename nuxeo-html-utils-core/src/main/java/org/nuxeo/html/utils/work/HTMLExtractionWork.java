@@ -0,0 +1,179 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.html.utils.work;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.automation.AutomationService;
+import org.nuxeo.ecm.automation.OperationContext;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.Blobs;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.IdRef;
+import org.nuxeo.ecm.core.transientstore.api.TransientStore;
+import org.nuxeo.ecm.core.transientstore.api.TransientStoreService;
+import org.nuxeo.ecm.core.work.AbstractWork;
+import org.nuxeo.html.utils.HTMLExtractedData;
+import org.nuxeo.html.utils.HTMLParser;
+import org.nuxeo.html.utils.HTMLParserService;
+import org.nuxeo.html.utils.operations.HTMLExtractOp;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.kv.KeyValueService;
+import org.nuxeo.runtime.kv.KeyValueStore;
+
+/**
+ * Runs HTML.Extract in the <code>htmlExtraction</code> WorkManager queue, for
+ * {@link HTMLParserService#submit(Blob, Map)}. A document is read as the user who submitted the extraction (its
+ * originating user).
+ * <p>
+ * The id of the work is also the key of its entry in the <code>htmlExtraction</code> transient store, which holds the
+ * input blob (when the input is not a document), the status, the user who submitted it and, once completed, the JSON
+ * result. The store is shared by the nodes of a cluster, so the result can be read from any node. The
+ * <code>htmlExtraction</code> key-value store maps the html, parameters and user of an extraction to its id.
+ *
+ * @since 2023
+ */
+public class HTMLExtractionWork extends AbstractWork {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger log = LogManager.getLogger(HTMLExtractionWork.class);
+
+    public static final String CATEGORY = "htmlExtraction";
+
+    public static final String STORE_NAME = "htmlExtraction";
+
+    public static final String PARAM_STATUS = "status";
+
+    public static final String PARAM_ERROR = "error";
+
+    public static final String PARAM_USER = "user";
+
+    // Same as the first level TTL of the transient store, in minutes
+    public static final String TTL_PROPERTY = "nuxeo.html.utils.work.htmlExtraction.ttl";
+
+    public static final String STATUS_SCHEDULED = "scheduled";
+
+    public static final String STATUS_RUNNING = "running";
+
+    public static final String STATUS_COMPLETED = "completed";
+
+    public static final String STATUS_FAILED = "failed";
+
+    // Parameters of HTML.Extract
+    protected HashMap<String, Serializable> params;
+
+    // Digest of the html of the document when the extraction was submitted
+    protected String sourceDigest;
+
+    /**
+     * @param id the id of the work and key of the transient store
+     * @param params the parameters of HTML.Extract
+     */
+    public HTMLExtractionWork(String id, Map<String, Serializable> params) {
+        super(id);
+        this.params = params == null ? new HashMap<String, Serializable>() : new HashMap<String, Serializable>(params);
+    }
+
+    /**
+     * Sets the digest of the html of the document when the extraction was submitted: the work fails if the document
+     * was modified since, so its result is always the extraction of this html
+     */
+    public void setSourceDigest(String sourceDigest) {
+        this.sourceDigest = sourceDigest;
+    }
+
+    public static TransientStore getStore() {
+        return Framework.getService(TransientStoreService.class).getStore(STORE_NAME);
+    }
+
+    public static KeyValueStore getKeyValueStore() {
+        return Framework.getService(KeyValueService.class).getKeyValueStore(STORE_NAME);
+    }
+
+    /**
+     * @return the time to live of the entries of the key-value store, in seconds
+     */
+    public static long getTTL() {
+        return Long.parseLong(Framework.getProperty(TTL_PROPERTY, "60").trim()) * 60;
+    }
+
+    @Override
+    public String getCategory() {
+        return CATEGORY;
+    }
+
+    @Override
+    public String getTitle() {
+        return "HTML extraction " + getId();
+    }
+
+    @Override
+    public void work() {
+
+        TransientStore store = getStore();
+        store.putParameter(id, PARAM_STATUS, STATUS_RUNNING);
+        setStatus("Extracting");
+        try {
+            Object input;
+            if (docId != null) {
+                if (originatingUsername != null) {
+                    openUserSession();
+                } else {
+                    openSystemSession();
+                }
+                DocumentModel doc = session.getDocument(new IdRef(docId));
+                Blob blob = HTMLParser.getBlob(doc, (String) params.get("xpath"));
+                if (sourceDigest != null
+                        && (blob == null || !sourceDigest.equals(HTMLExtractedData.getSourceDigest(blob)))) {
+                    throw new IllegalStateException("The html of the document changed since it was submitted");
+                }
+                input = doc;
+            } else {
+                List<Blob> blobs = store.getBlobs(id);
+                if (blobs == null || blobs.isEmpty()) {
+                    throw new IllegalStateException("No html to extract, the entry of the transient store expired");
+                }
+                input = blobs.get(0);
+            }
+
+            Object result;
+            try (OperationContext ctx = session == null ? new OperationContext() : new OperationContext(session)) {
+                ctx.setInput(input);
+                result = Framework.getService(AutomationService.class).run(ctx, HTMLExtractOp.ID, params);
+            }
+
+            store.putBlobs(id, List.of(Blobs.createJSONBlob((String) result)));
+            store.putParameter(id, PARAM_STATUS, STATUS_COMPLETED);
+        } catch (Exception e) {
+            // Reported in the status, submitting the same extraction schedules it again
+            log.error("Cannot extract the html, work {}", id, e);
+            store.putParameter(id, PARAM_STATUS, STATUS_FAILED);
+            store.putParameter(id, PARAM_ERROR, String.valueOf(e.getMessage()));
+        } finally {
+            store.setCompleted(id, true);
+            setStatus(null);
+        }
+    }
+}
@@ -22,10 +22,30 @@ import static org.junit.Assert.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
+import org.apache.commons.io.output.StringBuilderWriter;
+import org.apache.commons.lang3.StringUtils;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -36,26 +56,59 @@ import org.nuxeo.common.utils.FileUtils;
 import org.nuxeo.ecm.automation.AutomationService;
 import org.nuxeo.ecm.automation.OperationChain;
 import org.nuxeo.ecm.automation.OperationContext;
+import org.nuxeo.ecm.automation.core.util.BlobList;
 import org.nuxeo.ecm.automation.test.AutomationFeature;
 import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.Blobs;
 import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentModelList;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.api.impl.DocumentModelListImpl;
+import org.nuxeo.ecm.core.api.impl.blob.ByteArrayBlob;
 import org.nuxeo.ecm.core.api.impl.blob.FileBlob;
+import org.nuxeo.ecm.core.bulk.BulkService;
+import org.nuxeo.ecm.core.bulk.message.BulkCommand;
+import org.nuxeo.ecm.core.bulk.message.BulkStatus;
+import org.nuxeo.ecm.core.test.CoreBulkFeature;
+import org.nuxeo.html.utils.HTMLExtractor.Facet;
+import org.nuxeo.html.utils.bulk.HTMLExtractAction;
+import org.nuxeo.html.utils.operations.HTMLExtractAsyncOp;
+import org.nuxeo.html.utils.operations.HTMLExtractAsBlobOp;
+import org.nuxeo.html.utils.operations.HTMLExtractOp;
+import org.nuxeo.html.utils.operations.HTMLGetExtractResultOp;
 import org.nuxeo.html.utils.operations.HTMLGetInfoOp;
+import org.nuxeo.html.utils.operations.HTMLGetLinksAsBlobOp;
 import org.nuxeo.html.utils.operations.HTMLGetLinksOp;
+import org.nuxeo.html.utils.operations.HTMLGetPlainTextAsBlobOp;
 import org.nuxeo.html.utils.operations.HTMLGetPlainTextOp;
+import org.nuxeo.html.utils.operations.HTMLGetStructuredDataOp;
+import org.nuxeo.html.utils.operations.HTMLGetTextChunksOp;
+import org.nuxeo.html.utils.work.HTMLExtractionWork;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.api.login.NuxeoLoginContext;
 import org.nuxeo.runtime.test.runner.Deploy;
 import org.nuxeo.runtime.test.runner.Features;
 import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.test.runner.TransactionalFeature;
+import org.nuxeo.runtime.transaction.TransactionHelper;
 
 import com.google.inject.Inject;
 
+import io.dropwizard.metrics5.Histogram;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+import io.dropwizard.metrics5.Timer;
+
+import net.htmlparser.jericho.StreamedSource;
+
 /**
  * @since 8.1
  */
 
 @RunWith(FeaturesRunner.class)
-@Features({ AutomationFeature.class })
-@Deploy({ "org.nuxeo.html.utils.nuxeo-html-utils-core" })
+@Features({ AutomationFeature.class, CoreBulkFeature.class })
+@Deploy({ "org.nuxeo.ecm.core.cache", "org.nuxeo.html.utils.nuxeo-html-utils-core" })
 public class HTMLPaserTest {
 
     protected static final String HTML_TEST_FILE = "files/test.html";
@@ -70,6 +123,15 @@ public class HTMLPaserTest {
     @Inject
     AutomationService automationService;
 
+    @Inject
+    TransactionalFeature txFeature;
+
+    @Inject
+    BulkService bulkService;
+
+    @Inject
+    HTMLParserService htmlParserService;
+
     @Before
     public void setup() {
 
@@ -106,7 +168,7 @@ public class HTMLPaserTest {
 
     /* <-------------------- Check ArrayList<LinkInfo> values for HTML_TEST_FILE --------------------> */
     // Avoid copy-paste these lines for each test and centralize things.
-    protected void checkLinksForHtmlTestFile(ArrayList<LinkInfo> links) throws Exception {
+    protected void checkLinksForHtmlTestFile(List<LinkInfo> links) throws Exception {
 
         // Does not contains the links declared inside comments
         assertEquals(5, links.size());
@@ -296,6 +358,70 @@ public class HTMLPaserTest {
         checkJsonArrayForHtmlTestFile(array);
     }
 
+    @Test
+    public void testScanLinks() throws Exception {
+
+        HTMLParser hp = new HTMLParser(HTML_FILEBLOB);
+
+        ArrayList<LinkInfo> links = new ArrayList<LinkInfo>();
+        hp.scanLinks(links::add);
+
+        checkLinksForHtmlTestFile(links);
+        // In the order of the document
+        assertEquals("script", links.get(0).getTag());
+        assertEquals("img", links.get(4).getTag());
+    }
+
+    @Test
+    public void testScanLinks_UnclosedElements() throws Exception {
+
+        // Links never closed, and a linked element holding the whole body
+        StringBuilder html = new StringBuilder("<html><body><div src=\"background.png\"><p>");
+        for (int i = 0; i < 5000; i++) {
+            html.append("<a href=\"l").append(i).append(".html\">Link ").append(i).append(" ");
+        }
+        html.append("</p></div></body></html>");
+
+        StreamedLinkScanner scanner = new StreamedLinkScanner(LinkRules.DEFAULT).setMaxTextLength(100);
+        List<LinkInfo> links = new ArrayList<LinkInfo>();
+        int[] maxPending = { 0 };
+        try (StreamedSource streamedSource = new StreamedSource(html)) {
+            scanner.scan(streamedSource, li -> {
+                maxPending[0] = Math.max(maxPending[0], scanner.pendingLinks.size());
+                assertTrue(scanner.openLinks.size() <= 3);
+                links.add(li);
+            });
+        }
+
+        assertEquals(5001, links.size());
+        // Sent when too many links waited for it, with a limited text
+        assertEquals("background.png", links.get(0).getLink());
+        assertTrue(links.get(0).getText().length() <= 100);
+        // Each link ends at the next one
+        assertEquals("l0.html", links.get(1).getLink());
+        assertEquals("Link 0", links.get(1).getText());
+        assertEquals("Link 4999", links.get(5000).getText());
+        assertTrue(maxPending[0] <= StreamedLinkScanner.MAX_PENDING_LINKS + 1);
+    }
+
+    @Test
+    public void testGetLinksAsBlobOperation() throws Exception {
+
+        OperationChain chain;
+        OperationContext ctx = new OperationContext(session);
+
+        ctx.setInput(HTML_FILEBLOB);
+        chain = new OperationChain("testGetLinksAsBlobOp");
+        chain.add(HTMLGetLinksAsBlobOp.ID);
+        Blob result = (Blob) automationService.run(ctx, chain);
+
+        assertNotNull(result);
+        assertEquals("application/json", result.getMimeType());
+        JSONArray array = new JSONArray(result.getString());
+
+        checkJsonArrayForHtmlTestFile(array);
+    }
+
     @Test
     public void testGetImgSrc() throws Exception {
 
@@ -362,6 +488,401 @@ public class HTMLPaserTest {
         testPlainText(result, true);
     }
     
+    @Test
+    public void testGetPlainTextAsBlob() throws Exception {
+
+        HTMLParser hp = new HTMLParser(HTML_FILEBLOB);
+
+        Blob blob = hp.getPlainTextAsBlob(null, false, false, false);
+        assertEquals("text/plain", blob.getMimeType());
+        testPlainText(blob.getString(), false);
+
+        blob = hp.getPlainTextAsBlob(null, true, true, false);
+        testPlainText(blob.getString(), true);
+        assertTrue(blob.getString().indexOf("TheImg") > -1);
+    }
+
+    @Test
+    public void testGetPlainTextAsBlob_SameTextAsRenderer() throws Exception {
+
+        String removed = "<html><head><title>The title</title></head><body><h1>Title</h1>"
+                + "<noscript>Hidden <noscript>nested</noscript> still hidden</noscript><p>Visible&nbsp;text</p>"
+                + "<object data=\"x.swf\">Object content</object><map name=\"m\"><area href=\"a.html\">Map</map>"
+                + "<table><tr><td>Cell 1</td><td>Cell 2</td></tr></table><pre>Pre\n  text</pre>"
+                + "<select><option>Option</option></select><p>The end</p></body></html>";
+
+        // Same words, the layout is simpler
+        for (String html : Arrays.asList(HTML_FILEBLOB.getString(), removed)) {
+            String expected = new HTMLParser(html).getPlainText(null, false, false, true);
+            String streamed = new HTMLParser(html).getPlainTextAsBlob(null, false, false, true).getString();
+            assertEquals(StringUtils.normalizeSpace(expected), StringUtils.normalizeSpace(streamed));
+        }
+        String streamed = new HTMLParser(removed).getPlainTextAsBlob(null, false, false, true).getString();
+        assertTrue(streamed.indexOf("The end") > -1);
+        assertTrue(streamed.indexOf("still hidden") < 0);
+    }
+
+    @Test
+    public void testBlobEncoding() throws Exception {
+
+        // No charset in the html: without the encoding of the blob, the euro sign would be read as ISO-8859-1
+        String html = "<html><head><title>Price: 10 \u20ac</title></head><body><p>Only 10 \u20ac</p></body></html>";
+        byte[] bytes = html.getBytes("windows-1252");
+
+        Blob blob = new ByteArrayBlob(bytes, "text/html", "windows-1252");
+        HTMLParser hp = new HTMLParser(blob);
+        assertEquals("Price: 10 \u20ac", hp.getTitle());
+        assertTrue(hp.getPlainTextAsBlob(null, false, false, false).getString().contains("Only 10 \u20ac"));
+
+        File file = File.createTempFile("html-utils-", ".html");
+        file.deleteOnExit();
+        Files.write(file.toPath(), bytes);
+        FileBlob fileBlob = new FileBlob(file, "text/html", "windows-1252");
+        hp = new HTMLParser(fileBlob);
+        assertEquals("Price: 10 \u20ac", hp.getTitle());
+
+        // Only the first bytes are decoded (one byte per character in windows-1252)
+        hp = new HTMLParser(fileBlob).setBudget(new HTMLParseBudget().setMaxInputBytes(html.indexOf("</body>")));
+        assertEquals(html.substring(0, html.indexOf("</body>")), hp.getSource().toString());
+        assertTrue(hp.isTruncated());
+    }
+
+    @Test
+    public void testLinkRules() throws Exception {
+
+        // The default contribution
+        assertEquals(LinkRules.DEFAULT.toString(), LinkRules.get().toString());
+
+        assertEquals(Arrays.asList("a.png", "b,1.png", "c.png"), LinkRules.parseSrcset("a.png 1x, b,1.png 2x,c.png"));
+        assertEquals("http://www.nuxeo.com", LinkRules.parseRefresh("5; URL='http://www.nuxeo.com'"));
+        assertNull(LinkRules.parseRefresh("5"));
+
+        LinkRules rules = new LinkRules(Arrays.asList(
+                new LinkRuleDescriptor(LinkRuleDescriptor.ANY_TAG, "href", LinkRuleDescriptor.Type.URL),
+                new LinkRuleDescriptor("img", "srcset", LinkRuleDescriptor.Type.SRCSET),
+                new LinkRuleDescriptor("img", "data-src", LinkRuleDescriptor.Type.URL),
+                new LinkRuleDescriptor("meta", "content", LinkRuleDescriptor.Type.REFRESH)));
+        String html = "<html><head><meta http-equiv=\"refresh\" content=\"0; url=http://refresh.com\">"
+                + "<meta name=\"description\" content=\"Not a link\"></head><body>"
+                + "<img data-src=\"lazy.png\" srcset=\"small.png 1x, large.png 2x\" src=\"ignored.png\">"
+                + "<a href=\"http://www.nuxeo.com\">Nuxeo</a><div data-src=\"not-an-img.png\"></div></body></html>";
+
+        HTMLParser hp = new HTMLParser(html).setLinkRules(rules);
+        ArrayList<LinkInfo> links = hp.getLinks();
+        assertEquals(5, links.size());
+        // Grouped by rule
+        assertTrue(links.get(0).compareIgnoreNull("a", "href", "Nuxeo", "http://www.nuxeo.com"));
+        assertTrue(links.get(1).compareIgnoreNull("img", "srcset", null, "small.png"));
+        assertTrue(links.get(2).compareIgnoreNull("img", "srcset", null, "large.png"));
+        assertTrue(links.get(3).compareIgnoreNull("img", "data-src", null, "lazy.png"));
+        assertTrue(links.get(4).compareIgnoreNull("meta", "content", null, "http://refresh.com"));
+
+        // Same links with the extractor, in the document order with the streamed scanner
+        assertEquals(links.toString(),
+                new HTMLParser(html).setLinkRules(rules).getExtractor().extract().getLinks().toString());
+        List<String> streamed = new ArrayList<String>();
+        new HTMLParser(html).setLinkRules(rules).scanLinks(li -> streamed.add(li.getLink()));
+        assertEquals(Arrays.asList("http://refresh.com", "lazy.png", "small.png", "large.png", "http://www.nuxeo.com"),
+                streamed);
+    }
+
+    @Test
+    public void testResolveLinks() throws Exception {
+
+        assertEquals("http://www.nuxeo.com/a/c", LinkResolver.resolve("HTTP://WWW.Nuxeo.com:80/a/b/", "../c"));
+        assertEquals("https://nuxeo.com/", LinkResolver.normalize("https://nuxeo.com:443"));
+        assertEquals("http://nuxeo.com:8080/x", LinkResolver.resolve("http://nuxeo.com:8080/a", "/../x"));
+        assertEquals("http://nuxeo.com/a?q=1", LinkResolver.resolve("http://nuxeo.com/a#top", "?q=1"));
+        assertEquals("mailto:info@nuxeo.com", LinkResolver.resolve("http://nuxeo.com/", "MAILTO:info@nuxeo.com"));
+
+        String html = "<html><head><base href=\"/docs/\"></head><body>" + "<a href=\"page.html\">1</a>"
+                + "<a href=\"./page.html\">2</a>" + "<a href=\"http://EXAMPLE.com:80/docs/x/../page.html\">3</a>"
+                + "<img src=\"img/logo.png\"></body></html>";
+
+        HTMLParser hp = new HTMLParser(html);
+        assertEquals("/docs/", hp.getBaseHref());
+        ArrayList<LinkInfo> links = hp.getLinks("http://example.com/index.html", true, true);
+        assertEquals(2, links.size());
+        assertTrue(links.get(0).compareIgnoreNull("a", "href", "1", "http://example.com/docs/page.html"));
+        assertEquals(3, links.get(0).getCount());
+        assertTrue(links.get(1).compareIgnoreNull("img", "src", null, "http://example.com/docs/img/logo.png"));
+        assertEquals(1, links.get(1).getCount());
+        // Not modified
+        assertEquals(4, hp.getLinks().size());
+        assertEquals("page.html", hp.getLinks().get(0).getLink());
+
+        OperationContext ctx = new OperationContext(session);
+        ctx.setInput(html);
+        OperationChain chain = new OperationChain("testGetLinksOp");
+        chain.add(HTMLGetLinksOp.ID)
+             .set("baseUrl", "http://example.com/index.html")
+             .set("resolve", true)
+             .set("deduplicate", true);
+        JSONArray array = new JSONArray((String) automationService.run(ctx, chain));
+        assertEquals(2, array.length());
+        assertEquals("http://example.com/docs/page.html", array.getJSONObject(0).getString("link"));
+        assertEquals(3, array.getJSONObject(0).getInt("count"));
+    }
+
+    @Test
+    public void testLinkFilter() throws Exception {
+
+        assertEquals("https", LinkFilter.getScheme("HTTPS://www.nuxeo.com"));
+        assertNull(LinkFilter.getScheme("sub1/sub2:sub.html"));
+        assertEquals("www.nuxeo.com", LinkFilter.getHost("http://user@WWW.nuxeo.com:8080/path"));
+        assertEquals("nuxeo.com", LinkFilter.getHost("//nuxeo.com"));
+        assertNull(LinkFilter.getHost("sub1/sub2/sub.html"));
+
+        HTMLParser hp = new HTMLParser(HTML_FILEBLOB);
+        ArrayList<LinkInfo> links = hp.getLinks(LinkFilter.of("a", null, null, null, null, null));
+        assertEquals(2, links.size());
+        assertTrue(linkListContains(links, "a", "href", "Here, a link to nuxeo.com", "http://nuxeo.com"));
+
+        hp = new HTMLParser(HTML_FILEBLOB);
+        assertEquals(2, hp.getLinks(LinkFilter.of(null, null, "http, https", null, null, null)).size());
+        assertEquals(1, hp.getLinks(LinkFilter.of(null, null, null, "nuxeo.com", null, null)).size());
+        assertEquals(4, hp.getLinks(LinkFilter.of(null, null, null, null, "exist.com", null)).size());
+        links = hp.getLinks(LinkFilter.of(null, "href", null, null, null, "\\.css$"));
+        assertEquals(1, links.size());
+        assertEquals("does/not/exist/style.css", links.get(0).getLink());
+        // Same result once all the links are known
+        checkLinksForHtmlTestFile(hp.getLinks());
+        assertEquals(1, hp.getLinks(LinkFilter.of(null, "href", null, null, null, "\\.css$")).size());
+        assertNull(LinkFilter.of("", " ", null, null, null, ""));
+
+        OperationContext ctx = new OperationContext(session);
+        ctx.setInput(HTML_FILEBLOB);
+        OperationChain chain = new OperationChain("testGetLinksOp");
+        chain.add(HTMLGetLinksOp.ID).set("tags", "a").set("schemes", "http,https");
+        JSONArray array = new JSONArray((String) automationService.run(ctx, chain));
+        assertEquals(1, array.length());
+        assertEquals("http://nuxeo.com", array.getJSONObject(0).getString("link"));
+    }
+
+    @Test
+    public void testLinkTextOptions() throws Exception {
+
+        HTMLParser hp = new HTMLParser(HTML_FILEBLOB).setLinkTextOptions(false, 0);
+        ArrayList<LinkInfo> links = hp.getLinks();
+        assertEquals(5, links.size());
+        for (LinkInfo li : links) {
+            assertNull(li.getText());
+        }
+
+        hp = new HTMLParser(HTML_FILEBLOB).setLinkTextOptions(true, 4);
+        assertTrue(linkListContains(hp.getLinks(), "a", "href", "Here", "http://nuxeo.com"));
+
+        // Back to the full text
+        hp.setLinkTextOptions(true, 0);
+        checkLinksForHtmlTestFile(hp.getLinks());
+
+        OperationContext ctx = new OperationContext(session);
+        ctx.setInput(HTML_FILEBLOB);
+        OperationChain chain = new OperationChain("testGetLinksOp");
+        chain.add(HTMLGetLinksOp.ID).set("includeText", false);
+        JSONArray array = new JSONArray((String) automationService.run(ctx, chain));
+        assertEquals(5, array.length());
+        assertFalse(array.getJSONObject(0).has("text"));
+    }
+
+    @Test
+    public void testParseBudget() throws Exception {
+
+        HTMLParser hp = new HTMLParser(HTML_FILEBLOB).setBudget(new HTMLParseBudget().setMaxElements(2));
+        assertEquals(2, hp.getLinks().size());
+        assertTrue(hp.isTruncated());
+
+        hp = new HTMLParser(HTML_FILEBLOB).setBudget(new HTMLParseBudget().setMaxOutputChars(10));
+        assertTrue(hp.getPlainText().length() <= 10);
+        assertTrue(hp.isTruncated());
+
+        // Not truncated: the result is complete
+        hp = new HTMLParser(HTML_FILEBLOB).setBudget(new HTMLParseBudget().setMaxElements(100));
+        checkLinksForHtmlTestFile(hp.getLinks());
+        assertFalse(hp.isTruncated());
+
+        // Only the beginning of the input is parsed
+        String html = HTML_FILEBLOB.getString();
+        hp = new HTMLParser(html).setBudget(new HTMLParseBudget().setMaxInputBytes(html.indexOf("</title>")));
+        hp.getLinks();
+        assertTrue(hp.isTruncated());
+
+        OperationContext ctx = new OperationContext(session);
+        ctx.setInput(HTML_FILEBLOB);
+        OperationChain chain = new OperationChain("testGetLinksOp");
+        chain.add(HTMLGetLinksOp.ID).set("maxElements", 1);
+        JSONArray array = new JSONArray((String) automationService.run(ctx, chain));
+        assertEquals(1, array.length());
+        assertEquals(Boolean.TRUE, ctx.get(HTMLParseBudget.TRUNCATED_CONTEXT_VARIABLE));
+
+        ctx = new OperationContext(session);
+        ctx.setInput(HTML_FILEBLOB);
+        chain = new OperationChain("testExtractOp");
+        chain.add(HTMLExtractOp.ID).set("facets", "links").set("maxElements", 1);
+        JSONObject obj = new JSONObject((String) automationService.run(ctx, chain));
+        assertEquals(1, obj.getJSONArray("links").length());
+        assertTrue(obj.getBoolean(HTMLGetInfoOp.TRUNCATED_FIELD));
+
+        ctx = new OperationContext(session);
+        ctx.setInput(HTML_FILEBLOB);
+        chain = new OperationChain("testExtractOp");
+        chain.add(HTMLExtractOp.ID).set("facets", "links");
+        obj = new JSONObject((String) automationService.run(ctx, chain));
+        assertFalse(obj.has(HTMLGetInfoOp.TRUNCATED_FIELD));
+        assertEquals(Boolean.FALSE, ctx.get(HTMLParseBudget.TRUNCATED_CONTEXT_VARIABLE));
+
+        // Metas, head and structured data, with every engine
+        for (HTMLParser.Engine engine : HTMLParser.Engine.values()) {
+            hp = new HTMLParser(STRUCTURED_DATA_HTML).setEngine(engine)
+                                                     .setBudget(new HTMLParseBudget().setMaxElements(1));
+            assertEquals(1, hp.getMetas().size());
+            assertTrue(hp.isTruncated());
+
+            hp = new HTMLParser(STRUCTURED_DATA_HTML).setEngine(engine)
+                                                     .setBudget(new HTMLParseBudget().setMaxElements(1));
+            assertEquals(1, hp.getStructuredData().getJsonLd().size());
+            assertTrue(hp.isTruncated());
+
+            hp = new HTMLParser(STRUCTURED_DATA_HTML).setEngine(engine)
+                                                     .setBudget(new HTMLParseBudget().setTimeout(1));
+            Thread.sleep(10);
+            assertTrue(hp.getStructuredData().getJsonLd().isEmpty());
+            assertTrue(hp.isTruncated());
+        }
+        hp = new HTMLParser(STRUCTURED_DATA_HTML).setHeadOnly(true)
+                                                 .setBudget(new HTMLParseBudget().setMaxElements(1));
+        assertEquals("Article", hp.getTitle());
+        assertEquals(1, hp.getMetas().size());
+        assertTrue(hp.isTruncated());
+    }
+
+    @Test
+    public void testParserService() throws Exception {
+
+        HTMLExtractionProfile profile = htmlParserService.getProfile(null);
+        assertEquals(HTMLParserService.DEFAULT_PROFILE, profile.getName());
+        assertTrue(htmlParserService.getProfileNames().contains(HTMLParserService.DEFAULT_PROFILE));
+
+        HTMLParser hp = htmlParserService.newParser(HTML_FILEBLOB, null);
+        checkLinksForHtmlTestFile(hp.getLinks());
+
+        // Profiles are immutable, with* returns a copy
+        HTMLExtractionProfile noText = profile.withLinkText(false, null);
+        assertTrue(profile.isIncludeLinkText());
+        hp = htmlParserService.newParser(HTML_FILEBLOB, noText);
+        for (LinkInfo li : hp.getLinks()) {
+            assertNull(li.getText());
+        }
+
+        try {
+            htmlParserService.getProfile("doesNotExist");
+            fail("An unknown profile should fail");
+        } catch (NuxeoException e) {
+            // Expected
+        }
+
+        OperationContext ctx = new OperationContext(session);
+        ctx.setInput(HTML_FILEBLOB);
+        OperationChain chain = new OperationChain("testGetLinksOp");
+        chain.add(HTMLGetLinksOp.ID).set("profile", HTMLParserService.DEFAULT_PROFILE).set("includeText", false);
+        JSONArray array = new JSONArray((String) automationService.run(ctx, chain));
+        assertEquals(5, array.length());
+        assertFalse(array.getJSONObject(0).has("text"));
+
+        ctx = new OperationContext(session);
+        ctx.setInput(HTML_FILEBLOB);
+        chain = new OperationChain("testGetInfoOp");
+        chain.add(HTMLGetInfoOp.ID).set("profile", "doesNotExist");
+        try {
+            automationService.run(ctx, chain);
+            fail("An unknown profile should fail");
+        } catch (Exception e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testGetPlainTextAsBlobOperation() throws Exception {
+
+        OperationChain chain;
+        OperationContext ctx = new OperationContext(session);
+
+        DocumentModel note = createTestNote();
+        ctx.setInput(note);
+        chain = new OperationChain("testGetPlainTextAsBlobOp");
+        chain.add(HTMLGetPlainTextAsBlobOp.ID).set("includeHyperlinkURLs", true);
+        Blob result = (Blob) automationService.run(ctx, chain);
+        assertNotNull(result);
+        testPlainText(result.getString(), true);
+    }
+
+    @Test
+    public void testTextChunks() throws Exception {
+
+        String html = HTML_FILEBLOB.getString();
+        HTMLParser hp = new HTMLParser(html);
+        List<TextChunk> chunks = hp.getTextChunks(0);
+
+        // A heading starts a new chunk
+        assertEquals(3, chunks.size());
+        TextChunk chunk = chunks.get(0);
+        assertEquals("Welcome to the HTMLParserTest", chunk.getText());
+        assertEquals(Arrays.asList("Welcome to the HTMLParserTest"), chunk.getHeadings());
+        assertEquals("Welcome to the HTMLParserTest", html.substring((int) chunk.getBegin(), (int) chunk.getEnd()));
+
+        chunk = chunks.get(1);
+        assertEquals(1, chunk.getIndex());
+        assertTrue(chunk.getText().startsWith("Ready to Test?"));
+        assertTrue(chunk.getText().contains("Another link (This does not exist in the test files)"));
+        assertEquals(Arrays.asList("Welcome to the HTMLParserTest", "Ready to Test?"), chunk.getHeadings());
+        assertTrue(chunks.get(2).getHeadings().get(1).startsWith("Sed ut perspiciatis"));
+
+        // Smaller chunks, same text
+        List<TextChunk> small = new HTMLParser(html).getTextChunks(100);
+        assertTrue(small.size() > chunks.size());
+        StringBuilder all = new StringBuilder();
+        StringBuilder allSmall = new StringBuilder();
+        for (int i = 0; i < small.size(); i++) {
+            assertEquals(i, small.get(i).getIndex());
+            assertTrue(small.get(i).getText().length() <= 100);
+            allSmall.append(small.get(i).getText()).append(" ");
+        }
+        for (TextChunk c : chunks) {
+            all.append(c.getText()).append(" ");
+        }
+        assertEquals(StringUtils.normalizeSpace(all.toString()), StringUtils.normalizeSpace(allSmall.toString()));
+
+        OperationContext ctx = new OperationContext(session);
+        ctx.setInput(HTML_FILEBLOB);
+        OperationChain chain = new OperationChain("testGetTextChunksOp");
+        chain.add(HTMLGetTextChunksOp.ID).set("maxChunkSize", 100);
+        Blob result = (Blob) automationService.run(ctx, chain);
+        assertEquals("application/json", result.getMimeType());
+        JSONArray array = new JSONArray(result.getString());
+        assertEquals(small.size(), array.length());
+        assertEquals(small.get(0).getText(), array.getJSONObject(0).getString("text"));
+        assertEquals("Welcome to the HTMLParserTest",
+                array.getJSONObject(0).getJSONArray("headings").getString(0));
+    }
+
+    @Test
+    public void testGetMetaValue() throws Exception {
+
+        HTMLParser hp = new HTMLParser(HTML_FILEBLOB);
+
+        assertEquals("The description", hp.getMetaValue("description"));
+        assertEquals("The description", hp.getMetaValue("DESCRIPTION"));
+        assertEquals("", hp.getMetaValue("notThere"));
+        // charset has no name
+        assertEquals(3, hp.getMetas().size());
+
+        // Open Graph metas use the property attribute
+        hp = new HTMLParser("<html><head><meta property=\"og:title\" content=\"The OG title\" />"
+                + "<meta http-equiv=\"refresh\" content=\"30\" /></head><body></body></html>");
+        assertEquals("The OG title", hp.getMetaValue("og:title"));
+        assertEquals("30", hp.getMetaValue("Refresh"));
+    }
+
     @Test
     public void testGetInfo_Operation() throws Exception {
         OperationChain chain;
@@ -393,4 +914,920 @@ public class HTMLPaserTest {
         assertEquals("John Smith", str);
         
     }
+
+    @Test
+    public void testOperationsOutputSameAsOrgJson() throws Exception {
+
+        // What the operations returned when they built JSONObject/JSONArray trees
+        HTMLParser hp = new HTMLParser(HTML_FILEBLOB);
+        JSONArray expectedLinks = new JSONArray();
+        for (LinkInfo li : hp.getLinks()) {
+            JSONObject object = new JSONObject();
+            object.put("tag", li.getTag());
+            object.put("attribute", li.getAttribute());
+            object.put("text", li.getText());
+            object.put("link", li.getLink());
+            expectedLinks.put(object);
+        }
+        JSONObject expectedInfo = new JSONObject();
+        expectedInfo.put("title", hp.getTitle());
+        expectedInfo.put("description", hp.getMetaValue("description"));
+        expectedInfo.put("keywords", hp.getMetaValue("keywords"));
+        expectedInfo.put("og:title", hp.getMetaValue("og:title"));
+
+        OperationContext ctx = new OperationContext(session);
+        ctx.setInput(HTML_FILEBLOB);
+        OperationChain chain = new OperationChain("testGetLinksOp");
+        chain.add(HTMLGetLinksOp.ID);
+        assertEquals(expectedLinks.toString(), automationService.run(ctx, chain));
+
+        ctx = new OperationContext(session);
+        ctx.setInput(HTML_FILEBLOB);
+        chain = new OperationChain("testGetInfoOp");
+        chain.add(HTMLGetInfoOp.ID).set("metaList", "description, keywords, og:title");
+        assertEquals(expectedInfo.toString(), automationService.run(ctx, chain));
+
+        BlobList blobs = new BlobList();
+        blobs.add(HTML_FILEBLOB);
+        blobs.add(HTML_FILEBLOB);
+        JSONArray expectedBatch = new JSONArray();
+        expectedBatch.put(expectedLinks);
+        expectedBatch.put(expectedLinks);
+        ctx = new OperationContext(session);
+        ctx.setInput(blobs);
+        chain = new OperationChain("testGetLinksOp");
+        chain.add(HTMLGetLinksOp.ID);
+        assertEquals(expectedBatch.toString(), automationService.run(ctx, chain));
+
+        // Escapes, in the names and in the values
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("a\u0001b", "</script>\t\u0085\u2028\"\\\u00e9");
+        values.put("c\u001fd\u0090\u2010", "x\by\fz");
+        values.put("e", Boolean.TRUE);
+        StringBuilderWriter writer = new StringBuilderWriter();
+        new JSONStreamWriter(writer).object(values);
+        assertEquals(new JSONObject(values).toString(), writer.toString());
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+
+        assertTrue(HTMLMetrics.isEnabled());
+        MetricRegistry registry = SharedMetricRegistries.getOrCreate(HTMLMetrics.REGISTRY_NAME);
+        Timer operationTimer = registry.timer(HTMLMetrics.OPERATION_TIMER.tagged("operation", HTMLGetLinksOp.ID));
+        Timer parseTimer = registry.timer(HTMLMetrics.PHASE_TIMER.tagged("phase", HTMLMetrics.PHASE_PARSE));
+        Histogram outputSize = registry.histogram(HTMLMetrics.OUTPUT_SIZE.tagged("operation", HTMLGetLinksOp.ID));
+        long operations = operationTimer.getCount();
+        long parses = parseTimer.getCount();
+        long outputs = outputSize.getCount();
+        long elements = registry.counter(HTMLMetrics.ELEMENTS).getCount();
+        long links = registry.counter(HTMLMetrics.LINKS).getCount();
+
+        // Not cached: a String input has no digest
+        OperationContext ctx = new OperationContext(session);
+        ctx.setInput(HTML_FILEBLOB.getString());
+        OperationChain chain = new OperationChain("testMetrics");
+        chain.add(HTMLGetLinksOp.ID);
+        automationService.run(ctx, chain);
+
+        assertEquals(operations + 1, operationTimer.getCount());
+        assertTrue(parseTimer.getCount() > parses);
+        assertEquals(outputs + 1, outputSize.getCount());
+        assertTrue(registry.counter(HTMLMetrics.ELEMENTS).getCount() > elements);
+        assertTrue(registry.counter(HTMLMetrics.LINKS).getCount() >= links + 5);
+    }
+
+    @Test
+    public void testExtract() throws Exception {
+
+        HTMLParser hp = new HTMLParser(HTML_FILEBLOB);
+
+        HTMLExtraction extraction = hp.getExtractor()
+                                      .setMetaNames(Arrays.asList("description", "Author", "notThere"))
+                                      .extract();
+
+        assertEquals("Nuxeo HTMLParser Rocks!", extraction.getTitle());
+        assertEquals("The description", extraction.getMetas().get("description"));
+        assertEquals("John Smith", extraction.getMetas().get("Author"));
+        assertEquals("", extraction.getMetas().get("notThere"));
+        checkLinksForHtmlTestFile(extraction.getLinks());
+        assertEquals(1, extraction.getImgSrc().size());
+        assertTrue(extraction.getImgSrc().contains("http://does.not.exist.com/just/for/test.jpg"));
+        testPlainText(extraction.getPlainText(), false);
+
+        // Same results as the HTMLParser getters
+        HTMLParser hp2 = new HTMLParser(HTML_FILEBLOB);
+        assertEquals(hp2.getLinks().toString(), extraction.getLinks().toString());
+        assertEquals(hp2.getPlainText(), extraction.getPlainText());
+
+        // A limit reached by a previous call on the parser does not make the extraction partial
+        HTMLParser hp3 = new HTMLParser(HTML_FILEBLOB).setBudget(new HTMLParseBudget().setMaxElements(1));
+        hp3.getLinks();
+        assertTrue(hp3.isTruncated());
+        extraction = hp3.getExtractor().setFacets(EnumSet.of(Facet.TITLE)).extract();
+        assertEquals("Nuxeo HTMLParser Rocks!", extraction.getTitle());
+        assertFalse(extraction.isTruncated());
+        extraction = hp3.getExtractor().setFacets(EnumSet.of(Facet.LINKS)).extract();
+        assertTrue(extraction.isTruncated());
+    }
+
+    @Test
+    public void testExtractOperation() throws Exception {
+        OperationChain chain;
+        OperationContext ctx = new OperationContext(session);
+
+        DocumentModel note = createTestNote();
+        ctx.setInput(note);
+        chain = new OperationChain("testExtractOp");
+        chain.add(HTMLExtractOp.ID).set("facets", "title, metas, links").set("metaList", "keywords");
+        String result = (String) automationService.run(ctx, chain);
+        assertNotNull(result);
+
+        JSONObject obj = new JSONObject(result);
+        assertEquals("Nuxeo HTMLParser Rocks!", obj.getString("title"));
+        assertEquals("kw1,kw2,kw3", obj.getJSONObject("metas").getString("keywords"));
+        checkJsonArrayForHtmlTestFile(obj.getJSONArray("links"));
+        assertFalse(obj.has("images"));
+        assertFalse(obj.has("text"));
+    }
+
+    @Test
+    public void testExtractAsBlobOperation() throws Exception {
+
+        OperationContext ctx = new OperationContext(session);
+        ctx.setInput(HTML_FILEBLOB);
+        OperationChain chain = new OperationChain("testExtractOp");
+        chain.add(HTMLExtractOp.ID).set("metaList", "keywords");
+        String expected = (String) automationService.run(ctx, chain);
+
+        ctx = new OperationContext(session);
+        ctx.setInput(HTML_FILEBLOB);
+        chain = new OperationChain("testExtractAsBlobOp");
+        chain.add(HTMLExtractAsBlobOp.ID).set("metaList", "keywords");
+        Blob result = (Blob) automationService.run(ctx, chain);
+        assertNotNull(result);
+        assertEquals("application/json", result.getMimeType());
+        assertEquals(expected, result.getString());
+
+        BlobList blobs = new BlobList();
+        blobs.add(HTML_FILEBLOB);
+        blobs.add(HTML_FILEBLOB);
+        ctx = new OperationContext(session);
+        ctx.setInput(blobs);
+        chain = new OperationChain("testExtractAsBlobOp");
+        chain.add(HTMLExtractAsBlobOp.ID).set("metaList", "keywords");
+        result = (Blob) automationService.run(ctx, chain);
+        assertEquals("[" + expected + "," + expected + "]", result.getString());
+    }
+
+    @Test
+    public void testCache() throws Exception {
+
+        HTMLParserCache cache = HTMLParserCache.getInstance();
+        assertTrue(cache.isEnabled());
+
+        FileBlob blob = new FileBlob(HTML_FILEBLOB.getFile());
+        blob.setDigest("test-digest-" + System.nanoTime());
+
+        long hits = cache.getStats().hitCount();
+        long misses = cache.getStats().missCount();
+
+        HTMLParser hp = new HTMLParser(blob);
+        checkLinksForHtmlTestFile(hp.getLinks());
+        assertEquals("Nuxeo HTMLParser Rocks!", hp.getTitle());
+        assertEquals(misses + 2, cache.getStats().missCount());
+
+        // Same digest: served from the cache, the blob is not parsed
+        hp = new HTMLParser(blob);
+        checkLinksForHtmlTestFile(hp.getLinks());
+        assertEquals("Nuxeo HTMLParser Rocks!", hp.getTitle());
+        assertNull(hp.source);
+        assertEquals(hits + 2, cache.getStats().hitCount());
+
+        // Other parameters: new entry
+        String plainText = hp.getPlainText(null, true, false, false);
+        testPlainText(plainText, true);
+        assertEquals(misses + 3, cache.getStats().missCount());
+
+        // The results of one engine are not returned to the other
+        hp = new HTMLParser(blob).setEngine(HTMLParser.Engine.FAST);
+        assertEquals("Nuxeo HTMLParser Rocks!", hp.getTitle());
+        assertEquals(misses + 4, cache.getStats().missCount());
+        hp = new HTMLParser(blob).setEngine(HTMLParser.Engine.JERICHO);
+        assertEquals("Nuxeo HTMLParser Rocks!", hp.getTitle());
+        assertEquals(misses + 5, cache.getStats().missCount());
+    }
+
+    @Test
+    public void testCache_ConcurrentMisses() throws Exception {
+
+        HTMLParserCache cache = new HTMLParserCache(true, 1_000_000L, 60L);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<Future<List<String>>>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return cache.get("digest|imgSrc", () -> {
+                        loads.incrementAndGet();
+                        try {
+                            Thread.sleep(200);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return new ArrayList<String>(Arrays.asList("a.png"));
+                    });
+                }));
+            }
+            start.countDown();
+            for (Future<List<String>> future : futures) {
+                assertEquals(Arrays.asList("a.png"), future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        // Parsed once for the 4 concurrent misses
+        assertEquals(1, loads.get());
+
+        // Cached values are shared, they cannot be modified
+        List<String> cached = cache.get("digest|imgSrc", () -> null);
+        try {
+            cached.add("b.png");
+            fail("A cached list should not be modifiable");
+        } catch (UnsupportedOperationException e) {
+            // Expected
+        }
+
+        // A partial result is not cached
+        assertEquals("partial", cache.get("digest|title", () -> "partial", () -> false));
+        assertEquals("complete", cache.get("digest|title", () -> "complete", () -> true));
+        assertEquals("complete", cache.get("digest|title", () -> "other", () -> true));
+    }
+
+    @Test
+    public void testMappedFile() throws Exception {
+
+        String expectedText = new HTMLParser(HTML_FILEBLOB).getPlainText();
+
+        // Encoding declared, or detected
+        for (String encoding : Arrays.asList("UTF-8", null)) {
+            FileBlob blob = new FileBlob(HTML_FILEBLOB.getFile());
+            blob.setEncoding(encoding);
+
+            HTMLParser hp = new HTMLParser(blob).setMappedFileThreshold(1);
+            assertTrue(hp.isMappedFile());
+            checkLinksForHtmlTestFile(hp.getLinks());
+            assertEquals("Nuxeo HTMLParser Rocks!", hp.getTitle());
+            assertEquals(expectedText, hp.getPlainText());
+
+            hp = new HTMLParser(blob).setMappedFileThreshold(1);
+            ArrayList<LinkInfo> scanned = new ArrayList<LinkInfo>();
+            hp.scanLinks(scanned::add);
+            checkLinksForHtmlTestFile(scanned);
+        }
+
+        // Only the beginning is mapped
+        String html = HTML_FILEBLOB.getString();
+        HTMLParser hp = new HTMLParser(HTML_FILEBLOB).setMappedFileThreshold(1)
+                                                    .setBudget(new HTMLParseBudget().setMaxInputBytes(
+                                                            html.indexOf("</title>")));
+        assertTrue(hp.isMappedFile());
+        assertFalse(hp.isTruncated());
+        hp.getLinks();
+        assertTrue(hp.isTruncated());
+
+        try (MappedFileReader reader = new MappedFileReader(HTML_FILEBLOB.getFile(), StandardCharsets.UTF_8, 0)) {
+            assertEquals(html, IOUtils.toString(reader));
+        }
+        assertFalse(new HTMLParser(HTML_FILEBLOB).setMappedFileThreshold(0).isMappedFile());
+    }
+
+    @Test
+    public void testCache_Note() throws Exception {
+
+        HTMLParserCache cache = HTMLParserCache.getInstance();
+        DocumentModel note = createTestNote();
+        String html = (String) note.getPropertyValue("note:note");
+        note.setPropertyValue("note:note", html.replace("Nuxeo HTMLParser Rocks!", "Note " + System.nanoTime()));
+        note = session.saveDocument(note);
+
+        HTMLParser hp = new HTMLParser(note);
+        assertTrue(hp.getTitle().startsWith("Note "));
+
+        // Saved without changing the html: its hash is the same, it is not parsed again
+        long hits = cache.getStats().hitCount();
+        note.setPropertyValue("dc:description", "Not the html");
+        note = session.saveDocument(note);
+        hp = new HTMLParser(note);
+        assertTrue(hp.getTitle().startsWith("Note "));
+        assertNull(hp.source);
+        assertEquals(hits + 1, cache.getStats().hitCount());
+
+        note.setPropertyValue("note:note", html);
+        note = session.saveDocument(note);
+        hp = new HTMLParser(note);
+        assertEquals("Nuxeo HTMLParser Rocks!", hp.getTitle());
+        assertNotNull(hp.source);
+    }
+
+    @Test
+    public void testGetLinksOperation_BlobList() throws Exception {
+
+        OperationChain chain;
+        OperationContext ctx = new OperationContext(session);
+
+        BlobList blobs = new BlobList();
+        blobs.add(HTML_FILEBLOB);
+        // Cannot be read: must not fail the batch
+        blobs.add(new FileBlob(new File("does/not/exist.html")));
+        blobs.add(HTML_FILEBLOB);
+        ctx.setInput(blobs);
+        chain = new OperationChain("testGetLinksOp-BlobList");
+        chain.add(HTMLGetLinksOp.ID).set("parallelism", 2);
+        String result = (String) automationService.run(ctx, chain);
+
+        JSONArray array = new JSONArray(result);
+        assertEquals(3, array.length());
+        checkJsonArrayForHtmlTestFile(array.getJSONArray(0));
+        assertTrue(array.isNull(1));
+        checkJsonArrayForHtmlTestFile(array.getJSONArray(2));
+    }
+
+    @Test
+    public void testBatchRunner() throws Exception {
+
+        // A single pool, whatever the parallelism requested
+        int maxThreads = HTMLBatchRunner.getMaxThreads();
+        List<Integer> inputs = new ArrayList<Integer>();
+        for (int i = 0; i < 50; i++) {
+            inputs.add(i);
+        }
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Integer> results = HTMLBatchRunner.map(inputs, maxThreads * 10, i -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(5);
+            running.decrementAndGet();
+            if (i == 3) {
+                throw new IOException("Failure of one input");
+            }
+            return i * 2;
+        });
+        assertTrue(maxRunning.get() <= maxThreads);
+        assertEquals(50, results.size());
+        assertNull(results.get(3));
+        assertEquals(Integer.valueOf(98), results.get(49));
+
+        // A malformed property falls back to the default
+        Framework.getProperties().setProperty(HTMLBatchRunner.PARALLELISM_PROPERTY, "not a number");
+        try {
+            assertEquals(Runtime.getRuntime().availableProcessors(), HTMLBatchRunner.getDefaultParallelism());
+        } finally {
+            Framework.getProperties().remove(HTMLBatchRunner.PARALLELISM_PROPERTY);
+        }
+        Framework.getProperties().setProperty(HTMLParseBudget.MAX_ELEMENTS_PROPERTY, "not a number");
+        Framework.getProperties().setProperty(HTMLParser.MAPPED_FILE_THRESHOLD_PROPERTY, "16MB");
+        try {
+            HTMLParseBudget.readDefaults();
+            HTMLParser.readDefaults();
+            assertEquals(0, HTMLParseBudget.getDefault().getMaxElements());
+            assertEquals(HTMLParser.DEFAULT_MAPPED_FILE_THRESHOLD, new HTMLParser("<p>html</p>").mappedFileThreshold);
+        } finally {
+            Framework.getProperties().remove(HTMLParseBudget.MAX_ELEMENTS_PROPERTY);
+            Framework.getProperties().remove(HTMLParser.MAPPED_FILE_THRESHOLD_PROPERTY);
+            HTMLParseBudget.readDefaults();
+            HTMLParser.readDefaults();
+        }
+    }
+
+    @Test
+    public void testGetInfoOperation_DocumentList() throws Exception {
+
+        OperationChain chain;
+        OperationContext ctx = new OperationContext(session);
+
+        DocumentModelList docs = new DocumentModelListImpl();
+        docs.add(createTestFile());
+        docs.add(createTestNote());
+        ctx.setInput(docs);
+        chain = new OperationChain("testGetInfoOp-DocumentList");
+        chain.add(HTMLGetInfoOp.ID).set("metaList", "author");
+        String result = (String) automationService.run(ctx, chain);
+
+        JSONArray array = new JSONArray(result);
+        assertEquals(2, array.length());
+        for (int i = 0; i < array.length(); i++) {
+            JSONObject obj = array.getJSONObject(i);
+            assertEquals("Nuxeo HTMLParser Rocks!", obj.getString("title"));
+            assertEquals("John Smith", obj.getString("author"));
+        }
+    }
+
+    @Test
+    public void testHtmlExtracted() throws Exception {
+
+        DocumentModel note = createTestNote();
+        note.addFacet(HTMLExtractedData.FACET);
+        note = session.saveDocument(note);
+        txFeature.nextTransaction();
+
+        // Filled by the listener
+        note = session.getDocument(note.getRef());
+        assertEquals("Nuxeo HTMLParser Rocks!", note.getPropertyValue(HTMLExtractedData.XPATH_TITLE));
+        assertNotNull(note.getPropertyValue(HTMLExtractedData.XPATH_TEXT_DIGEST));
+        HTMLExtractedData stored = HTMLExtractedData.getIfFresh(note, null);
+        assertNotNull(stored);
+        assertEquals("kw1,kw2,kw3", stored.getMetaValue("keywords"));
+        checkLinksForHtmlTestFile(stored.getLinks());
+        assertEquals(LinkRules.get().toString(), note.getPropertyValue(HTMLExtractedData.XPATH_LINK_RULES));
+
+        // The operations use the stored data
+        note.setPropertyValue(HTMLExtractedData.XPATH_TITLE, "The stored title");
+        note = session.saveDocument(note);
+        txFeature.nextTransaction();
+
+        OperationContext ctx = new OperationContext(session);
+        ctx.setInput(note);
+        OperationChain chain = new OperationChain("testGetInfoOp");
+        chain.add(HTMLGetInfoOp.ID).set("metaList", "keywords");
+        JSONObject obj = new JSONObject((String) automationService.run(ctx, chain));
+        assertEquals("The stored title", obj.getString("title"));
+        assertEquals("kw1,kw2,kw3", obj.getString("keywords"));
+
+        ctx = new OperationContext(session);
+        ctx.setInput(note);
+        chain = new OperationChain("testGetLinksOp");
+        chain.add(HTMLGetLinksOp.ID);
+        checkJsonArrayForHtmlTestFile(new JSONArray((String) automationService.run(ctx, chain)));
+
+        // Also in a batch
+        DocumentModelList docs = new DocumentModelListImpl();
+        docs.add(note);
+        docs.add(createTestFile());
+        ctx = new OperationContext(session);
+        ctx.setInput(docs);
+        chain = new OperationChain("testGetInfoOp-DocumentList");
+        chain.add(HTMLGetInfoOp.ID).set("metaList", "keywords");
+        JSONArray batch = new JSONArray((String) automationService.run(ctx, chain));
+        assertEquals("The stored title", batch.getJSONObject(0).getString("title"));
+        assertEquals("kw1,kw2,kw3", batch.getJSONObject(0).getString("keywords"));
+        assertEquals("Nuxeo HTMLParser Rocks!", batch.getJSONObject(1).getString("title"));
+
+        // The stored links follow the parameters as a parse does
+        ctx = new OperationContext(session);
+        ctx.setInput(note);
+        chain = new OperationChain("testGetLinksOp");
+        chain.add(HTMLGetLinksOp.ID).set("includeText", false).set("maxElements", 1);
+        JSONArray array = new JSONArray((String) automationService.run(ctx, chain));
+        assertEquals(1, array.length());
+        assertFalse(array.getJSONObject(0).has("text"));
+        assertEquals(Boolean.TRUE, ctx.get(HTMLParseBudget.TRUNCATED_CONTEXT_VARIABLE));
+
+        // The stored data cannot be used: the html is parsed
+        ctx = new OperationContext(session);
+        ctx.setInput(note);
+        chain = new OperationChain("testGetInfoOp");
+        chain.add(HTMLGetInfoOp.ID).set("headOnly", true);
+        obj = new JSONObject((String) automationService.run(ctx, chain));
+        assertEquals("Nuxeo HTMLParser Rocks!", obj.getString("title"));
+
+        ctx = new OperationContext(session);
+        ctx.setInput(note);
+        chain = new OperationChain("testGetInfoOp");
+        chain.add(HTMLGetInfoOp.ID).set("engine", "fast");
+        obj = new JSONObject((String) automationService.run(ctx, chain));
+        assertEquals("Nuxeo HTMLParser Rocks!", obj.getString("title"));
+
+        // Modifying the html extracts it again
+        String html = (String) note.getPropertyValue("note:note");
+        note.setPropertyValue("note:note", html.replace("Nuxeo HTMLParser Rocks!", "The new title"));
+        note = session.saveDocument(note);
+        txFeature.nextTransaction();
+
+        note = session.getDocument(note.getRef());
+        assertEquals("The new title", note.getPropertyValue(HTMLExtractedData.XPATH_TITLE));
+        assertNotNull(HTMLExtractedData.getIfFresh(note, null));
+        assertFalse(HTMLExtractedData.needsUpdate(note));
+
+        // Changing the metas to store makes the data stale
+        Framework.getProperties().setProperty(HTMLExtractedData.METAS_PROPERTY, "keywords");
+        try {
+            assertNull(HTMLExtractedData.getIfFresh(note, null));
+            assertTrue(HTMLExtractedData.needsUpdate(note));
+            HTMLExtractedData.update(note);
+            assertNotNull(HTMLExtractedData.getIfFresh(note, null));
+            assertEquals("keywords", note.getPropertyValue(HTMLExtractedData.XPATH_META_NAMES));
+        } finally {
+            Framework.getProperties().remove(HTMLExtractedData.METAS_PROPERTY);
+        }
+        assertNull(HTMLExtractedData.getIfFresh(note, null));
+
+        // So do other link rules
+        assertTrue(HTMLExtractedData.update(note));
+        assertNotNull(HTMLExtractedData.getIfFresh(note, null));
+        note.setPropertyValue(HTMLExtractedData.XPATH_LINK_RULES, "a:href:url");
+        assertNull(HTMLExtractedData.getIfFresh(note, null));
+        assertTrue(HTMLExtractedData.needsUpdate(note));
+
+        // The stored data is not limited by the default budget
+        Framework.getProperties().setProperty(HTMLParseBudget.MAX_ELEMENTS_PROPERTY, "1");
+        try {
+            HTMLParseBudget.readDefaults();
+            assertEquals(1, HTMLParseBudget.getDefault().getMaxElements());
+            HTMLExtractedData.update(note);
+        } finally {
+            Framework.getProperties().remove(HTMLParseBudget.MAX_ELEMENTS_PROPERTY);
+            HTMLParseBudget.readDefaults();
+        }
+        checkLinksForHtmlTestFile(HTMLExtractedData.getIfFresh(note, null).getLinks());
+    }
+
+    @Test
+    public void testHtmlExtractBulkAction() throws Exception {
+
+        DocumentModel note = createTestNote();
+        DocumentModel file = createTestFile();
+        txFeature.nextTransaction();
+
+        String nxql = String.format("SELECT * FROM Document WHERE ecm:uuid IN ('%s', '%s')", note.getId(),
+                file.getId());
+        BulkCommand command = new BulkCommand.Builder(HTMLExtractAction.ACTION_NAME, nxql,
+                session.getPrincipal().getName()).param(HTMLExtractAction.PARAM_ADD_FACET, true).build();
+        String commandId = bulkService.submit(command);
+        assertTrue(bulkService.await(commandId, Duration.ofSeconds(60)));
+        txFeature.nextTransaction();
+
+        BulkStatus status = bulkService.getStatus(commandId);
+        assertEquals(BulkStatus.State.COMPLETED, status.getState());
+        assertEquals(2, status.getProcessed());
+
+        for (DocumentModel doc : Arrays.asList(note, file)) {
+            doc = session.getDocument(doc.getRef());
+            assertTrue(doc.hasFacet(HTMLExtractedData.FACET));
+            assertEquals("Nuxeo HTMLParser Rocks!", doc.getPropertyValue(HTMLExtractedData.XPATH_TITLE));
+            assertNotNull(HTMLExtractedData.getIfFresh(doc, null));
+        }
+    }
+
+    @Test
+    public void testExtractAsync() throws Exception {
+
+        DocumentModel file = createTestFile();
+        txFeature.nextTransaction();
+
+        OperationContext ctx = new OperationContext(session);
+        ctx.setInput(file);
+        OperationChain chain = new OperationChain("testExtractAsync");
+        chain.add(HTMLExtractAsyncOp.ID).set("facets", "title,links");
+        String id = (String) automationService.run(ctx, chain);
+        assertTrue(StringUtils.isNotBlank(id));
+
+        // Same html, same parameters: same extraction
+        Map<String, Serializable> params = new HashMap<String, Serializable>();
+        params.put("facets", "title,links");
+        assertEquals(id, htmlParserService.submit(HTML_FILEBLOB, params));
+        params.put("facets", "title");
+        assertNotEquals(id, htmlParserService.submit(HTML_FILEBLOB, params));
+
+        txFeature.nextTransaction();
+        assertEquals(HTMLExtractionWork.STATUS_COMPLETED, htmlParserService.getStatus(id));
+
+        ctx = new OperationContext(session);
+        chain = new OperationChain("testGetExtractResult");
+        chain.add(HTMLGetExtractResultOp.ID).set("id", id);
+        JSONObject obj = new JSONObject((String) automationService.run(ctx, chain));
+        assertEquals(id, obj.getString("id"));
+        assertEquals(HTMLExtractionWork.STATUS_COMPLETED, obj.getString("status"));
+        JSONObject result = obj.getJSONObject("result");
+        assertEquals("Nuxeo HTMLParser Rocks!", result.getString("title"));
+        assertTrue(result.has("links"));
+        assertFalse(result.has("text"));
+
+        assertNull(htmlParserService.getStatus("does-not-exist"));
+        assertNull(htmlParserService.getResult("does-not-exist"));
+
+        // Only the user who submitted it can read it, another user gets another extraction
+        try (NuxeoLoginContext loginContext = Framework.loginUser("jdoe")) {
+            assertNull(htmlParserService.getStatus(id));
+            assertNull(htmlParserService.getResult(id));
+            params.put("facets", "title,links");
+            assertNotEquals(id, htmlParserService.submit(HTML_FILEBLOB, params));
+        }
+    }
+
+    @Test
+    public void testExtractAsync_ConcurrentSubmits() throws Exception {
+
+        // New parameters, so there is no extraction yet
+        Map<String, Serializable> params = new HashMap<String, Serializable>();
+        params.put("metaList", "concurrent" + System.nanoTime());
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> futures = new ArrayList<Future<String>>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return htmlParserService.submit(HTML_FILEBLOB, params);
+                }));
+            }
+            start.countDown();
+            String id = futures.get(0).get();
+            for (Future<String> future : futures) {
+                assertEquals(id, future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testExtractAsync_Rollback() throws Exception {
+
+        Map<String, Serializable> params = new HashMap<String, Serializable>();
+        params.put("metaList", "rollback" + System.nanoTime());
+        String id = htmlParserService.submit(HTML_FILEBLOB, params);
+        TransactionHelper.setTransactionRollbackOnly();
+        txFeature.nextTransaction();
+
+        // The work never ran, the next call schedules a new one
+        assertNull(htmlParserService.getStatus(id));
+        String newId = htmlParserService.submit(HTML_FILEBLOB, params);
+        assertNotEquals(id, newId);
+        txFeature.nextTransaction();
+        assertEquals(HTMLExtractionWork.STATUS_COMPLETED, htmlParserService.getStatus(newId));
+    }
+
+    @Test
+    public void testExtractAsync_DocumentModified() throws Exception {
+
+        DocumentModel file = createTestFile();
+        txFeature.nextTransaction();
+
+        String id = htmlParserService.submit(file, null);
+        // Modified before the work reads it: the result would not be the extraction of the submitted html
+        file.setPropertyValue("file:content",
+                (Serializable) Blobs.createBlob("<html><title>Modified</title></html>", "text/html", "UTF-8"));
+        session.saveDocument(file);
+        txFeature.nextTransaction();
+
+        assertEquals(HTMLExtractionWork.STATUS_FAILED, htmlParserService.getStatus(id));
+        assertNull(htmlParserService.getResult(id));
+    }
+
+    protected static final String[] ENGINE_CORPUS = {
+            "<html><head><TITLE>  Caf&eacute;\n &amp; Tea </TITLE><META NAME=\"Keywords\" CONTENT=\"a, b\">"
+                    + "<meta property='og:title' content='OG &quot;title&quot;'></head>"
+                    + "<body><A HREF=page.html>Page</A><img src=\"i.png\" srcset=\"i-1x.png 1x, i-2x.png 2x\"/></body>"
+                    + "</html>",
+            "<!-- <a href=\"commented.html\">No</a> --><script>var s = '<a href=\"script.html\">';</script>"
+                    + "<style>a { background: url(x.png) }</style><a href=\"a.html?x=1&amp;y=2\" title=\"a > b\">A</a>",
+            "<!DOCTYPE html><base href=\"http://example.com/dir/\"><meta http-equiv=\"refresh\" content=\"0; "
+                    + "url=next.html\"><iframe src=\"frame.html\"></iframe><link rel=stylesheet href=s.css>"
+                    + "<a href>No value</a><a href=\"\">Empty</a>",
+            "<p>1 < 2 and 3 > 2</p><svg><title>Svg title</title><image href=\"svg.png\"/></svg>"
+                    + "<a\nhref='spaces.html'\ndata-x>Spaces</a><?php echo '<a href=\"php.html\">'; ?>",
+            "<html><head><title>T <a href=\"in-title.html\">x</a> &amp; <b>y</b></title></head>"
+                    + "<body><a href=\"b.html\">B</a></body></html>",
+            "No html at all", "" };
+
+    protected void checkSameResults(String html) throws IOException {
+
+        HTMLParser jericho = htmlParserService.newParser(html, null)
+                                              .setEngine(HTMLParser.Engine.JERICHO)
+                                              .setLinkTextOptions(false, 0);
+        HTMLParser fast = htmlParserService.newParser(html, null)
+                                           .setEngine(HTMLParser.Engine.FAST)
+                                           .setLinkTextOptions(false, 0);
+
+        assertEquals(jericho.getTitle(), fast.getTitle());
+        assertEquals(jericho.getMetas(), fast.getMetas());
+        assertEquals(jericho.getImgSrc(), fast.getImgSrc());
+        assertEquals(jericho.getBaseHref(), fast.getBaseHref());
+        assertEquals(jericho.getLinks().toString(), fast.getLinks().toString());
+
+        Set<Facet> facets = EnumSet.of(Facet.TITLE, Facet.METAS, Facet.LINKS, Facet.IMAGES);
+        List<String> metaNames = Arrays.asList("keywords", "og:title", "refresh", "missing");
+        HTMLExtraction expected = jericho.getExtractor().setFacets(facets).setMetaNames(metaNames).extract();
+        HTMLExtraction actual = fast.getExtractor().setFacets(facets).setMetaNames(metaNames).extract();
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertEquals(expected.getMetas(), actual.getMetas());
+        assertEquals(expected.getLinks().toString(), actual.getLinks().toString());
+        assertEquals(expected.getImgSrc(), actual.getImgSrc());
+
+        // The fast engine does not parse
+        assertFalse(fast.parsed);
+    }
+
+    @Test
+    public void testFastEngine_SameResults() throws Exception {
+
+        checkSameResults(HTML_FILEBLOB.getString());
+        for (String html : ENGINE_CORPUS) {
+            checkSameResults(html);
+        }
+
+        HTMLParser hp = htmlParserService.newParser(ENGINE_CORPUS[0], null).setEngine(HTMLParser.Engine.FAST);
+        assertEquals("Caf\u00e9 & Tea", hp.getTitle());
+        assertEquals("OG \"title\"", hp.getMetaValue("og:title"));
+        assertEquals(Arrays.asList("i.png"), hp.getImgSrc());
+    }
+
+    @Test
+    public void testFastEngine_UnclosedMarkup() throws Exception {
+
+        // Unclosed comments, titles and quoted values
+        StringBuilder sb = new StringBuilder("<a href=\"ok.html\">OK</a>");
+        for (int i = 0; i < 5000; i++) {
+            sb.append("<!--x");
+        }
+        for (int i = 0; i < 5000; i++) {
+            sb.append("<title>x");
+        }
+        for (int i = 0; i < 5000; i++) {
+            sb.append("<b t=\"x");
+        }
+        sb.append("<c u='y>");
+        String html = sb.toString();
+
+        long[] reads = { 0 };
+        CharSequence counting = new CharSequence() {
+            @Override
+            public int length() {
+                return html.length();
+            }
+
+            @Override
+            public char charAt(int index) {
+                reads[0]++;
+                return html.charAt(index);
+            }
+
+            @Override
+            public CharSequence subSequence(int start, int end) {
+                return html.subSequence(start, end);
+            }
+        };
+
+        List<String> links = new ArrayList<String>();
+        int count = new FastTagScanner(counting).scan(tag -> {
+            String href = tag.getAttributeValue("href");
+            if (href != null) {
+                links.add(href);
+            }
+            return true;
+        });
+        assertEquals(Arrays.asList("ok.html"), links);
+        assertEquals(5001, count);
+        // The same tail is not searched again for each unclosed tag
+        assertTrue(reads[0] < 20L * html.length());
+    }
+
+    @Test
+    public void testFastEngine_Selection() throws Exception {
+
+        String html = HTML_FILEBLOB.getString();
+
+        // Auto: the fast engine when the text is not needed and the source is not parsed
+        HTMLParser hp = htmlParserService.newParser(html, null);
+        assertEquals(HTMLParser.Engine.AUTO, hp.getEngine());
+        assertEquals("Nuxeo HTMLParser Rocks!", hp.getTitle());
+        assertFalse(hp.parsed);
+        hp.setLinkTextOptions(false, 0);
+        assertEquals(5, hp.getLinks().size());
+        assertFalse(hp.parsed);
+        hp.setLinkTextOptions(true, 0);
+        checkLinksForHtmlTestFile(hp.getLinks());
+        assertTrue(hp.parsed);
+
+        // The profile sets the engine
+        HTMLExtractionProfile profile = htmlParserService.getProfile(null).withEngine("jericho");
+        hp = htmlParserService.newParser(html, profile);
+        assertEquals(HTMLParser.Engine.JERICHO, hp.getEngine());
+        assertEquals("Nuxeo HTMLParser Rocks!", hp.getTitle());
+        assertTrue(hp.parsed);
+
+        OperationContext ctx = new OperationContext(session);
+        ctx.setInput(html);
+        OperationChain chain = new OperationChain("testFastEngine");
+        chain.add(HTMLGetInfoOp.ID).set("metaList", "keywords").set("engine", "fast");
+        JSONObject obj = new JSONObject((String) automationService.run(ctx, chain));
+        assertEquals("Nuxeo HTMLParser Rocks!", obj.getString("title"));
+    }
+
+    @Test
+    public void testGetInfo_HeadOnly() throws Exception {
+
+        StringBuilder html = new StringBuilder();
+        html.append("<html><head><title>The head title</title><meta name=\"description\" content=\"In the head\">");
+        html.append("</head><body><meta name=\"late\" content=\"In the body\">");
+        while (html.length() < 4 * 1024 * 1024) {
+            html.append("<p>Lorem ipsum dolor sit amet, <a href=\"link.html\">consectetur</a> adipisicing elit</p>\n");
+        }
+        html.append("</body></html>");
+        byte[] bytes = html.toString().getBytes(StandardCharsets.UTF_8);
+
+        CountingInputStream[] stream = { null };
+        Blob blob = new ByteArrayBlob(bytes, "text/html", "UTF-8") {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public InputStream getStream() {
+                stream[0] = new CountingInputStream(super.getStream());
+                return stream[0];
+            }
+        };
+
+        HTMLParser hp = htmlParserService.newParser(blob, null).setHeadOnly(true);
+        assertEquals("The head title", hp.getTitle());
+        assertEquals("In the head", hp.getMetaValue("description"));
+        assertEquals("", hp.getMetaValue("late"));
+        // Stopped reading at the end of the head
+        assertTrue(stream[0].getByteCount() < 1024 * 1024);
+
+        hp = htmlParserService.newParser(blob, null);
+        assertEquals("In the body", hp.getMetaValue("late"));
+
+        // No head: the whole html is read
+        hp = htmlParserService.newParser("<p>Text</p><title>Late title</title><meta name=\"late\" content=\"x\">",
+                null).setHeadOnly(true);
+        assertEquals("Late title", hp.getTitle());
+        assertEquals("x", hp.getMetaValue("late"));
+
+        // Implicit head
+        hp = htmlParserService.newParser("<title>T</title><body><meta name=\"late\" content=\"x\"></body>", null)
+                              .setHeadOnly(true);
+        assertEquals("T", hp.getTitle());
+        assertEquals("", hp.getMetaValue("late"));
+
+        OperationContext ctx = new OperationContext(session);
+        ctx.setInput(blob);
+        OperationChain chain = new OperationChain("testGetInfo_HeadOnly");
+        chain.add(HTMLGetInfoOp.ID).set("metaList", "description,late").set("headOnly", true);
+        JSONObject obj = new JSONObject((String) automationService.run(ctx, chain));
+        assertEquals("The head title", obj.getString("title"));
+        assertEquals("In the head", obj.getString("description"));
+        assertEquals("", obj.getString("late"));
+    }
+
+    protected static final String STRUCTURED_DATA_HTML = "<html><head><title>Article</title>"
+            + "<meta property=\"og:title\" content=\"The &quot;title&quot;\">"
+            + "<meta property=\"og:image\" content=\"a.png\"><meta property=\"OG:Image\" content=\"b.png\">"
+            + "<meta name=\"twitter:card\" content=\"summary\"><meta name=\"description\" content=\"Desc\">"
+            + "<script type=\"application/ld+json\">\n{ \"@context\": \"https://schema.org\",\n"
+            + "  \"@type\": \"Article\", \"headline\": \"</b> in a string\" }\n</script>"
+            + "<script type=\"application/ld+json\">{ \"@type\": \"Invalid\", </script>"
+            + "<script>var notJsonLd = { \"@type\": \"Script\" };</script>"
+            + "</head><body><p>Text</p></body></html>";
+
+    protected void checkStructuredData(JSONArray jsonLd, JSONObject openGraph, JSONObject twitter) {
+
+        assertEquals(1, jsonLd.length());
+        assertEquals("Article", jsonLd.getJSONObject(0).getString("@type"));
+        assertEquals("</b> in a string", jsonLd.getJSONObject(0).getString("headline"));
+
+        assertEquals(2, openGraph.length());
+        assertEquals("The \"title\"", openGraph.getString("og:title"));
+        JSONArray images = openGraph.getJSONArray("og:image");
+        assertEquals("a.png", images.getString(0));
+        assertEquals("b.png", images.getString(1));
+
+        assertEquals(1, twitter.length());
+        assertEquals("summary", twitter.getString("twitter:card"));
+    }
+
+    @Test
+    public void testGetStructuredData() throws Exception {
+
+        for (HTMLParser.Engine engine : HTMLParser.Engine.values()) {
+            HTMLParser hp = htmlParserService.newParser(STRUCTURED_DATA_HTML, null).setEngine(engine);
+            StructuredData data = hp.getStructuredData();
+            assertEquals(1, data.getJsonLd().size());
+            assertEquals(Arrays.asList("a.png", "b.png"), data.getOpenGraph().get("og:image"));
+            assertEquals(Arrays.asList("summary"), data.getTwitter().get("twitter:card"));
+            assertNull(data.getOpenGraph().get("description"));
+        }
+
+        // Streamed
+        HTMLParser hp = htmlParserService.newParser(STRUCTURED_DATA_HTML, null);
+        List<String> blocks = new ArrayList<String>();
+        StructuredData metas = hp.scanStructuredData(blocks::add);
+        assertEquals(1, blocks.size());
+        assertEquals(new JSONObject(blocks.get(0)).toString(), blocks.get(0));
+        assertTrue(metas.getJsonLd().isEmpty());
+        assertEquals(2, metas.getOpenGraph().size());
+
+        OperationContext ctx = new OperationContext(session);
+        for (boolean streamed : new boolean[] { false, true }) {
+            ctx.setInput(STRUCTURED_DATA_HTML);
+            OperationChain chain = new OperationChain("testGetStructuredData");
+            chain.add(HTMLGetStructuredDataOp.ID).set("streamed", streamed);
+            JSONObject obj = new JSONObject((String) automationService.run(ctx, chain));
+            checkStructuredData(obj.getJSONArray("jsonLd"), obj.getJSONObject("openGraph"),
+                    obj.getJSONObject("twitter"));
+        }
+    }
+
 }